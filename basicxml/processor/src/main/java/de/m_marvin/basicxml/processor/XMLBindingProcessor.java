@@ -0,0 +1,936 @@
+package de.m_marvin.basicxml.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Generates an binding for each class annotated with XMLType, which supplies the annotation metadata of the class and reads and writes its fields without reflection.<br>
+ * The bindings implement XMLTypeBinding and are found by the marshaler and unmarshaler by their name, see XMLTypeBinding.bindingClassName.
+ * The attributes and elements are read by switching on their names, fields holding an XML primitive or an single XML type object are read and written directly.
+ * Collections, remaining maps, streams, primitive arrays and fields with type adapters are passed back to the marshaler and unmarshaler, which share the conversions of these fields with the types without binding.<br>
+ * Abstract classes, classes which can not be constructed from an class in the same package and classes referring to types which can not be accessed from it get no binding,
+ * fields which are private, static or final are accessed by the marshaler and unmarshaler.
+ */
+@SupportedAnnotationTypes(XMLBindingProcessor.XML_TYPE)
+public class XMLBindingProcessor extends AbstractProcessor {
+
+	public static final String XML_TYPE = "de.m_marvin.basicxml.marshaling.annotations.XMLType";
+	public static final String XML_FIELD = "de.m_marvin.basicxml.marshaling.annotations.XMLField";
+	public static final String XML_ORDER = "de.m_marvin.basicxml.marshaling.annotations.XMLOrder";
+	public static final String XML_CDATA = "de.m_marvin.basicxml.marshaling.annotations.XMLCDATA";
+	public static final String XML_TYPE_ADAPTER = "de.m_marvin.basicxml.marshaling.annotations.XMLTypeAdapter";
+	public static final String TYPE_BINDING = "de.m_marvin.basicxml.marshaling.binding.XMLTypeBinding";
+	public static final String FIELD_ACCESSOR = "de.m_marvin.basicxml.marshaling.binding.FieldAccessor";
+	public static final String FIELD_DESCRIPTOR = "de.m_marvin.basicxml.marshaling.binding.XMLFieldDescriptor";
+	public static final String BINDING_WRITER = "de.m_marvin.basicxml.marshaling.binding.XMLBindingWriter";
+	public static final String BINDING_READER = "de.m_marvin.basicxml.marshaling.binding.XMLBindingReader";
+	public static final String BINDINGS = "de.m_marvin.basicxml.marshaling.binding.XMLBindings";
+	public static final String CLASS_SUFFIX = "$$XMLBinding";
+
+	/** the keys of the text field and remaining map fields, see XMLClassType */
+	private static final String TEXT_VALUE_FIELD = "!TEXT!";
+	private static final String REMAINING_MAP_FIELD = "!REMAINING!";
+	private static final String NULL_STR = "<null>";
+
+	private static final String[] STREAM_TYPES = { "java.io.Reader", "java.io.Writer", "java.io.InputStream", "java.io.OutputStream", "java.nio.ByteBuffer" };
+
+	/**
+	 * How the binding reads and writes the value of an field itself
+	 */
+	private static enum Inline {
+		/** the field is passed back to the marshaler and unmarshaler **/
+		NONE,
+		INT,
+		SHORT,
+		LONG,
+		DOUBLE,
+		FLOAT,
+		BOOLEAN,
+		STRING,
+		ENUM,
+		/** the field holds an single XML type object **/
+		OBJECT;
+
+		public boolean isJavaPrimitive() {
+			return this != NONE && this != STRING && this != ENUM && this != OBJECT;
+		}
+	}
+
+	/**
+	 * An XML field of the type, with the annotation values resolved as the marshaler would read them
+	 */
+	private static record FieldModel(VariableElement field, TypeElement declaringClass, String kind, String name, URI namespace,
+			TypeMirror type, TypeMirror adapter, TypeMirror adapterParent, TypeMirror typeAdapter, boolean cdata, boolean accessible, Inline inline) {}
+
+	/**
+	 * An attribute or element field with the namespace and name it is written as, the name is {@link XMLBindingProcessor#REMAINING_MAP_FIELD} for remaining maps
+	 */
+	private static record Entry(URI namespace, String name, int field) {
+
+		public boolean isRemainingMap() {
+			return this.name.equals(REMAINING_MAP_FIELD);
+		}
+
+	}
+
+	/**
+	 * Thrown if no binding can be generated for an type, the type is then examined by the marshaler at runtime
+	 */
+	private static class SkipBinding extends Exception {
+
+		private static final long serialVersionUID = 1L;
+
+		public SkipBinding(String reason) {
+			super(reason);
+		}
+
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (TypeElement annotation : annotations) {
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if (element.getKind() != ElementKind.CLASS) continue;
+				TypeElement type = (TypeElement) element;
+				PackageElement typePackage = this.processingEnv.getElementUtils().getPackageOf(type);
+				try {
+					if (!isAccessible(type, typePackage) || !isConstructible(type))
+						throw new SkipBinding("type can not be constructed from its package");
+					writeBinding(type, typePackage);
+				} catch (SkipBinding e) {
+					this.processingEnv.getMessager().printMessage(Kind.NOTE, "no XML binding generated, " + e.getMessage() + ": " + type, type);
+				} catch (IOException e) {
+					this.processingEnv.getMessager().printMessage(Kind.ERROR, "failed to write XML binding: " + e.getMessage(), type);
+				}
+			}
+		}
+		// other processors may process the XMLType annotation too
+		return false;
+	}
+
+	/**
+	 * Returns true if the type is not local or anonymous and can be accessed from the package
+	 */
+	private boolean isAccessible(TypeElement type, PackageElement fromPackage) {
+		for (Element element = type; element instanceof TypeElement enclosing; element = element.getEnclosingElement()) {
+			if (enclosing.getNestingKind() != NestingKind.TOP_LEVEL && enclosing.getNestingKind() != NestingKind.MEMBER) return false;
+			Set<Modifier> modifiers = enclosing.getModifiers();
+			if (modifiers.contains(Modifier.PRIVATE)) return false;
+			if (!modifiers.contains(Modifier.PUBLIC) && !this.processingEnv.getElementUtils().getPackageOf(enclosing).equals(fromPackage)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if all declared types in the type can be accessed from the package
+	 */
+	private boolean isAccessible(TypeMirror type, PackageElement fromPackage) {
+		if (type.getKind().isPrimitive()) return true;
+		if (type instanceof ArrayType arrayType) return isAccessible(arrayType.getComponentType(), fromPackage);
+		if (type instanceof DeclaredType declaredType) return isAccessible((TypeElement) declaredType.asElement(), fromPackage);
+		return false;
+	}
+
+	/**
+	 * Returns true if the field can be read and written by the binding
+	 */
+	private boolean isAccessible(VariableElement field, TypeElement declaringClass, PackageElement fromPackage) {
+		Set<Modifier> modifiers = field.getModifiers();
+		if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL)) return false;
+		if (!modifiers.contains(Modifier.PUBLIC) && !this.processingEnv.getElementUtils().getPackageOf(declaringClass).equals(fromPackage)) return false;
+		return isAccessible(declaringClass, fromPackage) && isAccessible(erasure(field.asType()), fromPackage);
+	}
+
+	/**
+	 * Returns true if the type is not abstract and has an non-private constructor without parameters
+	 */
+	private boolean isConstructible(TypeElement type) {
+		if (type.getModifiers().contains(Modifier.ABSTRACT)) return false;
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) return true;
+		}
+		return false;
+	}
+
+	private static boolean isStatic(TypeElement type) {
+		return type.getNestingKind() == NestingKind.TOP_LEVEL || type.getModifiers().contains(Modifier.STATIC) || type.getEnclosingElement().getKind().isInterface();
+	}
+
+	private static AnnotationMirror annotation(Element element, String annotationName) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName)) return annotation;
+		}
+		return null;
+	}
+
+	private static boolean hasAnnotation(Element element, String annotationName) {
+		return annotation(element, annotationName) != null;
+	}
+
+	private Object annotationValue(AnnotationMirror annotation, String name) {
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : this.processingEnv.getElementUtils().getElementValuesWithDefaults(annotation).entrySet()) {
+			if (value.getKey().getSimpleName().contentEquals(name)) return value.getValue().getValue();
+		}
+		throw new IllegalArgumentException("annotation has no value: " + name);
+	}
+
+	/**
+	 * Returns the class of the annotation value, or null if it is Void
+	 */
+	private TypeMirror classValue(AnnotationMirror annotation, String name) throws SkipBinding {
+		TypeMirror type = (TypeMirror) annotationValue(annotation, name);
+		if (type.getKind() == TypeKind.ERROR) throw new SkipBinding("annotation refers to unresolved type " + type);
+		if (type instanceof DeclaredType declaredType && ((TypeElement) declaredType.asElement()).getQualifiedName().contentEquals("java.lang.Void")) return null;
+		return erasure(type);
+	}
+
+	private List<String> stringValues(AnnotationMirror annotation, String name) {
+		List<String> strings = new ArrayList<>();
+		@SuppressWarnings("unchecked")
+		List<? extends AnnotationValue> values = (List<? extends AnnotationValue>) annotationValue(annotation, name);
+		for (AnnotationValue value : values) strings.add((String) value.getValue());
+		return strings;
+	}
+
+	private TypeMirror erasure(TypeMirror type) {
+		return this.processingEnv.getTypeUtils().erasure(type);
+	}
+
+	private static TypeElement asElement(TypeMirror type) {
+		return type instanceof DeclaredType declaredType ? (TypeElement) declaredType.asElement() : null;
+	}
+
+	private static boolean isPrimitiveArray(TypeMirror type) {
+		return type instanceof ArrayType arrayType && arrayType.getComponentType().getKind().isPrimitive();
+	}
+
+	/**
+	 * Returns the source code of the class literal of the type, or null if the type is null
+	 */
+	private String classLiteral(TypeMirror type, PackageElement fromPackage) throws SkipBinding {
+		if (type == null) return null;
+		if (!isAccessible(type, fromPackage)) throw new SkipBinding("type can not be accessed from the package: " + type);
+		return erasure(type) + ".class";
+	}
+
+	/**
+	 * Adds the XML fields of the class and of its XML type super classes, in the order in which the marshaler finds them
+	 */
+	private void findFields(TypeElement clazz, PackageElement typePackage, List<FieldModel> fields) throws SkipBinding {
+		TypeElement superclass = asElement(clazz.getSuperclass());
+		if (superclass != null && hasAnnotation(superclass, XML_TYPE))
+			findFields(superclass, typePackage, fields);
+
+		// the fields of XML type interfaces are examined by the marshaler
+		for (TypeMirror in : clazz.getInterfaces())
+			if (hasAnnotation(asElement(in), XML_TYPE))
+				throw new SkipBinding("type implements the XML type interface " + in);
+
+		for (VariableElement field : ElementFilter.fieldsIn(clazz.getEnclosedElements())) {
+			AnnotationMirror xmlField = annotation(field, XML_FIELD);
+			if (xmlField == null) continue;
+			fields.add(makeField(clazz, field, xmlField, typePackage));
+		}
+	}
+
+	private FieldModel makeField(TypeElement declaringClass, VariableElement field, AnnotationMirror xmlField, PackageElement typePackage) throws SkipBinding {
+		String kind = ((VariableElement) annotationValue(xmlField, "value")).getSimpleName().toString();
+		String name = (String) annotationValue(xmlField, "name");
+		if (name.equals(NULL_STR)) name = field.getSimpleName().toString();
+		String namespaceStr = (String) annotationValue(xmlField, "namespace");
+		URI namespace = null;
+		if (!namespaceStr.equals(NULL_STR)) {
+			try {
+				namespace = new URI(namespaceStr);
+			} catch (URISyntaxException e) {
+				throw new SkipBinding("namespace is not a valid URI: " + namespaceStr);
+			}
+		}
+		TypeMirror type = classValue(xmlField, "type");
+		TypeMirror fieldType = erasure(field.asType());
+
+		AnnotationMirror xmlTypeAdapter = annotation(field, XML_TYPE_ADAPTER);
+		TypeMirror adapter = xmlTypeAdapter == null ? null : classValue(xmlTypeAdapter, "value");
+		TypeMirror adapterParent = xmlTypeAdapter == null ? null : classValue(xmlTypeAdapter, "parent");
+
+		// the type adapter of the data type is only used by fields without type adapter
+		TypeMirror dataType;
+		switch (kind) {
+		case "ATTRIBUTE":
+		case "ELEMENT":
+		case "TEXT":
+			dataType = fieldType;
+			break;
+		default:
+			dataType = isPrimitiveArray(fieldType) && kind.equals("ELEMENT_COLLECTION") ? null : type;
+			break;
+		}
+		TypeMirror typeAdapter = null;
+		if (adapter == null && asElement(dataType) != null) {
+			AnnotationMirror dataTypeAdapter = annotation(asElement(dataType), XML_TYPE_ADAPTER);
+			if (dataTypeAdapter != null) typeAdapter = classValue(dataTypeAdapter, "value");
+		}
+
+		boolean accessible = isAccessible(field, declaringClass, typePackage);
+		Inline inline = accessible && adapter == null && typeAdapter == null ? inlineOf(kind, fieldType) : Inline.NONE;
+		return new FieldModel(field, declaringClass, kind, name, namespace, type, adapter, adapterParent, typeAdapter, hasAnnotation(field, XML_CDATA), accessible, inline);
+	}
+
+	/**
+	 * Returns how the binding reads and writes the field, XML primitives and single XML type objects are read and written directly
+	 */
+	private Inline inlineOf(String kind, TypeMirror fieldType) {
+		if (!kind.equals("ATTRIBUTE") && !kind.equals("ELEMENT") && !kind.equals("TEXT")) return Inline.NONE;
+		switch (fieldType.getKind()) {
+		case INT: return Inline.INT;
+		case SHORT: return Inline.SHORT;
+		case LONG: return Inline.LONG;
+		case DOUBLE: return Inline.DOUBLE;
+		case FLOAT: return Inline.FLOAT;
+		case BOOLEAN: return Inline.BOOLEAN;
+		default: break;
+		}
+		TypeElement typeElement = asElement(fieldType);
+		if (typeElement == null) return Inline.NONE;
+		if (typeElement.getQualifiedName().contentEquals("java.lang.String")) return Inline.STRING;
+		if (typeElement.getKind() == ElementKind.ENUM) return Inline.ENUM;
+		if (!kind.equals("ELEMENT") || !hasAnnotation(typeElement, XML_TYPE)) return Inline.NONE;
+		for (String streamType : STREAM_TYPES) {
+			TypeElement streamElement = this.processingEnv.getElementUtils().getTypeElement(streamType);
+			if (this.processingEnv.getTypeUtils().isSubtype(fieldType, erasure(streamElement.asType()))) return Inline.NONE;
+		}
+		return Inline.OBJECT;
+	}
+
+	/**
+	 * Adds the XML types declared in the class and in its XML type super classes, in the order in which the marshaler finds them
+	 */
+	private void findSubTypes(TypeElement clazz, List<TypeElement> subTypes) {
+		TypeElement superclass = asElement(clazz.getSuperclass());
+		if (superclass != null && hasAnnotation(superclass, XML_TYPE))
+			findSubTypes(superclass, subTypes);
+
+		for (TypeElement type : ElementFilter.typesIn(clazz.getEnclosedElements())) {
+			if (hasAnnotation(type, XML_TYPE) && !subTypes.contains(type))
+				subTypes.add(type);
+		}
+	}
+
+	private static void put(Map<URI, Map<String, Integer>> map, URI namespace, String name, int field) {
+		map.computeIfAbsent(namespace, n -> new LinkedHashMap<>()).put(name, field);
+	}
+
+	private static Integer get(Map<URI, Map<String, Integer>> map, URI namespace, String name) {
+		Map<String, Integer> m = map.get(namespace);
+		return m == null ? null : m.get(name);
+	}
+
+	private static List<Entry> entries(Map<URI, Map<String, Integer>> map) {
+		List<Entry> entries = new ArrayList<>();
+		map.forEach((namespace, m) -> m.forEach((name, field) -> entries.add(new Entry(namespace, name, field))));
+		return entries;
+	}
+
+	/**
+	 * Returns the element fields by namespace and name, the namespaces are null if they are ignored, the same as the marshaler maps them
+	 */
+	private static Map<URI, Map<String, Integer>> elementMap(List<FieldModel> fields, boolean ignoreNamespaces) {
+		Map<URI, Map<String, Integer>> elements = new LinkedHashMap<>();
+		for (int i = 0; i < fields.size(); i++) {
+			FieldModel field = fields.get(i);
+			URI namespace = ignoreNamespaces ? null : field.namespace();
+			switch (field.kind()) {
+			case "ELEMENT":
+			case "ELEMENT_COLLECTION":
+				put(elements, namespace, field.name(), i);
+				break;
+			case "REMAINING_ELEMENT_MAP":
+				put(elements, namespace, REMAINING_MAP_FIELD, i);
+				break;
+			default:
+				break;
+			}
+		}
+		return elements;
+	}
+
+	/**
+	 * Orders the element fields as the marshaler writes them, the elements listed by the order annotation first, grouped by their namespace
+	 */
+	private static List<Entry> elementPlan(Map<URI, Map<String, Integer>> elements, List<String> elementOrder) {
+		Map<URI, Map<String, Integer>> plan = new LinkedHashMap<>();
+		for (String elementName : elementOrder)
+			for (Entry element : entries(elements)) {
+				if (element.name().equals(elementName)) put(plan, element.namespace(), element.name(), element.field());
+			}
+		for (Entry element : entries(elements)) {
+			if (get(plan, element.namespace(), element.name()) == null) put(plan, element.namespace(), element.name(), element.field());
+		}
+		return entries(plan);
+	}
+
+	private static String literal(String string) {
+		if (string == null) return "null";
+		StringBuilder literal = new StringBuilder("\"");
+		for (char c : string.toCharArray()) {
+			switch (c) {
+			case '"': literal.append("\\\""); break;
+			case '\\': literal.append("\\\\"); break;
+			case '\n': literal.append("\\n"); break;
+			case '\r': literal.append("\\r"); break;
+			case '\t': literal.append("\\t"); break;
+			default:
+				if (c < 0x20 || c > 0x7E) literal.append(String.format("\\u%04x", (int) c));
+				else literal.append(c);
+			}
+		}
+		return literal.append('"').toString();
+	}
+
+	/**
+	 * The source code of the binding of one type, the constants are collected while the methods are generated
+	 */
+	private final class BindingSource {
+
+		private final TypeElement type;
+		private final PackageElement typePackage;
+		private final String typeName;
+		private final List<FieldModel> fields;
+		private final Map<URI, String> namespaceConstants = new LinkedHashMap<>();
+		private final Map<List<Object>, String> tagConstants = new LinkedHashMap<>();
+		private final StringWriter constants = new StringWriter();
+		private final PrintWriter constantsOut = new PrintWriter(this.constants);
+
+		public BindingSource(TypeElement type, PackageElement typePackage, List<FieldModel> fields) {
+			this.type = type;
+			this.typePackage = typePackage;
+			this.typeName = erasure(type.asType()).toString();
+			this.fields = fields;
+		}
+
+		private String namespace(URI namespace) {
+			if (namespace == null) return "null";
+			return this.namespaceConstants.computeIfAbsent(namespace, n -> {
+				String constant = "NAMESPACE_" + this.namespaceConstants.size();
+				this.constantsOut.println("	private static final java.net.URI " + constant + " = java.net.URI.create(" + literal(n.toString()) + ");");
+				return constant;
+			});
+		}
+
+		private String tag(URI namespace, String name) {
+			List<Object> key = new ArrayList<>();
+			key.add(namespace);
+			key.add(name);
+			String existing = this.tagConstants.get(key);
+			if (existing != null) return existing;
+			String namespaceConstant = namespace(namespace);
+			String constant = "TAG_" + this.tagConstants.size();
+			this.constantsOut.println("	private static final de.m_marvin.basicxml.TagTemplate " + constant + " = new de.m_marvin.basicxml.TagTemplate(" + namespaceConstant + ", " + literal(name) + ", java.util.List.of());");
+			this.tagConstants.put(key, constant);
+			return constant;
+		}
+
+		/**
+		 * Returns the expression accessing the field of the object, which is cast to the declaring class in case an field of the super class is hidden
+		 */
+		private String access(FieldModel field) {
+			String target = field.declaringClass().equals(this.type) ? "object" : "((" + erasure(field.declaringClass().asType()) + ") object)";
+			return target + "." + field.field().getSimpleName();
+		}
+
+		private String fieldType(FieldModel field) {
+			return erasure(field.field().asType()).toString();
+		}
+
+		/**
+		 * Returns the expression converting the text to the value of the field
+		 */
+		private String parse(FieldModel field, String text) {
+			switch (field.inline()) {
+			case INT: return BINDINGS + ".parseInt(" + text + ")";
+			case SHORT: return BINDINGS + ".parseShort(" + text + ")";
+			case LONG: return BINDINGS + ".parseLong(" + text + ")";
+			case DOUBLE: return BINDINGS + ".parseDouble(" + text + ")";
+			case FLOAT: return BINDINGS + ".parseFloat(" + text + ")";
+			case BOOLEAN: return BINDINGS + ".parseBoolean(" + text + ")";
+			case STRING: return text + ".toString()";
+			case ENUM: return BINDINGS + ".enumConstant(" + fieldType(field) + ".class, " + text + ")";
+			default: throw new IllegalStateException("field is not an XML primitive: " + field.field());
+			}
+		}
+
+		/**
+		 * Returns the expression converting the value of an string or enum field to text
+		 */
+		private String string(FieldModel field, String value) {
+			return field.inline() == Inline.ENUM ? BINDINGS + ".enumString(" + fieldType(field) + ".class, " + value + ")" : value;
+		}
+
+		/**
+		 * Returns the name of the method of the stream writing the value of an java primitive field without converting it to an string
+		 */
+		private String primitiveWriter(FieldModel field) {
+			switch (field.inline()) {
+			case INT:
+			case SHORT: return "writeInt";
+			case LONG: return "writeLong";
+			case DOUBLE: return "writeDouble";
+			case FLOAT: return "writeFloat";
+			case BOOLEAN: return "writeBoolean";
+			default: throw new IllegalStateException("field is not an java primitive: " + field.field());
+			}
+		}
+
+		private void writeAccessor(PrintWriter out, int index, FieldModel field) {
+			TypeMirror fieldType = erasure(field.field().asType());
+			String valueType = fieldType.getKind().isPrimitive() ? processingEnv.getTypeUtils().boxedClass((PrimitiveType) fieldType).getQualifiedName().toString() : fieldType.toString();
+			String target = "((" + erasure(field.declaringClass().asType()) + ") object)." + field.field().getSimpleName();
+			out.println("	private static final " + FIELD_ACCESSOR + " ACCESSOR_" + index + " = new " + FIELD_ACCESSOR + "() {");
+			out.println("		@Override");
+			out.println("		public Object get(Object object) {");
+			out.println("			return " + target + ";");
+			out.println("		}");
+			out.println("		@Override");
+			out.println("		public void set(Object object, Object value) {");
+			out.println("			" + target + " = (" + valueType + ") value;");
+			out.println("		}");
+			String primitiveMethod = primitiveMethod(fieldType.getKind());
+			if (primitiveMethod != null) {
+				// short fields are read as int
+				String getterType = fieldType.getKind() == TypeKind.SHORT ? "int" : fieldType.toString();
+				String getterMethod = fieldType.getKind() == TypeKind.SHORT ? "Int" : primitiveMethod;
+				out.println("		@Override");
+				out.println("		public " + getterType + " get" + getterMethod + "(Object object) {");
+				out.println("			return " + target + ";");
+				out.println("		}");
+				out.println("		@Override");
+				out.println("		public void set" + primitiveMethod + "(Object object, " + fieldType + " value) {");
+				out.println("			" + target + " = value;");
+				out.println("		}");
+			}
+			out.println("	};");
+			out.println();
+		}
+
+		private String descriptor(int index, FieldModel field) throws SkipBinding {
+			String adapter = classLiteral(field.adapter(), this.typePackage);
+			String typeAdapter = classLiteral(field.typeAdapter(), this.typePackage);
+			String adapterParent = classLiteral(field.adapterParent(), this.typePackage);
+			String type = classLiteral(field.type(), this.typePackage);
+			return "new " + FIELD_DESCRIPTOR + "(" + classLiteral(field.declaringClass().asType(), this.typePackage) + ", " + literal(field.field().getSimpleName().toString()) + ", " +
+					"de.m_marvin.basicxml.marshaling.annotations.XMLField.FieldType." + field.kind() + ", " + literal(field.name()) + ", " +
+					literal(field.namespace() == null ? null : field.namespace().toString()) + ", " + (type == null ? "Void.class" : type) + ", " +
+					// the adapter classes might be raw types, which are not assignable to the wildcard type without an unchecked cast
+					(adapter == null ? "null" : "(Class) " + adapter) + ", " + (adapterParent == null ? "Void.class" : adapterParent) + ", " +
+					(typeAdapter == null ? "null" : "(Class) " + typeAdapter) + ", " + field.cdata() + ", " + (field.accessible() ? "ACCESSOR_" + index : "null") + ")";
+		}
+
+		/**
+		 * Writes the statements writing the element fields, in the order of the plan
+		 */
+		private void writeElements(PrintWriter out, List<Entry> plan, String indent) {
+			for (Entry element : plan) {
+				FieldModel field = this.fields.get(element.field());
+				String namespace = namespace(element.namespace());
+				if (element.isRemainingMap()) {
+					out.println(indent + "writer.writeElement(" + element.field() + ", " + namespace + ", null);");
+				} else if (field.inline() == Inline.NONE) {
+					out.println(indent + "writer.writeElement(" + element.field() + ", " + namespace + ", " + literal(element.name()) + ");");
+				} else if (field.inline() == Inline.OBJECT) {
+					out.println(indent + "{");
+					out.println(indent + "	" + fieldType(field) + " value = " + access(field) + ";");
+					out.println(indent + "	if (value != null) writer.writeObject(" + namespace + ", " + literal(element.name()) + ", value);");
+					out.println(indent + "}");
+				} else if (field.inline().isJavaPrimitive()) {
+					String tag = tag(element.namespace(), element.name());
+					out.println(indent + "stream.writeStartTag(de.m_marvin.basicxml.XMLStream.DescType.OPEN, " + tag + ");");
+					out.println(indent + "stream.finishStartTag();");
+					if (field.cdata())
+						out.println(indent + "stream.writeAllText(String.valueOf(" + access(field) + "), true);");
+					else
+						out.println(indent + "stream." + primitiveWriter(field) + "(" + access(field) + ");");
+					out.println(indent + "stream.writeEndTag(" + tag + ");");
+				} else {
+					String tag = tag(element.namespace(), element.name());
+					out.println(indent + "{");
+					out.println(indent + "	" + fieldType(field) + " value = " + access(field) + ";");
+					out.println(indent + "	if (value != null) {");
+					out.println(indent + "		stream.writeStartTag(de.m_marvin.basicxml.XMLStream.DescType.OPEN, " + tag + ");");
+					out.println(indent + "		stream.finishStartTag();");
+					out.println(indent + "		stream.writeAllText(" + string(field, "value") + ", " + field.cdata() + ");");
+					out.println(indent + "		stream.writeEndTag(" + tag + ");");
+					out.println(indent + "	}");
+					out.println(indent + "}");
+				}
+			}
+		}
+
+		/**
+		 * Returns the condition under which the element fields have content, which is always the case for fields other than remaining maps
+		 */
+		private String elementContent(List<Entry> plan) {
+			List<String> conditions = new ArrayList<>();
+			for (Entry element : plan) {
+				if (!element.isRemainingMap()) return "true";
+				conditions.add("writer.hasElements(" + element.field() + ")");
+			}
+			return conditions.isEmpty() ? null : String.join(" || ", conditions);
+		}
+
+		/**
+		 * Writes code which depends on the namespace setting, as one block if it is the same for both settings
+		 */
+		private void writeForNamespaces(PrintWriter out, String ignoringNamespaces, String withNamespaces, String indent) {
+			if (ignoringNamespaces.equals(withNamespaces)) {
+				out.print(withNamespaces);
+			} else {
+				out.println(indent + "if (writer.ignoreNamespaces()) {");
+				out.print(ignoringNamespaces.replaceAll("(?m)^", "\t"));
+				out.println(indent + "} else {");
+				out.print(withNamespaces.replaceAll("(?m)^", "\t"));
+				out.println(indent + "}");
+			}
+		}
+
+		private String elementsSource(List<Entry> plan) {
+			StringWriter source = new StringWriter();
+			PrintWriter out = new PrintWriter(source);
+			writeElements(out, plan, "		");
+			out.flush();
+			return source.toString();
+		}
+
+		private void writeWriteMethod(PrintWriter out, Map<String, Integer> attributes, List<String> attributeOrder, List<String> elementOrder) {
+			// the attributes are written in the order of the plan of the marshaler, the attribute names do not depend on the namespace setting
+			Map<String, Integer> attributePlan = new LinkedHashMap<>();
+			for (String attributeName : attributeOrder) {
+				if (attributeName.equals(TEXT_VALUE_FIELD)) continue;
+				Integer attributeField = attributes.get(attributeName);
+				if (attributeField != null) attributePlan.put(attributeName, attributeField);
+			}
+			for (Map.Entry<String, Integer> attribute : attributes.entrySet()) {
+				if (attribute.getKey().equals(TEXT_VALUE_FIELD)) continue;
+				attributePlan.putIfAbsent(attribute.getKey(), attribute.getValue());
+			}
+			List<Entry> ignoringNamespaces = elementPlan(elementMap(this.fields, true), elementOrder);
+			List<Entry> withNamespaces = elementPlan(elementMap(this.fields, false), elementOrder);
+			Integer textIndex = attributes.get(TEXT_VALUE_FIELD);
+			FieldModel textField = textIndex == null ? null : this.fields.get(textIndex);
+
+			out.println("	@Override");
+			out.println("	public void write(" + BINDING_WRITER + " writer, " + this.typeName + " object) throws java.io.IOException, de.m_marvin.basicxml.XMLException, de.m_marvin.basicxml.marshaling.XMLMarshalingException {");
+			out.println("		de.m_marvin.basicxml.XMLOutputStream stream = writer.stream();");
+			out.println("		de.m_marvin.basicxml.TagTemplate tagTemplate = writer.tagTemplate();");
+
+			// the text data is queried first, an element without text data and elements is written as self closing tag
+			List<String> content = new ArrayList<>();
+			if (textField != null) {
+				if (textField.inline() == Inline.NONE || textField.inline() == Inline.OBJECT) {
+					out.println("		Object text = writer.textValue(" + textIndex + ");");
+					content.add("text != null");
+				} else if (textField.inline().isJavaPrimitive() && !textField.cdata()) {
+					content.add("true");
+				} else if (textField.inline().isJavaPrimitive()) {
+					out.println("		String text = String.valueOf(" + access(textField) + ");");
+					content.add("true");
+				} else if (textField.inline() == Inline.STRING) {
+					out.println("		String text = " + access(textField) + ";");
+					content.add("text != null");
+				} else {
+					out.println("		" + fieldType(textField) + " textValue = " + access(textField) + ";");
+					out.println("		String text = textValue == null ? null : " + string(textField, "textValue") + ";");
+					content.add("text != null");
+				}
+			}
+			String ignoringContent = elementContent(ignoringNamespaces);
+			String withContent = elementContent(withNamespaces);
+			if (Objects.equals(ignoringContent, withContent)) {
+				if (withContent != null) content.add(withContent);
+			} else {
+				content.add("(writer.ignoreNamespaces() ? " + (ignoringContent == null ? "false" : ignoringContent) + " : " + (withContent == null ? "false" : withContent) + ")");
+			}
+			boolean alwaysOpen = content.contains("true");
+			if (alwaysOpen) {
+				out.println("		stream.writeStartTag(de.m_marvin.basicxml.XMLStream.DescType.OPEN, tagTemplate);");
+			} else if (content.isEmpty()) {
+				out.println("		stream.writeStartTag(de.m_marvin.basicxml.XMLStream.DescType.SELF_CLOSING, tagTemplate);");
+			} else {
+				out.println("		boolean selfClosing = !(" + String.join(" || ", content) + ");");
+				out.println("		stream.writeStartTag(selfClosing ? de.m_marvin.basicxml.XMLStream.DescType.SELF_CLOSING : de.m_marvin.basicxml.XMLStream.DescType.OPEN, tagTemplate);");
+			}
+
+			for (Map.Entry<String, Integer> attribute : attributePlan.entrySet()) {
+				FieldModel field = this.fields.get(attribute.getValue());
+				if (attribute.getKey().equals(REMAINING_MAP_FIELD)) {
+					out.println("		writer.writeAttribute(" + attribute.getValue() + ", null);");
+				} else if (field.inline() == Inline.NONE || field.inline() == Inline.OBJECT) {
+					out.println("		writer.writeAttribute(" + attribute.getValue() + ", " + literal(attribute.getKey()) + ");");
+				} else if (field.inline().isJavaPrimitive()) {
+					out.println("		stream.writeAttribute(" + literal(attribute.getKey()) + ", " + access(field) + ");");
+				} else {
+					out.println("		if (" + access(field) + " != null) stream.writeAttribute(" + literal(attribute.getKey()) + ", " + string(field, access(field)) + ");");
+				}
+			}
+			out.println("		stream.finishStartTag();");
+			if (content.isEmpty()) {
+				out.println("	}");
+				out.println();
+				return;
+			} else if (!alwaysOpen) {
+				out.println("		if (selfClosing) return;");
+			}
+
+			if (textField != null) {
+				if (textField.inline() == Inline.NONE || textField.inline() == Inline.OBJECT) {
+					out.println("		if (text != null) writer.writeText(" + textIndex + ", text);");
+				} else if (textField.inline().isJavaPrimitive() && !textField.cdata()) {
+					out.println("		stream." + primitiveWriter(textField) + "(" + access(textField) + ");");
+				} else if (textField.inline().isJavaPrimitive()) {
+					out.println("		stream.writeAllText(text, true);");
+				} else {
+					out.println("		if (text != null) stream.writeAllText(text, " + textField.cdata() + ");");
+				}
+			}
+
+			writeForNamespaces(out, elementsSource(ignoringNamespaces), elementsSource(withNamespaces), "		");
+			out.println("		stream.writeEndTag(tagTemplate);");
+			out.println("	}");
+			out.println();
+		}
+
+		private void writeReadMethod(PrintWriter out, Map<String, Integer> attributes) {
+			out.println("	@Override");
+			out.println("	public void read(" + BINDING_READER + " reader, " + this.typeName + " object) throws java.io.IOException, de.m_marvin.basicxml.XMLException, de.m_marvin.basicxml.marshaling.XMLMarshalingException {");
+
+			// the attributes are matched by their names only
+			List<Map.Entry<String, Integer>> attributeCases = new ArrayList<>();
+			for (Map.Entry<String, Integer> attribute : attributes.entrySet()) {
+				if (attribute.getKey().equals(TEXT_VALUE_FIELD) || attribute.getKey().equals(REMAINING_MAP_FIELD)) continue;
+				if (this.fields.get(attribute.getValue()).inline() != Inline.NONE && this.fields.get(attribute.getValue()).inline() != Inline.OBJECT) attributeCases.add(attribute);
+			}
+			out.println("		de.m_marvin.basicxml.Attributes attributes = reader.attributes();");
+			out.println("		for (int i = 0; i < attributes.size(); i++) {");
+			if (attributeCases.isEmpty()) {
+				out.println("			reader.readAttribute(attributes.name(i), attributes.value(i));");
+			} else {
+				out.println("			String name = attributes.name(i);");
+				out.println("			String value = attributes.value(i);");
+				out.println("			switch (name) {");
+				for (Map.Entry<String, Integer> attribute : attributeCases) {
+					FieldModel field = this.fields.get(attribute.getValue());
+					out.println("			case " + literal(attribute.getKey()) + ":");
+					// the attribute value is already an string
+					out.println("				" + access(field) + " = " + (field.inline() == Inline.STRING ? "value" : parse(field, "value")) + ";");
+					out.println("				break;");
+				}
+				out.println("			default:");
+				out.println("				reader.readAttribute(name, value);");
+				out.println("			}");
+			}
+			out.println("		}");
+
+			// an element is read by an field if the field is found for it with the namespace setting of the reader
+			Map<URI, Map<String, Integer>> ignoringNamespaces = elementMap(this.fields, true);
+			Map<URI, Map<String, Integer>> withNamespaces = elementMap(this.fields, false);
+			Map<String, List<String>> elementCases = new LinkedHashMap<>();
+			boolean usesIgnoreNamespaces = false;
+			for (int i = 0; i < this.fields.size(); i++) {
+				FieldModel field = this.fields.get(i);
+				if (!field.kind().equals("ELEMENT") || field.inline() == Inline.NONE) continue;
+				boolean ignoring = Objects.equals(get(ignoringNamespaces, null, field.name()), i);
+				boolean with = Objects.equals(get(withNamespaces, field.namespace(), field.name()), i);
+				String namespaceMatch = "java.util.Objects.equals(" + namespace(field.namespace()) + ", element.namespace())";
+				String condition;
+				if (ignoring && with) {
+					condition = "ignoreNamespaces || " + namespaceMatch;
+				} else if (ignoring) {
+					condition = "ignoreNamespaces";
+				} else if (with) {
+					condition = "!ignoreNamespaces && " + namespaceMatch;
+				} else {
+					continue;
+				}
+				usesIgnoreNamespaces = true;
+				String read = field.inline() == Inline.OBJECT ? "reader.readObject(" + fieldType(field) + ".class, element)" : parse(field, "reader.readText(element)");
+				List<String> cases = elementCases.computeIfAbsent(field.name(), n -> new ArrayList<>());
+				cases.add("				if (" + condition + ") {");
+				cases.add("					" + access(field) + " = " + read + ";");
+				cases.add("					continue;");
+				cases.add("				}");
+			}
+			if (usesIgnoreNamespaces)
+				out.println("		boolean ignoreNamespaces = reader.ignoreNamespaces();");
+			out.println("		de.m_marvin.basicxml.XMLStream.ElementDescriptor element;");
+			out.println("		while ((element = reader.nextElement()) != null) {");
+			if (!elementCases.isEmpty()) {
+				out.println("			switch (element.name()) {");
+				for (Map.Entry<String, List<String>> elementCase : elementCases.entrySet()) {
+					out.println("			case " + literal(elementCase.getKey()) + ":");
+					for (String line : elementCase.getValue()) out.println(line);
+					out.println("				break;");
+				}
+				out.println("			}");
+			}
+			out.println("			reader.readElement(element);");
+			out.println("		}");
+			out.println("		reader.finish();");
+			out.println("	}");
+			out.println();
+		}
+
+		/**
+		 * Returns the source code of the methods and fields of the binding class, without the constants which are collected while they are generated
+		 */
+		public String members() throws SkipBinding {
+			StringWriter source = new StringWriter();
+			PrintWriter out = new PrintWriter(source);
+
+			for (int i = 0; i < this.fields.size(); i++)
+				if (this.fields.get(i).accessible()) writeAccessor(out, i, this.fields.get(i));
+
+			out.println("	private static final java.util.List<" + FIELD_DESCRIPTOR + "> FIELDS = java.util.List.of(");
+			for (int i = 0; i < this.fields.size(); i++)
+				out.println("			" + descriptor(i, this.fields.get(i)) + (i < this.fields.size() - 1 ? "," : ""));
+			out.println("			);");
+			out.println();
+
+			List<TypeElement> subTypes = new ArrayList<>();
+			findSubTypes(this.type, subTypes);
+			List<String> subTypeLiterals = new ArrayList<>();
+			for (TypeElement subType : subTypes) subTypeLiterals.add(classLiteral(subType.asType(), this.typePackage));
+			out.println("	private static final java.util.List<Class<?>> SUB_TYPES = java.util.List.of(" + String.join(", ", subTypeLiterals) + ");");
+
+			AnnotationMirror xmlOrder = annotation(this.type, XML_ORDER);
+			List<String> attributeOrder = xmlOrder == null ? List.of() : stringValues(xmlOrder, "attributes");
+			List<String> elementOrder = xmlOrder == null ? List.of() : stringValues(xmlOrder, "elements");
+			out.println("	private static final java.util.List<String> ATTRIBUTE_ORDER = java.util.List.of(" + String.join(", ", attributeOrder.stream().map(XMLBindingProcessor::literal).toList()) + ");");
+			out.println("	private static final java.util.List<String> ELEMENT_ORDER = java.util.List.of(" + String.join(", ", elementOrder.stream().map(XMLBindingProcessor::literal).toList()) + ");");
+			out.println();
+
+			for (String method : new String[] { "List<" + FIELD_DESCRIPTOR + "> fields() {\n		return FIELDS;", "List<Class<?>> subTypes() {\n		return SUB_TYPES;",
+					"List<String> attributeOrder() {\n		return ATTRIBUTE_ORDER;", "List<String> elementOrder() {\n		return ELEMENT_ORDER;" }) {
+				out.println("	@Override");
+				out.println("	public java.util." + method);
+				out.println("	}");
+				out.println();
+			}
+
+			out.println("	@Override");
+			out.println("	public " + this.typeName + " construct(Object parentObject) {");
+			if (isStatic(this.type)) {
+				out.println("		return new " + this.typeName + "();");
+			} else {
+				String parentName = erasure(this.type.getEnclosingElement().asType()).toString();
+				out.println("		return ((" + parentName + ") parentObject).new " + this.type.getSimpleName() + "();");
+			}
+			out.println("	}");
+			out.println();
+
+			// the attribute fields by name, the last field declared with an name replaces the previous ones as in the marshaler
+			Map<String, Integer> attributes = new LinkedHashMap<>();
+			for (int i = 0; i < this.fields.size(); i++) {
+				switch (this.fields.get(i).kind()) {
+				case "ATTRIBUTE": attributes.put(this.fields.get(i).name(), i); break;
+				case "REMAINING_ATTRIBUTE_MAP": attributes.put(REMAINING_MAP_FIELD, i); break;
+				case "TEXT": attributes.put(TEXT_VALUE_FIELD, i); break;
+				default: break;
+				}
+			}
+			writeWriteMethod(out, attributes, attributeOrder, elementOrder);
+			writeReadMethod(out, attributes);
+
+			out.flush();
+			this.constantsOut.flush();
+			return source.toString();
+		}
+
+		public String constants() {
+			this.constantsOut.flush();
+			return this.constants.toString();
+		}
+
+	}
+
+	/**
+	 * Returns the name of the methods of the field accessor which access the primitive without boxing, or null if there are none
+	 */
+	private static String primitiveMethod(TypeKind kind) {
+		switch (kind) {
+		case INT: return "Int";
+		case LONG: return "Long";
+		case DOUBLE: return "Double";
+		case FLOAT: return "Float";
+		case BOOLEAN: return "Boolean";
+		case SHORT: return "Short";
+		default: return null;
+		}
+	}
+
+	private void writeBinding(TypeElement type, PackageElement typePackage) throws IOException, SkipBinding {
+		String packageName = typePackage.getQualifiedName().toString();
+		String binaryName = this.processingEnv.getElementUtils().getBinaryName(type).toString();
+		// the binary name of the type is unique, which makes the name of the binding unique as well
+		String bindingName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + CLASS_SUFFIX;
+
+		List<FieldModel> fields = new ArrayList<>();
+		findFields(type, typePackage, fields);
+		BindingSource source = new BindingSource(type, typePackage, fields);
+		// the members are generated before the file is created, since the type might still be skipped
+		String members = source.members();
+
+		try (PrintWriter out = new PrintWriter(this.processingEnv.getFiler().createSourceFile(packageName.isEmpty() ? bindingName : packageName + "." + bindingName, type).openWriter())) {
+			if (!packageName.isEmpty()) {
+				out.println("package " + packageName + ";");
+				out.println();
+			}
+			out.println("@javax.annotation.processing.Generated(\"" + XMLBindingProcessor.class.getName() + "\")");
+			out.println("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })");
+			out.println("public final class " + bindingName + " implements " + TYPE_BINDING + "<" + source.typeName + "> {");
+			out.println();
+			String constants = source.constants();
+			if (!constants.isEmpty()) {
+				out.print(constants);
+				out.println();
+			}
+			out.print(members);
+			out.println("}");
+		}
+	}
+
+}
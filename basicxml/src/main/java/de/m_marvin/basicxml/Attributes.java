@@ -0,0 +1,249 @@
+package de.m_marvin.basicxml;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Compact attribute storage used by the XML streams, holds the attribute names and values in two parallel arrays.<br>
+ * Lookups by name are done by an linear search, which for the small number of attributes an element usually has is faster than hashing.<br>
+ * The instance can be cleared and reused for the next element, and can still be viewed as an {@link Map} preserving the insertion order.
+ */
+public class Attributes extends AbstractMap<String, String> {
+
+	private static final int DEFAULT_CAPACITY = 8;
+
+	/** attribute names, only valid up to size */
+	private String[] names;
+	/** attribute values, only valid up to size */
+	private String[] values;
+	/** number of attributes stored */
+	private int size;
+	/** modification counter, used to detect modifications while iterating */
+	private int modCount;
+
+	public Attributes() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public Attributes(int capacity) {
+		this.names = new String[Math.max(capacity, 1)];
+		this.values = new String[Math.max(capacity, 1)];
+	}
+
+	public Attributes(Map<String, String> attributes) {
+		this(attributes.size());
+		putAll(attributes);
+	}
+
+	/**
+	 * Returns the index of the attribute with the given name, or -1 if there is no such attribute.
+	 */
+	public int indexOf(String name) {
+		for (int i = 0; i < this.size; i++)
+			if (this.names[i].equals(name)) return i;
+		return -1;
+	}
+
+	/**
+	 * Returns the name of the attribute at the given index.
+	 */
+	public String name(int index) {
+		Objects.checkIndex(index, this.size);
+		return this.names[index];
+	}
+
+	/**
+	 * Returns the value of the attribute at the given index.
+	 */
+	public String value(int index) {
+		Objects.checkIndex(index, this.size);
+		return this.values[index];
+	}
+
+	/**
+	 * Appends an attribute without checking if an attribute with the same name already exists.<br>
+	 * Used by the streams if the names are already known to be unique.
+	 */
+	public void add(String name, String value) {
+		Objects.requireNonNull(name, "attribute name can not be null");
+		if (this.size == this.names.length) {
+			this.names = Arrays.copyOf(this.names, this.size * 2);
+			this.values = Arrays.copyOf(this.values, this.size * 2);
+		}
+		this.names[this.size] = name;
+		this.values[this.size] = value;
+		this.size++;
+		this.modCount++;
+	}
+
+	/**
+	 * Removes the attribute at the given index, shifting all following attributes.
+	 */
+	public String remove(int index) {
+		Objects.checkIndex(index, this.size);
+		String value = this.values[index];
+		System.arraycopy(this.names, index + 1, this.names, index, this.size - index - 1);
+		System.arraycopy(this.values, index + 1, this.values, index, this.size - index - 1);
+		this.size--;
+		this.names[this.size] = null;
+		this.values[this.size] = null;
+		this.modCount++;
+		return value;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return key instanceof String name && indexOf(name) >= 0;
+	}
+
+	@Override
+	public String get(Object key) {
+		if (!(key instanceof String name)) return null;
+		int i = indexOf(name);
+		return i < 0 ? null : this.values[i];
+	}
+
+	@Override
+	public String put(String key, String value) {
+		int i = indexOf(key);
+		if (i >= 0) {
+			String previous = this.values[i];
+			this.values[i] = value;
+			return previous;
+		}
+		add(key, value);
+		return null;
+	}
+
+	@Override
+	public String remove(Object key) {
+		if (!(key instanceof String name)) return null;
+		int i = indexOf(name);
+		return i < 0 ? null : remove(i);
+	}
+
+	/**
+	 * Removes all attributes, the capacity of the arrays is kept for reuse.
+	 */
+	@Override
+	public void clear() {
+		Arrays.fill(this.names, 0, this.size, null);
+		Arrays.fill(this.values, 0, this.size, null);
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Set<Entry<String, String>> entrySet() {
+		return new AbstractSet<Entry<String,String>>() {
+
+			@Override
+			public int size() {
+				return Attributes.this.size;
+			}
+
+			@Override
+			public void clear() {
+				Attributes.this.clear();
+			}
+
+			@Override
+			public Iterator<Entry<String, String>> iterator() {
+				return new Iterator<Entry<String,String>>() {
+
+					private int index = 0;
+					private int last = -1;
+					private int expectedModCount = Attributes.this.modCount;
+
+					@Override
+					public boolean hasNext() {
+						return this.index < Attributes.this.size;
+					}
+
+					@Override
+					public Entry<String, String> next() {
+						if (Attributes.this.modCount != this.expectedModCount) throw new ConcurrentModificationException();
+						if (this.index >= Attributes.this.size) throw new NoSuchElementException();
+						this.last = this.index++;
+						return new AttributeEntry(this.last);
+					}
+
+					@Override
+					public void remove() {
+						if (this.last < 0) throw new IllegalStateException();
+						if (Attributes.this.modCount != this.expectedModCount) throw new ConcurrentModificationException();
+						Attributes.this.remove(this.last);
+						this.index = this.last;
+						this.last = -1;
+						this.expectedModCount = Attributes.this.modCount;
+					}
+
+				};
+			}
+
+		};
+	}
+
+	/**
+	 * Map entry view of an attribute, writes through to the arrays
+	 */
+	private class AttributeEntry implements Entry<String, String> {
+
+		private final int index;
+
+		public AttributeEntry(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public String getKey() {
+			return Attributes.this.names[this.index];
+		}
+
+		@Override
+		public String getValue() {
+			return Attributes.this.values[this.index];
+		}
+
+		@Override
+		public String setValue(String value) {
+			String previous = Attributes.this.values[this.index];
+			Attributes.this.values[this.index] = value;
+			return previous;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Entry<?, ?> e && Objects.equals(e.getKey(), getKey()) && Objects.equals(e.getValue(), getValue());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+
+	}
+
+}
@@ -0,0 +1,78 @@
+package de.m_marvin.basicxml;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Pre-formatted parts of an element tag, used to write many elements with the same name and attribute names.<br>
+ * The attribute names are formatted in advance, the element name is cached together with the prefix of its namespace,
+ * for the namespace scope it was last written in. If the element is written in an scope in which the namespace could have an other prefix, the name is formatted again.<br>
+ * Templates can be shared between streams and threads.
+ */
+public final class TagTemplate {
+
+	/** the element name with namespace prefix, valid in the namespace scope with the id */
+	private static record ScopedName(long scopeId, char[] chars) {}
+
+	private final URI namespace;
+	private final String name;
+	/** the element name without prefix, used if the element has no namespace */
+	private final char[] localName;
+	private final String[] attributeNames;
+	/** the characters preceding the attribute values, in the order of the attribute names */
+	private final char[][] attributeFragments;
+	private volatile ScopedName qualifiedName = null;
+
+	/**
+	 * Creates an template for element tags
+	 * @param namespace The namespace of the element, or null if the element has no namespace
+	 * @param name The name of the element
+	 * @param attributeNames The names of the attributes written to the element, other attributes can be written too but are not pre-formatted
+	 */
+	public TagTemplate(URI namespace, String name, Collection<String> attributeNames) {
+		this.namespace = namespace;
+		this.name = Objects.requireNonNull(name, "name can not be null");
+		this.localName = name.toCharArray();
+		this.attributeNames = attributeNames.toArray(String[]::new);
+		this.attributeFragments = new char[this.attributeNames.length][];
+		for (int i = 0; i < this.attributeNames.length; i++)
+			this.attributeFragments[i] = (" " + this.attributeNames[i] + "=\"").toCharArray();
+	}
+
+	public URI namespace() {
+		return this.namespace;
+	}
+
+	public String name() {
+		return this.name;
+	}
+
+	/**
+	 * Returns the element name with prefix, if it is cached for the namespace scope, or the name if the element has no namespace
+	 */
+	char[] qualifiedName(long scopeId) {
+		if (this.namespace == null) return this.localName;
+		ScopedName qualifiedName = this.qualifiedName;
+		return qualifiedName != null && qualifiedName.scopeId() == scopeId ? qualifiedName.chars() : null;
+	}
+
+	/**
+	 * Formats the element name with the prefix and caches it for the namespace scope
+	 */
+	char[] cacheQualifiedName(long scopeId, String prefix) {
+		char[] chars = prefix.isEmpty() ? this.localName : (prefix + ":" + this.name).toCharArray();
+		this.qualifiedName = new ScopedName(scopeId, chars);
+		return chars;
+	}
+
+	/**
+	 * Returns the characters preceding the value of the attribute, or null if it is not part of the template
+	 */
+	char[] attributeFragment(String name) {
+		for (int i = 0; i < this.attributeNames.length; i++)
+			if (this.attributeNames[i] == name || this.attributeNames[i].equals(name)) return this.attributeFragments[i];
+		return null;
+	}
+
+}
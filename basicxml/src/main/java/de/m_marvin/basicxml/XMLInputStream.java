@@ -11,7 +11,6 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.regex.Matcher;
@@ -44,6 +43,8 @@ public class XMLInputStream implements XMLStream, AutoCloseable {
 	private final StackList<TagEntry> stack = new StackList<TagEntry>();
 	/** the namespaces defined inside the element the parser is currently reading from */
 	private Map<String, URI> namespaces = new HashMap<>();
+	/** attribute storage, reused for every element descriptor returned by this stream */
+	private final Attributes attributes = new Attributes();
 	
 	public XMLInputStream(InputStream stream) throws IOException {
 		Objects.requireNonNull(stream, "XML data stream can not be null");
@@ -80,8 +81,8 @@ public class XMLInputStream implements XMLStream, AutoCloseable {
 			int n = blen - this.buffer.length();
 			if (this.reader != null) {
 				char[] c = new char[n];
-				int r = this.reader.read(c);
-				if (r == -1) r = 0;
+				int r = 0;
+				for (int i = 0; r < n && (i = this.reader.read(c, r, n - r)) >= 0; r += i);
 				this.buffer.append(c, 0, r);
 				if (r < n) throw new EOFException("unexpected EOF");
 			} else {
@@ -118,6 +119,22 @@ public class XMLInputStream implements XMLStream, AutoCloseable {
 		return this.buffer.substring(0, len);
 	}
 	
+	/**
+	 * Check if the character buffer starts with the sequence, returns false if the source ends before the sequence could be read
+	 */
+	private boolean lookingAt(String sequence) throws IOException {
+		if (this.buffer.length() < sequence.length()) {
+			try {
+				bufferData(sequence.length());
+			} catch (EOFException e) {
+				return false;
+			}
+		}
+		for (int i = 0; i < sequence.length(); i++)
+			if (this.buffer.charAt(i) != sequence.charAt(i)) return false;
+		return true;
+	}
+	
 	/**
 	 * Delete the requested number of characters from the character buffer
 	 */
@@ -244,7 +261,8 @@ public class XMLInputStream implements XMLStream, AutoCloseable {
 		if (selfClosing) namespaces = new HashMap<String, URI>(this.namespaces);
 		
 		// parse attributes if not a closing tag
-		Map<String, String> attributeMap = new LinkedHashMap<String, String>();
+		Attributes attributeMap = this.attributes;
+		attributeMap.clear();
 		if (!closing) {
 			String attributeStr = elementStr.substring(elementName.end());
 			Matcher attributes = ATTRIBUTE.matcher(attributeStr);
@@ -288,7 +306,8 @@ public class XMLInputStream implements XMLStream, AutoCloseable {
 	
 	/**
 	 * Reads the next tag element from the stream and returns an element descriptor for it.<br>
-	 * If there is text data that has to be read before the next element, or there are no more elements, this method will return null.
+	 * If there is text data that has to be read before the next element, or there are no more elements, this method will return null.<br>
+	 * NOTE: The attribute map of the returned descriptor is reused by this stream and only valid until the next call of this method, it has to be copied if it is required afterwards.
 	 * @return An element descriptor describing the next tag element or null if there are no more elements or text data has to be read first
 	 * @throws IOException If an IO exception occurred while accessing the source stream
 	 * @throws XMLException If an exception occurred while parsing the XML content
@@ -316,10 +335,10 @@ public class XMLInputStream implements XMLStream, AutoCloseable {
 		}
 		
 		// check for CDATA block
-		if (readN(9).equals("<![CDATA[")) return null;
+		if (lookingAt("<![CDATA[")) return null;
 		
 		// check for comment block and skip
-		while (readN(4).equals("<!--")) {
+		while (lookingAt("<!--")) {
 			int s = 6;
 			while (!readN(s).endsWith("-->")) s++;
 			deleteN(s);
@@ -331,6 +350,7 @@ public class XMLInputStream implements XMLStream, AutoCloseable {
 		}
 		
 		this.textParsing = false;
+		this.pendingLowSurrogate = 0;
 		
 		// read and parse element tag
 		if (readAt(0) == '<') {
@@ -345,19 +365,71 @@ public class XMLInputStream implements XMLStream, AutoCloseable {
 		return null;
 	}
 	
+	/** maximum length of an character reference, including the leading ampersand */
+	private static final int MAX_REFERENCE_LENGTH = 10;
+	
+	/**
+	 * Decodes the character reference between the ampersand and semicolon, and returns its code point or -1 if it is not an valid reference.
+	 */
+	protected static int decodeReference(CharSequence text, int start, int end) {
+		int len = end - start;
+		if (len < 2) return -1;
+		if (text.charAt(start) == '#') {
+			boolean hex = text.charAt(start + 1) == 'x';
+			int codePoint = 0;
+			for (int i = start + (hex ? 2 : 1); i < end; i++) {
+				int d = Character.digit(text.charAt(i), hex ? 16 : 10);
+				if (d < 0) return -1;
+				codePoint = codePoint * (hex ? 16 : 10) + d;
+				if (codePoint > Character.MAX_CODE_POINT) return -1;
+			}
+			return end - start > (hex ? 2 : 1) ? codePoint : -1;
+		}
+		switch (len) {
+		case 2:
+			if (text.charAt(start + 1) != 't') return -1;
+			if (text.charAt(start) == 'l') return '<';
+			if (text.charAt(start) == 'g') return '>';
+			return -1;
+		case 3:
+			if (text.charAt(start) == 'a' && text.charAt(start + 1) == 'm' && text.charAt(start + 2) == 'p') return '&';
+			return -1;
+		case 4:
+			if (text.charAt(start) == 'a' && text.charAt(start + 1) == 'p' && text.charAt(start + 2) == 'o' && text.charAt(start + 3) == 's') return '\'';
+			if (text.charAt(start) == 'q' && text.charAt(start + 1) == 'u' && text.charAt(start + 2) == 'o' && text.charAt(start + 3) == 't') return '"';
+			return -1;
+		default:
+			return -1;
+		}
+	}
+	
 	protected static String fillSpecialCharacters(String text) {
-		text = text.replaceAll("&lt;", "<");
-		text = text.replaceAll("&gt;", ">");
-		text = text.replaceAll("&amp;", "&");
-		text = text.replaceAll("&apos;", "'");
-		text = text.replaceAll("&quot;", "\"");
-		return text;
+		int f = text.indexOf('&');
+		if (f < 0) return text;
+		StringBuilder buffer = new StringBuilder(text.length());
+		buffer.append(text, 0, f);
+		for (int i = f; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '&') {
+				int e = text.indexOf(';', i);
+				int codePoint = e > i && e - i < MAX_REFERENCE_LENGTH ? decodeReference(text, i + 1, e) : -1;
+				if (codePoint >= 0) {
+					buffer.appendCodePoint(codePoint);
+					i = e;
+					continue;
+				}
+			}
+			buffer.append(c);
+		}
+		return buffer.toString();
 	}
 	
 	/** if the parser is currently parsing an CDATA block */
 	private boolean cdataParsing = false;
 	/** if a text section is currently being read **/
 	private boolean textParsing = false;
+	/** the low surrogate of an character reference which did not fit into the previous char buffer, 0 if none **/
+	private char pendingLowSurrogate = 0;
 	
 	/**
 	 * Reads text data from within the currently open element.<br>
@@ -378,6 +450,12 @@ public class XMLInputStream implements XMLStream, AutoCloseable {
 
 		int p = 0;
 		
+		// the second half of an surrogate pair which was split over the previous call
+		if (this.pendingLowSurrogate != 0 && len > 0) {
+			cbuf[off + p++] = this.pendingLowSurrogate;
+			this.pendingLowSurrogate = 0;
+		}
+		
 		try {
 			
 			// skip leading white spaces if first time reading text in this element
@@ -389,30 +467,48 @@ public class XMLInputStream implements XMLStream, AutoCloseable {
 			
 			// check if char buffer full or end of text reached, if not, continue
 			int lastCData = 0;
-			while (p < len && (cdataParsing || readAt(0) != '<' || readN(9).equals("<![CDATA["))) {
+			while (p < len && (cdataParsing || readAt(0) != '<' || lookingAt("<![CDATA["))) {
 
-				// find start of next tag or CDATA block or end of CDATA block
 				int i = 0;
 				if (!cdataParsing) {
-					while (readAt(i) != '<' && i < len) i++;
+					// copy text up to the next tag or until the char buffer is full, decoding character references on the fly
+					char c;
+					while (p < len && (c = readAt(i)) != '<') {
+						if (c == '&') {
+							int e = i + 1;
+							while (e - i < MAX_REFERENCE_LENGTH && readAt(e) != ';' && readAt(e) != '<') e++;
+							int codePoint = readAt(e) == ';' ? decodeReference(this.buffer, i + 1, e) : -1;
+							if (codePoint >= 0) {
+								if (Character.charCount(codePoint) > len - p) {
+									// keep the reference in the buffer if the decoded characters do not fit anymore
+									if (p > 0) {
+										deleteN(i);
+										return p;
+									}
+									// the buffer can only hold the high surrogate, the low surrogate is returned by the next call
+									cbuf[off + p++] = Character.highSurrogate(codePoint);
+									this.pendingLowSurrogate = Character.lowSurrogate(codePoint);
+									i = e + 1;
+									continue;
+								}
+								p += Character.toChars(codePoint, cbuf, off + p);
+								i = e + 1;
+								continue;
+							}
+						}
+						cbuf[off + p++] = c;
+						i++;
+					}
 				} else {
-					// make sure to read 2 more characters than len, to prevent a cut of end sequence from being interpreted as text
-					while (!readN(i + 3).endsWith("]]>") && i < len) i++;
-				}
-				
-				// copy text up to that to fill up char buffer
-				String text = readN(i);
-				if (!cdataParsing) {
-					// if not parsing CDATA block, replace character codes
-					text = fillSpecialCharacters(text);
+					// copy text up to the end of the CDATA block or until the char buffer is full
+					while (i < len - p && !(readAt(i) == ']' && readAt(i + 1) == ']' && readAt(i + 2) == '>')) i++;
+					this.buffer.getChars(0, i, cbuf, off + p);
+					p += i;
 				}
-				int i1 = Math.min(len - p, text.length());
-				text.getChars(0, i1, cbuf, off + p);
 				deleteN(i);
-				p += i1;
-
+				
 				// check for comment block and skip
-				if (!cdataParsing && readN(4).equals("<!--")) {
+				if (!cdataParsing && lookingAt("<!--")) {
 					int s = 6;
 					while (!readN(s).endsWith("-->")) s++;
 					deleteN(s);
@@ -420,12 +516,12 @@ public class XMLInputStream implements XMLStream, AutoCloseable {
 				
 				// check if start or end of CDATA block
 				if (!cdataParsing) {
-					if (i <= len && readN(9).equals("<![CDATA[")) {
+					if (i <= len && lookingAt("<![CDATA[")) {
 						deleteN(9);
 						cdataParsing = true;
 					}
 				} else {
-					if (i <= len && readN(3).equals("]]>")) {
+					if (i <= len && lookingAt("]]>")) {
 						deleteN(3);
 						cdataParsing = false;
 						// update end of last CDATA block
@@ -445,7 +541,7 @@ public class XMLInputStream implements XMLStream, AutoCloseable {
 			if (firstTrailing < p && p == len) {
 				for (int i = 0; true; i++) {
 					if (Character.isWhitespace(readAt(i))) continue;
-					if (readAt(i) == '<' && !readN(9).equals("<![CDATA[")) break;
+					if (readAt(i) == '<' && !lookingAt("<![CDATA[")) break;
 					noFurtherText = false;
 					break;
 				}
@@ -474,11 +570,78 @@ public class XMLInputStream implements XMLStream, AutoCloseable {
 	 */
 	public String readAllText() throws IOException {
 		StringBuffer buffer = new StringBuffer();
-		char[] buf = new char[4];
+		char[] buf = new char[256];
 		int r = 0;
-		while ((r = readText(buf, 0, 4)) > 0)
+		while ((r = readText(buf, 0, buf.length)) > 0)
 			buffer.append(buf, 0, r);
-		return r == -1 ? null : fillSpecialCharacters(buffer.toString());
+		return r == -1 ? null : buffer.toString();
+	}
+	
+	/** reusable text window for reading text data without creating strings */
+	private final StringBuilder textWindow = new StringBuilder();
+	/** reusable character buffer for copying text data into the text window */
+	private final char[] textChunk = new char[256];
+	
+	/**
+	 * Reads all text data available from within the currently open element into the text window of this stream, without creating an string.<br>
+	 * All available text has to be read before the next element can be read.<br>
+	 * NOTE: The text window is reused by this stream and only valid until the next call of this method.<br>
+	 * NOTE: Leading and trailing white spaces outside of CDATA blocks, including new-line's will be discarded.
+	 * @param append If the text data should be appended to the current content of the text window, instead of replacing it
+	 * @return The text window containing the text data or null if EOF was reached
+	 * @throws IOException If an IO exception occurred while accessing the source stream
+	 */
+	public CharSequence readAllTextWindow(boolean append) throws IOException {
+		if (!append) this.textWindow.setLength(0);
+		int r = 0;
+		while ((r = readText(this.textChunk, 0, this.textChunk.length)) > 0)
+			this.textWindow.append(this.textChunk, 0, r);
+		return r == -1 ? null : this.textWindow;
+	}
+	
+	/**
+	 * Opens an reader which streams the text data of the currently open element, without collecting it in memory first.<br>
+	 * Character references are decoded and CDATA blocks are unpacked while reading, tag elements nested within the element are skipped.<br>
+	 * The reader reaches EOF when the closing tag of the element was read, after which reading can continue with {@link #readNext()}.<br>
+	 * Closing the reader skips any remaining content of the element, it does not close this stream.<br>
+	 * NOTE: Leading and trailing white spaces outside of CDATA blocks, including new-line's will be discarded.
+	 * @return An reader for the text content of the currently open element
+	 */
+	public Reader openTextReader() {
+		final int depth = this.stack.size();
+		return new Reader() {
+			
+			private boolean eof = false;
+			
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException {
+				Objects.checkFromIndexSize(off, len, cbuf.length);
+				if (this.eof) return -1;
+				if (len == 0) return 0;
+				try {
+					while (true) {
+						int r = readText(cbuf, off, len);
+						if (r > 0) return r;
+						if (r < 0) throw new EOFException("unexpected EOF");
+						
+						// no more text before the next tag, skip tags until the element is closed
+						if (readNext() != null && stack.size() < depth) {
+							this.eof = true;
+							return -1;
+						}
+					}
+				} catch (XMLException e) {
+					throw new IOException("error while reading element text", e);
+				}
+			}
+			
+			@Override
+			public void close() throws IOException {
+				char[] buf = new char[256];
+				while (read(buf, 0, buf.length) >= 0);
+			}
+			
+		};
 	}
 	
 	@Override
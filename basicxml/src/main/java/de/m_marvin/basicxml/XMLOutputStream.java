@@ -1,46 +1,116 @@
 package de.m_marvin.basicxml;
 
+import java.io.CharArrayWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.UnsupportedEncodingException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.net.URI;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
+import de.m_marvin.basicxml.internal.AsyncOutputStream;
+import de.m_marvin.basicxml.internal.ByteOutputBuffer;
+import de.m_marvin.basicxml.internal.CharOutputBuffer;
+import de.m_marvin.basicxml.internal.FragmentOutputStream;
+import de.m_marvin.basicxml.internal.OutputBuffer;
 import de.m_marvin.basicxml.internal.StackList;
 
 public class XMLOutputStream implements XMLStream, AutoCloseable {
 
-	/** output stream for XML character data */
+	/** output stream for XML character data, null if writing to an channel */
 	private final OutputStream stream;
-	/** source XML reader for character data, null until XML version and charset configured or defaulting back to XML 1.0 and URF-8 */
-	private Writer writer;
+	/** output channel for XML character data, null if writing to an stream */
+	private final WritableByteChannel channel;
+	/** buffer in which the XML data is encoded before it is written in large blocks, null until XML version and charset configured or defaulting back to XML 1.0 and URF-8 */
+	private OutputBuffer buffer;
 	/** XML version string for prolog entry */
 	private String version = null;
 	/** character encoding for prolog entry */
 	private String encoding = null;
+	/** if characters which can not be represented by the encoding should be written as numeric character references */
+	private boolean escapeUnmappableCharacters = false;
+	/** maximum number of buffers waiting to be written by the background thread, 0 if writing synchronously */
+	private int asyncQueueDepth = 0;
+	/** the executor running the background writes, null for the default executor */
+	private Executor asyncExecutor = null;
 	
-	private static record TagEntry(String name, Map<URI, String> previousNamespaces) {}
+	private static record TagEntry(String name, Map<URI, String> previousNamespaces, Map<String, URI> previousPrefixes, boolean previousNamespacesOwned, long previousScopeId) {}
+	
+	/** source of the namespace scope ids, unique over all streams */
+	private static final AtomicLong SCOPE_IDS = new AtomicLong();
 	
 	private final boolean prettyPrinting;
 	/** tag element stack, contains the "path" to the current element the parser is writing to */
 	private final StackList<TagEntry> stack = new StackList<TagEntry>();
-	/** the namespaces defined inside the element the parser is currently reading from */
+	/** the namespaces defined inside the element the parser is currently writing to */
 	private Map<URI, String> namespaces = new HashMap<>();
+	/** the prefixes of the namespaces defined inside the element the parser is currently writing to, the inverse of the namespace map */
+	private Map<String, URI> prefixes = new HashMap<>();
+	/** true if the namespace maps belong to the current element, otherwise they are shared with the parent element and have to be copied before declaring an namespace */
+	private boolean namespacesOwned = true;
+	/** id of the namespace maps, changes whenever the maps are replaced, so that prefixes cached for an scope can be validated */
+	private long scopeId = SCOPE_IDS.incrementAndGet();
+	/** the prefix assigned to each namespace in the document, reused if the namespace has to be declared again in an other element */
+	private final Map<URI, String> namespacePrefixes = new HashMap<>();
+	/** counter for the prefixes of the default namespace id provider */
+	private int namespaceCounter = 0;
+	/** namespaces to declare on the next opened element */
+	private final Set<URI> pendingNamespaces = new LinkedHashSet<>();
+	/** declarations of the pending namespaces, reused for every element */
+	private final Attributes namespaceDeclarations = new Attributes();
 	
 	@FunctionalInterface
 	public static interface NamespaceIdProvider {
 		public String provide(URI namespace, Map<URI, String> namespaces);
 	}
 	
-	/** supplier for the id's used when declaring the namespaces in the XML file */
+	/** initial buffer size of fragments */
+	private static final int FRAGMENT_CAPACITY = 8192;
+	
+	/** supplier for the id's used when declaring the namespaces in the XML file, null if the default ids are used */
 	private final NamespaceIdProvider namespaceIdProvider;
 	/** true if only single line text was written to the currently open element */
 	private boolean singleLineText = true;
+	/** type of the element tag which is currently written, attributes can be added until it is finished, null if no tag is being written */
+	private DescType tagType = null;
+	/** namespace of the element tag which is currently written */
+	private URI tagNamespace = null;
+	/** name of the attribute declaring the namespace of the element tag which is currently written, null if not declared on this element */
+	private String tagDeclaration = null;
+	/** additional namespace declarations of the element tag which is currently written, null if none */
+	private Attributes tagDeclarations = null;
+	/** template of the element tag which is currently written, null if none */
+	private TagTemplate tagTemplate = null;
+	/** the text writer which is currently open, no other data can be written until it is closed, null if none */
+	private Writer textWriter = null;
+	
+	/** the stream which created this fragment, null if this stream is not an fragment */
+	private final XMLOutputStream parent;
+	/** collects the XML data of an fragment for UTF-8 and ASCII encoding, null if not an fragment */
+	private final FragmentOutputStream fragmentBytes;
+	/** collects the XML data of an fragment for all other encodings, null if not an fragment */
+	private final CharArrayWriter fragmentChars;
+	/** depth of the element in the parent stream at which the fragment is inserted */
+	private final int fragmentDepth;
+	/** path of the element in the parent stream at which the fragment is inserted */
+	private final String fragmentPath;
 
 	public XMLOutputStream(OutputStream stream) {
 		this(stream, true);
@@ -51,33 +121,96 @@ public class XMLOutputStream implements XMLStream, AutoCloseable {
 	}
 	
 	public XMLOutputStream(OutputStream stream, boolean prettyPrinting, NamespaceIdProvider namespaceIdProvider) {
-		Objects.requireNonNull(stream, "XML data stream can not be null");
+		this(Objects.requireNonNull(stream, "XML data stream can not be null"), null, null, prettyPrinting, namespaceIdProvider);
+	}
+	
+	/**
+	 * Creates an XML stream writing to the channel.<br>
+	 * For UTF-8 and ASCII encoding the XML data is encoded directly into byte buffers, which are written to the channel without further copying.
+	 * @param channel The channel to write the XML data to, for example an {@link java.nio.channels.FileChannel}
+	 */
+	public XMLOutputStream(WritableByteChannel channel) {
+		this(channel, true);
+	}
+	
+	public XMLOutputStream(WritableByteChannel channel, boolean prettyPrinting) {
+		this(channel, prettyPrinting, null);
+	}
+	
+	public XMLOutputStream(WritableByteChannel channel, boolean prettyPrinting, NamespaceIdProvider namespaceIdProvider) {
+		this(null, Objects.requireNonNull(channel, "XML data channel can not be null"), null, prettyPrinting, namespaceIdProvider);
+	}
+	
+	private XMLOutputStream(OutputStream stream, WritableByteChannel channel, XMLOutputStream parent, boolean prettyPrinting, NamespaceIdProvider namespaceIdProvider) {
 		this.stream = stream;
+		this.channel = channel;
+		this.parent = parent;
 		this.prettyPrinting = prettyPrinting;
-		if (namespaceIdProvider == null) {
-			this.namespaceIdProvider = (url, namespaces) -> {
-				if (namespaces.isEmpty()) return "";
-				// make random alphanumeric id for namespace
-				String id;
-				do {
-					id = Integer.toHexString(Long.hashCode(System.nanoTime())).substring(0, 4);
-				} while (namespaces.containsValue(id));
-				return id;
-			};
+		this.namespaceIdProvider = namespaceIdProvider;
+		if (parent == null) {
+			this.fragmentBytes = null;
+			this.fragmentChars = null;
+			this.fragmentDepth = 0;
+			this.fragmentPath = null;
+			return;
+		}
+		
+		// fragments continue in the namespace scope of the parent, as if they where written by it
+		this.fragmentDepth = parent.fragmentDepth + parent.stack.size();
+		this.fragmentPath = parent.xmlStackPath();
+		this.namespaces = new HashMap<>(parent.namespaces);
+		this.prefixes = new HashMap<>(parent.prefixes);
+		// the copied maps are the same scope as the maps of the parent, so the prefixes cached by the tag templates stay valid
+		// the maps are treated as not owned, so that the first namespace declared by the fragment starts an new scope
+		this.scopeId = parent.scopeId;
+		this.namespacesOwned = false;
+		this.namespacePrefixes.putAll(parent.namespacePrefixes);
+		this.namespaceCounter = parent.namespaceCounter;
+		this.version = parent.version;
+		this.encoding = parent.encoding;
+		this.escapeUnmappableCharacters = parent.escapeUnmappableCharacters;
+		
+		// fragments are encoded the same way as the parent, so they can be copied into it without further processing
+		if (parent.buffer instanceof ByteOutputBuffer parentBuffer) {
+			this.fragmentBytes = new FragmentOutputStream(FRAGMENT_CAPACITY);
+			this.fragmentChars = null;
+			this.buffer = new ByteOutputBuffer(this.fragmentBytes, null, parentBuffer.isAscii(), FRAGMENT_CAPACITY);
 		} else {
-			this.namespaceIdProvider = namespaceIdProvider;
+			this.fragmentBytes = null;
+			this.fragmentChars = new CharArrayWriter(FRAGMENT_CAPACITY);
+			this.buffer = new CharOutputBuffer(this.fragmentChars, FRAGMENT_CAPACITY);
 		}
+		CharsetEncoder encoder = parent.buffer.getEncoder();
+		if (encoder != null)
+			this.buffer.setEncoder(encoder.charset().newEncoder());
 	}
 	
 	@Override
 	public void close() throws IOException {
-		this.writer.close();
-		this.stream.close();
+		if (this.buffer != null)
+			this.buffer.close();
+		else if (this.stream != null)
+			this.stream.close();
+		else
+			this.channel.close();
+	}
+	
+	/**
+	 * Writes all buffered XML data to the underlying stream and flushes it.
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		if (this.buffer != null)
+			this.buffer.flush();
+		else if (this.stream != null)
+			this.stream.flush();
 	}
 
 	@Override
 	public String xmlStackPath() {
-		return this.stack.stream().map(TagEntry::name).reduce((a, b) -> a + "." + b).orElse("");
+		String path = this.stack.stream().map(TagEntry::name).reduce((a, b) -> a + "." + b).orElse("");
+		if (this.fragmentPath == null || this.fragmentPath.isEmpty()) return path;
+		return path.isEmpty() ? this.fragmentPath : this.fragmentPath + "." + path;
 	}
 	
 	/**
@@ -87,7 +220,7 @@ public class XMLOutputStream implements XMLStream, AutoCloseable {
 	 * @param encoding The XML version to write into the XML file
 	 */
 	public void setVersion(String version) {
-		if (this.writer != null) return;
+		if (this.buffer != null) return;
 		this.version = version;
 	}
 	
@@ -97,37 +230,97 @@ public class XMLOutputStream implements XMLStream, AutoCloseable {
 	 * @param encoding The name of the character encoding to use
 	 */
 	public void setEncoding(String encoding) {
-		if (this.writer != null) return;
+		if (this.buffer != null) return;
 		this.encoding = encoding;
 	}
 	
+	/**
+	 * Sets if characters which can not be represented by the character encoding should be written as numeric character references.<br>
+	 * If disabled (the default), these characters are replaced by the encoder, which usually writes an question mark instead.<br>
+	 * Has to be set before the first write operation is initiated, calls afterward have no effect.
+	 * @param escapeUnmappableCharacters True if unmappable characters should be written as character references
+	 */
+	public void setEscapeUnmappableCharacters(boolean escapeUnmappableCharacters) {
+		if (this.buffer != null) return;
+		this.escapeUnmappableCharacters = escapeUnmappableCharacters;
+	}
+	
+	/**
+	 * Sets if the XML data should be written to the target by an background thread, so that producing the data and writing it can overlap.<br>
+	 * The data is collected in fixed size buffers, of which at most the queue depth are waiting to be written at any time.
+	 * If the background thread can not keep up, writing to this stream waits until an buffer was written.<br>
+	 * {@link #flush()} and {@link #close()} wait until all data is written. If writing to the target fails, the exception is thrown by the next write operation.<br>
+	 * Has to be set before the first write operation is initiated, calls afterward have no effect.<br>
+	 * The background writes run on an shared pool of daemon threads, see {@link #setAsynchronousOutput(int, Executor)}.
+	 * @param queueDepth The maximum number of buffers waiting to be written, or 0 to write synchronously (the default)
+	 */
+	public void setAsynchronousOutput(int queueDepth) {
+		setAsynchronousOutput(queueDepth, null);
+	}
+	
+	/**
+	 * Sets if the XML data should be written to the target by an task running on the executor, see {@link #setAsynchronousOutput(int)}.<br>
+	 * The task occupies an thread of the executor until this stream is closed, so the stream has to be closed even if writing to it fails.
+	 * The executor has to run the task independently of the thread writing to this stream, an executor with an single thread which also produces the data would block forever.
+	 * @param queueDepth The maximum number of buffers waiting to be written, or 0 to write synchronously (the default)
+	 * @param executor The executor running the background writes, or null to use an shared pool of daemon threads
+	 */
+	public void setAsynchronousOutput(int queueDepth, Executor executor) {
+		if (queueDepth < 0) throw new IllegalArgumentException("queue depth can not be negative");
+		if (this.buffer != null) return;
+		this.asyncQueueDepth = queueDepth;
+		this.asyncExecutor = executor;
+	}
+	
 	/**
 	 * Writes the prolog entry with XML version and character encoding at the top of the file.<br>
 	 * Defaults to XML 1.0 and UTF-8 if no other values where set before this call or the first write operation on this stream.
 	 * @throws IOException
 	 */
 	public void writeProlog() throws IOException {
-		if (this.writer != null) return;
+		if (this.buffer != null) return;
 		
 		// fallback to default versions
 		if (this.version == null) this.version = "1.0";
 		if (this.encoding == null) this.encoding = "UTF-8";
 		
-		// create writer
+		Charset charset;
 		try {
-			this.writer = new OutputStreamWriter(this.stream, this.encoding);
-		} catch (UnsupportedEncodingException e) {
+			charset = Charset.forName(this.encoding);
+		} catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
 			throw new IOException("unsupported encoding", e);
 		}
 		
-		// create prolog element string
-		ElementDescriptor element = new ElementDescriptor(DescType.OPEN, null, "xml", new LinkedHashMap<>());
+		// UTF-8 and ASCII are encoded directly into bytes, other encodings use the encoders of the JDK
+		boolean direct = charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII);
+		boolean ascii = charset.equals(StandardCharsets.US_ASCII);
+		if (this.asyncQueueDepth > 0) {
+			// the byte buffers are passed to the background thread without copying them
+			AsyncOutputStream asyncStream = new AsyncOutputStream(this.stream, this.channel, AsyncOutputStream.DEFAULT_BLOCK_SIZE, this.asyncQueueDepth, this.asyncExecutor);
+			if (direct)
+				this.buffer = new ByteOutputBuffer(asyncStream, null, ascii, asyncStream.blockSize());
+			else
+				this.buffer = new CharOutputBuffer(new OutputStreamWriter(asyncStream, charset));
+		} else if (direct) {
+			this.buffer = this.stream != null ? new ByteOutputBuffer(this.stream, ascii) : new ByteOutputBuffer(this.channel, ascii);
+		} else {
+			Writer writer = this.stream != null ? new OutputStreamWriter(this.stream, charset) : Channels.newWriter(this.channel, charset);
+			this.buffer = new CharOutputBuffer(writer);
+		}
+		
+		// the unicode encodings can represent any character, no need to check them
+		if (this.escapeUnmappableCharacters && !charset.name().startsWith("UTF"))
+			this.buffer.setEncoder(charset.newEncoder());
+		
+		// create prolog element
+		ElementDescriptor element = new ElementDescriptor(DescType.OPEN, null, "xml", new Attributes(2));
 		element.attributes().put("version", this.version);
 		element.attributes().put("encoding", this.encoding);
-		String prolog = makeElementString(element, new LinkedHashMap<URI, String>());
 		
 		// write prolog
-		this.writer.write("<?" + prolog + "?>");
+		this.buffer.append("<?");
+		appendElement(this.buffer, element, null, null, null);
+		this.buffer.append("?>");
 		
 	}
 	
@@ -135,56 +328,181 @@ public class XMLOutputStream implements XMLStream, AutoCloseable {
 	 * formats the string between the angled brackets for the provided element descriptor
 	 */
 	public String makeElementString(ElementDescriptor element, Map<URI, String> namespaces) {
-
-		StringBuffer elementStr = new StringBuffer();
-		if (element.type() == DescType.CLOSE)
-			elementStr.append('/');
-		
-		HashMap<String, String> attributes = element.attributes() != null ? new LinkedHashMap<String, String>(element.attributes()) : new LinkedHashMap<String, String>();
-		if (element.namespace() != null) {
-			// if new namespace, register and define in attributes
-			String namespaceId = namespaces.get(element.namespace());
-			if (namespaceId == null) {
-				namespaceId = this.namespaceIdProvider.provide(element.namespace(), namespaces);
-				if (element.type() == DescType.OPEN) namespaces.put(element.namespace(), namespaceId);
-				if (namespaceId.isEmpty())
-					attributes.put("xmlns", element.namespace().toString());
-				else
-					attributes.put(String.format("xmlns:%s", namespaceId), element.namespace().toString());
+		StringWriter elementStr = new StringWriter();
+		OutputBuffer buffer = new CharOutputBuffer(elementStr, 256);
+		try {
+			String prefix = null;
+			String declaredPrefix = null;
+			if (element.namespace() != null) {
+				// if new namespace, register and define in attributes
+				prefix = namespaces.get(element.namespace());
+				if (prefix == null) {
+					prefix = declaredPrefix = allocatePrefix(element.namespace(), namespaces, namespaces.values());
+					if (element.type() == DescType.OPEN) namespaces.put(element.namespace(), prefix);
+				}
 			}
-			// write namespace
-			if (!namespaceId.isEmpty())
-				elementStr.append(namespaceId).append(':');
-		}
-		
-		// write name and attributes
-		elementStr.append(element.name());
-		for (var a : attributes.entrySet()) {
-			elementStr.append(String.format(" %s=\"%s\"", a.getKey(), replaceSpecialCharacters(a.getValue())));
+			appendElement(buffer, element, prefix, declaredPrefix, null);
+			buffer.flushBuffer();
+		} catch (IOException e) {
+			throw new UncheckedIOException("failed to write to string", e);
 		}
-		
-		if (element.type() == DescType.SELF_CLOSING)
-			elementStr.append('/');
-		
 		return elementStr.toString();
-		
+	}
+	
+	/**
+	 * Requests an prefix for the namespace from the namespace id provider, or makes up an unique prefix if no provider is set
+	 */
+	private String provideNamespaceId(URI namespace, Map<URI, String> namespaces) {
+		if (this.namespaceIdProvider != null)
+			return this.namespaceIdProvider.provide(namespace, namespaces);
+		if (namespaces.isEmpty()) return "";
+		// make unique id for namespace, ids are reused for the whole document so they can not collide
+		return "ns" + (++this.namespaceCounter);
+	}
+	
+	/**
+	 * Returns the prefix assigned to the namespace in this document, or requests an new one from the namespace id provider if it is not yet assigned or already used by an other namespace in the current scope
+	 */
+	private String allocatePrefix(URI namespace, Map<URI, String> namespaces, Collection<String> prefixesInScope) {
+		String prefix = this.namespacePrefixes.get(namespace);
+		if (prefix == null || prefixesInScope.contains(prefix)) {
+			prefix = provideNamespaceId(namespace, namespaces);
+			this.namespacePrefixes.putIfAbsent(namespace, prefix);
+		}
+		return prefix;
+	}
+	
+	/**
+	 * Returns the prefix for an namespace declared in advance, which can not be the default namespace since elements without namespace could follow
+	 */
+	private String allocateDeclaredPrefix(URI namespace) {
+		String prefix = this.namespacePrefixes.get(namespace);
+		if (prefix == null || prefix.isEmpty() || this.prefixes.containsKey(prefix)) {
+			prefix = provideNamespaceId(namespace, this.namespaces);
+			while (prefix.isEmpty() || this.prefixes.containsKey(prefix))
+				prefix = "ns" + (++this.namespaceCounter);
+			this.namespacePrefixes.putIfAbsent(namespace, prefix);
+		}
+		return prefix;
+	}
+	
+	/**
+	 * Declares the namespace on the next element opened on this stream, which makes it available to all elements inside of it.<br>
+	 * Used to declare namespaces once on the root element, instead of on every element which uses them.<br>
+	 * Self closing elements do not receive the declarations, they stay pending until the next opening element.<br>
+	 * Namespaces which are already declared at that point are ignored, as is the empty namespace which can not be bound to an prefix.
+	 * @param namespace The namespace to declare
+	 */
+	public void declareNamespace(URI namespace) {
+		Objects.requireNonNull(namespace, "namespace can not be null");
+		if (namespace.toString().isEmpty()) return;
+		this.pendingNamespaces.add(namespace);
+	}
+	
+	/**
+	 * Appends the characters between the angled brackets for the provided element descriptor directly to the buffer
+	 * @param prefix The prefix of the elements namespace, or null if the element has no namespace
+	 * @param declaredPrefix The prefix to declare the elements namespace with, or null if it is already declared
+	 * @param declarations Additional namespace declarations to write after the attributes, or null if none
+	 */
+	private static void appendElement(OutputBuffer buffer, ElementDescriptor element, String prefix, String declaredPrefix, Attributes declarations) throws IOException {
+		String namespaceDeclaration = namespaceDeclaration(declaredPrefix);
+		appendTagStart(buffer, element.type(), prefix, element.name());
+		appendAttributes(buffer, element.attributes(), namespaceDeclaration);
+		appendTagEnd(buffer, element.type(), element.namespace(), namespaceDeclaration, declarations);
+	}
+	
+	/**
+	 * Returns the name of the attribute which declares the namespace with the prefix, or null if the prefix is null
+	 */
+	private static String namespaceDeclaration(String declaredPrefix) {
+		return declaredPrefix == null ? null : declaredPrefix.isEmpty() ? "xmlns" : "xmlns:" + declaredPrefix;
+	}
+	
+	/**
+	 * Appends the element name with its namespace prefix
+	 */
+	private static void appendTagStart(OutputBuffer buffer, DescType type, String prefix, String name) throws IOException {
+		if (type == DescType.CLOSE)
+			buffer.append('/');
+		if (prefix != null && !prefix.isEmpty())
+			buffer.append(prefix).append(':');
+		buffer.append(name);
+	}
+	
+	/**
+	 * Appends the attributes, except the one with the name of the namespace declaration, which replaces it
+	 */
+	private static void appendAttributes(OutputBuffer buffer, Map<String, String> attributeMap, String namespaceDeclaration) throws IOException {
+		if (attributeMap instanceof Attributes attributes) {
+			for (int i = 0; i < attributes.size(); i++) {
+				if (namespaceDeclaration != null && namespaceDeclaration.equals(attributes.name(i))) continue;
+				appendAttribute(buffer, attributes.name(i), attributes.value(i));
+			}
+		} else if (attributeMap != null) {
+			for (var a : attributeMap.entrySet()) {
+				if (namespaceDeclaration != null && namespaceDeclaration.equals(a.getKey())) continue;
+				appendAttribute(buffer, a.getKey(), a.getValue());
+			}
+		}
+	}
+	
+	/**
+	 * Appends the namespace declarations after the attributes
+	 */
+	private static void appendTagEnd(OutputBuffer buffer, DescType type, URI namespace, String namespaceDeclaration, Attributes declarations) throws IOException {
+		if (namespaceDeclaration != null)
+			appendAttribute(buffer, namespaceDeclaration, namespace.toString());
+		if (declarations != null)
+			for (int i = 0; i < declarations.size(); i++)
+				appendAttribute(buffer, declarations.name(i), declarations.value(i));
+		if (type == DescType.SELF_CLOSING)
+			buffer.append('/');
+	}
+	
+	private static void appendAttribute(OutputBuffer buffer, String name, String value) throws IOException {
+		buffer.append(' ').append(name).append("=\"");
+		buffer.appendEscaped(value, 0, value.length());
+		buffer.append('"');
 	}
 	
 	protected static String replaceSpecialCharacters(String text) {
-		text = text.replace("&", "&amp;");
-		text = text.replace("<", "&lt;");
-		text = text.replace(">", "&gt;");
-		text = text.replace("'", "&apos;");
-		text = text.replace("\"", "&quot;");
-		return text;
+		// nothing to replace in most cases
+		int i = 0;
+		while (i < text.length() && "&<>'\"".indexOf(text.charAt(i)) < 0) i++;
+		if (i == text.length()) return text;
+		
+		StringWriter escaped = new StringWriter(text.length() + 16);
+		OutputBuffer buffer = new CharOutputBuffer(escaped, text.length() + 16);
+		try {
+			buffer.appendEscaped(text, 0, text.length());
+			buffer.flushBuffer();
+		} catch (IOException e) {
+			throw new UncheckedIOException("failed to write to string", e);
+		}
+		return escaped.toString();
 	}
 
 	/**
-	 * Open the new tag element on the stack and clone the namespace map
+	 * Open the new tag element on the stack, the namespace maps are shared with the parent until an namespace is declared
 	 */
 	private void openTag(String name) {
-		this.stack.push(new TagEntry(name, this.namespaces));
-		this.namespaces = new HashMap<URI, String>(this.namespaces);
+		this.stack.push(new TagEntry(name, this.namespaces, this.prefixes, this.namespacesOwned, this.scopeId));
+		this.namespacesOwned = false;
+	}
+	
+	/**
+	 * Declare the namespace in the current element, copies the namespace maps of the parent element if not already done
+	 */
+	private void bindNamespace(URI namespace, String prefix) {
+		if (!this.namespacesOwned) {
+			this.namespaces = new HashMap<URI, String>(this.namespaces);
+			this.prefixes = new HashMap<String, URI>(this.prefixes);
+			this.namespacesOwned = true;
+			this.scopeId = SCOPE_IDS.incrementAndGet();
+		}
+		this.namespaces.put(namespace, prefix);
+		this.prefixes.put(prefix, namespace);
 	}
 	
 	/**
@@ -197,6 +515,69 @@ public class XMLOutputStream implements XMLStream, AutoCloseable {
 		if (!last.name.equals(name))
 			throw new XMLException(this, "improper tag close order: </" + name + "> should be </" + last.name() + ">");
 		this.namespaces = last.previousNamespaces;
+		this.prefixes = last.previousPrefixes;
+		this.namespacesOwned = last.previousNamespacesOwned;
+		this.scopeId = last.previousScopeId;
+	}
+	
+	/**
+	 * Creates an fragment of this stream, to which elements can be written independently of this stream, for example by an other thread.<br>
+	 * The fragment continues at the current position of this stream, with the same namespace scope, indentation and encoding.
+	 * Its XML data is collected in memory and inserted into this stream by {@link #writeFragment(XMLOutputStream)}.<br>
+	 * Writing to different fragments concurrently is safe, as long as the namespace id provider (if any) can be called concurrently.
+	 * Namespaces declared with {@link #declareNamespace(URI)} but not yet written are not declared by the fragment.<br>
+	 * Prefixes for namespaces not declared in the current scope are allocated independently by each fragment,
+	 * the output is deterministic as long as the same elements are written to the same fragments.
+	 * @return An new fragment stream, which has to be written to this stream after all elements in it are closed
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public XMLOutputStream createFragment() throws IOException, XMLException {
+		
+		if (this.buffer == null)
+			writeProlog();
+		
+		requireTagFinished();
+		
+		if (this.stack.isEmpty())
+			throw new XMLException("can not create fragment ouside root XML element");
+		
+		return new XMLOutputStream(null, null, this, this.prettyPrinting, this.namespaceIdProvider);
+		
+	}
+	
+	/**
+	 * Inserts the XML data of the fragment at the current position of this stream.<br>
+	 * The stream has to be at the same element as when the fragment was created, and the fragment is empty afterwards.
+	 * @param fragment The fragment created by {@link #createFragment()}
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public void writeFragment(XMLOutputStream fragment) throws IOException, XMLException {
+		Objects.requireNonNull(fragment, "fragment can not be null");
+		if (fragment.parent != this)
+			throw new IllegalArgumentException("fragment was not created by this stream");
+		
+		requireTagFinished();
+		fragment.requireTagFinished();
+		if (!fragment.stack.isEmpty())
+			throw new XMLException(fragment, "unclosed elements in fragment");
+		
+		fragment.buffer.flushBuffer();
+		if (fragment.fragmentBytes != null) {
+			if (fragment.fragmentBytes.size() == 0) return;
+			((ByteOutputBuffer) this.buffer).appendBytes(fragment.fragmentBytes.toByteBuffer());
+			fragment.fragmentBytes.reset();
+		} else {
+			if (fragment.fragmentChars.size() == 0) return;
+			char[] data = fragment.fragmentChars.toCharArray();
+			this.buffer.append(data, 0, data.length);
+			fragment.fragmentChars.reset();
+		}
+		
+		// the current element now contains other elements
+		this.singleLineText = false;
+		
 	}
 	
 	/**
@@ -208,33 +589,245 @@ public class XMLOutputStream implements XMLStream, AutoCloseable {
 	public void writeNext(ElementDescriptor element) throws IOException, XMLException {
 		Objects.requireNonNull(element, "element can not be null");
 		
-		if (this.writer == null)
+		if (element.type() == DescType.CLOSE && element.attributes() != null && !element.attributes().isEmpty())
+			throw new XMLException(this, "attributes should be empty on closing element: " + element.name());
+		
+		beginTag(element.type(), element.namespace(), element.name(), null);
+		appendAttributes(this.buffer, element.attributes(), this.tagDeclaration);
+		endTag();
+		
+	}
+	
+	/**
+	 * Starts writing an opening or self closing element tag, to which the attributes are written one by one using the writeAttribute methods.<br>
+	 * Unlike {@link #writeNext(ElementDescriptor)}, this does not require the attribute values as strings, primitive values are formatted directly into the XML data.<br>
+	 * The tag has to be finished with {@link #finishStartTag()} before any other data can be written.
+	 * @param type The type of the element, either {@link DescType#OPEN} or {@link DescType#SELF_CLOSING}
+	 * @param namespace The namespace of the element, or null if the element has no namespace
+	 * @param name The name of the element
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public void writeStartTag(DescType type, URI namespace, String name) throws IOException, XMLException {
+		Objects.requireNonNull(type, "type can not be null");
+		Objects.requireNonNull(name, "name can not be null");
+		if (type == DescType.CLOSE)
+			throw new IllegalArgumentException("closing elements have no attributes, use writeNext instead");
+		beginTag(type, namespace, name, null);
+	}
+	
+	/**
+	 * Starts writing an opening or self closing element tag using the pre-formatted parts of the template, see {@link #writeStartTag(DescType, URI, String)}.
+	 * @param type The type of the element, either {@link DescType#OPEN} or {@link DescType#SELF_CLOSING}
+	 * @param template The template for the element tag
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public void writeStartTag(DescType type, TagTemplate template) throws IOException, XMLException {
+		Objects.requireNonNull(type, "type can not be null");
+		Objects.requireNonNull(template, "template can not be null");
+		if (type == DescType.CLOSE)
+			throw new IllegalArgumentException("closing elements have no attributes, use writeEndTag instead");
+		beginTag(type, template.namespace(), template.name(), template);
+	}
+	
+	/**
+	 * Writes the closing element tag using the pre-formatted parts of the template, ensuring that the order of element open and close tags is correct.
+	 * @param template The template for the element tag
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public void writeEndTag(TagTemplate template) throws IOException, XMLException {
+		Objects.requireNonNull(template, "template can not be null");
+		beginTag(DescType.CLOSE, template.namespace(), template.name(), template);
+		endTag();
+	}
+	
+	/**
+	 * Finishes the element tag started with {@link #writeStartTag(DescType, URI, String)}.
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public void finishStartTag() throws IOException, XMLException {
+		if (this.tagType == null)
+			throw new XMLException(this, "no element tag started");
+		endTag();
+	}
+	
+	/**
+	 * Writes the name of the element tag, after this the attributes can be written until {@link #endTag()} is called
+	 * @param template The template of the tag, or null if not available
+	 */
+	private void beginTag(DescType type, URI namespace, String name, TagTemplate template) throws IOException, XMLException {
+		
+		if (this.buffer == null)
 			writeProlog();
 		
-		Map<URI, String> namespaces = this.namespaces;
+		requireTagFinished();
 		
-		if (element.type() == DescType.OPEN)
-			openTag(element.name());
-		else if (element.type() == DescType.CLOSE)
-			closeTag(element.name());
+		// the closing tag uses the namespaces of the closed element, the prefix does not have to be looked up if the template has it cached for the scope
+		String prefix = null;
+		String declaredPrefix = null;
+		char[] qualifiedName = template != null ? template.qualifiedName(this.scopeId) : null;
+		if (qualifiedName == null && namespace != null) {
+			prefix = this.namespaces.get(namespace);
+			if (prefix == null)
+				prefix = declaredPrefix = allocatePrefix(namespace, this.namespaces, this.prefixes.keySet());
+			else if (template != null)
+				qualifiedName = template.cacheQualifiedName(this.scopeId, prefix);
+		}
 		
-		if (element.type() == DescType.OPEN) namespaces = this.namespaces;
-		if (element.type() == DescType.SELF_CLOSING) namespaces = new LinkedHashMap<URI, String>(this.namespaces);
+		if (type == DescType.OPEN)
+			openTag(name);
+		else if (type == DescType.CLOSE)
+			closeTag(name);
 		
-		if (element.type() == DescType.CLOSE && element.attributes() != null && !element.attributes().isEmpty())
-			throw new XMLException(this, "attributes should be empty on closing element: " + element.name());
+		// the declaration of an self closing element has no effect on the following elements
+		if (declaredPrefix != null && type == DescType.OPEN)
+			bindNamespace(namespace, declaredPrefix);
 		
-		if (this.prettyPrinting && !this.singleLineText || element.type() != DescType.CLOSE) {
-			this.writer.write('\n');
-			for (int i = 0; i <  this.stack.size() - (element.type() == DescType.OPEN ? 1 : 0); i++)
-				this.writer.write('\t');
+		// declare the requested namespaces on the opened element
+		Attributes declarations = null;
+		if (!this.pendingNamespaces.isEmpty() && type == DescType.OPEN) {
+			declarations = this.namespaceDeclarations;
+			declarations.clear();
+			for (URI pendingNamespace : this.pendingNamespaces) {
+				if (this.namespaces.containsKey(pendingNamespace)) continue;
+				String namespacePrefix = allocateDeclaredPrefix(pendingNamespace);
+				bindNamespace(pendingNamespace, namespacePrefix);
+				declarations.add("xmlns:" + namespacePrefix, pendingNamespace.toString());
+			}
+			this.pendingNamespaces.clear();
 		}
 		
-		this.writer.write("<" + makeElementString(element, namespaces) + ">");
+		if (this.prettyPrinting && (!this.singleLineText || type != DescType.CLOSE))
+			this.buffer.appendIndentation(this.fragmentDepth + this.stack.size() - (type == DescType.OPEN ? 1 : 0));
+		
+		this.buffer.append('<');
+		if (qualifiedName != null) {
+			if (type == DescType.CLOSE)
+				this.buffer.append('/');
+			this.buffer.append(qualifiedName, 0, qualifiedName.length);
+		} else {
+			appendTagStart(this.buffer, type, prefix, name);
+		}
+		
+		this.tagType = type;
+		this.tagTemplate = template;
+		this.tagNamespace = namespace;
+		this.tagDeclaration = namespaceDeclaration(declaredPrefix);
+		this.tagDeclarations = declarations;
+		
+	}
+	
+	/**
+	 * Writes the namespace declarations and closes the element tag
+	 */
+	private void endTag() throws IOException {
+		
+		appendTagEnd(this.buffer, this.tagType, this.tagNamespace, this.tagDeclaration, this.tagDeclarations);
+		this.buffer.append('>');
 		
 		// reset single line text to true if new element is opened, otherwise set to false since current element does obviously no longer contain only single line text
-		this.singleLineText = element.type() == DescType.OPEN;
+		this.singleLineText = this.tagType == DescType.OPEN;
 		
+		this.tagType = null;
+		this.tagNamespace = null;
+		this.tagDeclaration = null;
+		this.tagDeclarations = null;
+		this.tagTemplate = null;
+		
+	}
+	
+	/**
+	 * Throws an exception if an element tag is started but not yet finished, or an text writer is still open
+	 */
+	private void requireTagFinished() throws XMLException {
+		if (this.tagType != null)
+			throw new XMLException(this, "element tag not finished");
+		if (this.textWriter != null)
+			throw new XMLException(this, "text writer not closed");
+	}
+	
+	/**
+	 * Checks that an element tag is started and the attribute does not collide with the namespace declaration of the element, and writes the attribute name
+	 * @return false if the attribute is replaced by the namespace declaration and should not be written
+	 */
+	private boolean beginAttribute(String name) throws IOException, XMLException {
+		Objects.requireNonNull(name, "name can not be null");
+		if (this.tagType == null)
+			throw new XMLException(this, "no element tag started for attribute: " + name);
+		if (name.equals(this.tagDeclaration)) return false;
+		char[] fragment = this.tagTemplate != null ? this.tagTemplate.attributeFragment(name) : null;
+		if (fragment != null)
+			this.buffer.append(fragment, 0, fragment.length);
+		else
+			this.buffer.append(' ').append(name).append("=\"");
+		return true;
+	}
+	
+	/**
+	 * Writes an attribute to the element tag started with {@link #writeStartTag(DescType, URI, String)}.
+	 * @param name The name of the attribute
+	 * @param value The value of the attribute, special characters are replaced
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public void writeAttribute(String name, String value) throws IOException, XMLException {
+		Objects.requireNonNull(value, "value can not be null");
+		if (!beginAttribute(name)) return;
+		this.buffer.appendEscaped(value, 0, value.length());
+		this.buffer.append('"');
+	}
+	
+	/**
+	 * Writes an int attribute to the element tag started with {@link #writeStartTag(DescType, URI, String)}, without creating an string.
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public void writeAttribute(String name, int value) throws IOException, XMLException {
+		if (!beginAttribute(name)) return;
+		this.buffer.appendInt(value).append('"');
+	}
+	
+	/**
+	 * Writes an long attribute to the element tag started with {@link #writeStartTag(DescType, URI, String)}, without creating an string.
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public void writeAttribute(String name, long value) throws IOException, XMLException {
+		if (!beginAttribute(name)) return;
+		this.buffer.appendLong(value).append('"');
+	}
+	
+	/**
+	 * Writes an double attribute to the element tag started with {@link #writeStartTag(DescType, URI, String)}, without creating an string.
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public void writeAttribute(String name, double value) throws IOException, XMLException {
+		if (!beginAttribute(name)) return;
+		this.buffer.appendDouble(value).append('"');
+	}
+	
+	/**
+	 * Writes an float attribute to the element tag started with {@link #writeStartTag(DescType, URI, String)}, without creating an string.
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public void writeAttribute(String name, float value) throws IOException, XMLException {
+		if (!beginAttribute(name)) return;
+		this.buffer.appendFloat(value).append('"');
+	}
+	
+	/**
+	 * Writes an boolean attribute to the element tag started with {@link #writeStartTag(DescType, URI, String)}.
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public void writeAttribute(String name, boolean value) throws IOException, XMLException {
+		if (!beginAttribute(name)) return;
+		this.buffer.appendBoolean(value).append('"');
 	}
 	
 	/**
@@ -254,56 +847,204 @@ public class XMLOutputStream implements XMLStream, AutoCloseable {
 			throw new IndexOutOfBoundsException();
 		}
 
-		if (this.writer == null)
+		writeText(CharBuffer.wrap(cbuf, off, len), useCData);
+		return len;
+	}
+	
+	/**
+	 * Writes the provided string to the current elements XML data.
+	 * @param text The text to be written
+	 * @param useCData If the characters should be written inside an CDATA block to the XML file
+	 * @throws IOException
+	 * @throws XMLException 
+	 */
+	public void writeAllText(String text, boolean useCData) throws IOException, XMLException {
+		Objects.requireNonNull(text, "text can not be null");
+		writeText(text, useCData);
+	}
+	
+	/**
+	 * Checks that text data can be written at the current position
+	 */
+	private void beginText() throws IOException, XMLException {
+		
+		if (this.buffer == null)
 			writeProlog();
 		
+		requireTagFinished();
+		
 		if (this.stack.isEmpty())
 			throw new XMLException("can not write text data ouside root XML element");
-
-		// check if this text is single line or multi-line
-		String text = new String(cbuf, off, len);
-		this.singleLineText = this.singleLineText && !useCData && text.lines().count() <= 1;
 		
-		// write text in new line if it's not just single line text
+	}
+	
+	/**
+	 * Prepares writing an primitive value as text data, which never contains line breaks or special characters
+	 */
+	private void beginPrimitiveText() throws IOException, XMLException {
+		beginText();
 		if (!this.singleLineText)
-			this.writer.write('\n');
+			this.buffer.append('\n');
+	}
+	
+	/**
+	 * Writes the int to the current elements XML data, without creating an string.
+	 * @param value The value to write
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public void writeInt(int value) throws IOException, XMLException {
+		beginPrimitiveText();
+		this.buffer.appendInt(value);
+	}
+	
+	/**
+	 * Writes the long to the current elements XML data, without creating an string.
+	 * @param value The value to write
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public void writeLong(long value) throws IOException, XMLException {
+		beginPrimitiveText();
+		this.buffer.appendLong(value);
+	}
+	
+	/**
+	 * Writes the double to the current elements XML data, in the shortest notation which parses back to the same value.<br>
+	 * The notation matches {@link Double#toString(double)}, but for most values it is formatted without creating an string.
+	 * @param value The value to write
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public void writeDouble(double value) throws IOException, XMLException {
+		beginPrimitiveText();
+		this.buffer.appendDouble(value);
+	}
+	
+	/**
+	 * Writes the float to the current elements XML data, in the shortest notation which parses back to the same value.<br>
+	 * The notation matches {@link Float#toString(float)}, but for most values it is formatted without creating an string.
+	 * @param value The value to write
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public void writeFloat(float value) throws IOException, XMLException {
+		beginPrimitiveText();
+		this.buffer.appendFloat(value);
+	}
+	
+	/**
+	 * Writes the boolean to the current elements XML data.
+	 * @param value The value to write
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public void writeBoolean(boolean value) throws IOException, XMLException {
+		beginPrimitiveText();
+		this.buffer.appendBoolean(value);
+	}
+	
+	/**
+	 * Escapes and writes the text to the current elements XML data in a single scan over the characters
+	 */
+	private void writeText(CharSequence text, boolean useCData) throws IOException, XMLException {
+		
+		beginText();
 		
 		if (useCData) {
 			
-			// replace ]]> sequences with ]]&gt; to avoid corrupting CDATA block
-			StringBuffer cdataText = new StringBuffer();
-			int f = 0;
-			int i;
-			while ((i = text.indexOf("]]>", f)) > 0) {
-				cdataText.append(text.substring(f, f - i));
-				cdataText.append("]]&gt;");
-				f = i + 3;
-			}
-			cdataText.append(text.substring(f));
+			// CDATA blocks are always written in a new line
+			this.singleLineText = false;
+			this.buffer.append('\n');
+			this.buffer.beginCData();
+			this.buffer.appendCData(text, 0, text.length());
+			this.buffer.endCData();
+			
+		} else if (this.singleLineText) {
 			
-			// write CDATA block
-			this.writer.write("<![CDATA[" + cdataText + "]]>");
+			// if the text turns out to be multi-line, it has to be written in a new line
+			this.buffer.mark();
+			if (this.buffer.appendEscaped(text, 0, text.length())) {
+				this.buffer.insertAtMark('\n');
+				this.singleLineText = false;
+			} else {
+				this.buffer.unmark();
+			}
 			
 		} else {
 			
-			// write text to file
-			this.writer.write(replaceSpecialCharacters(text));
+			// write text in new line since its not just single line text
+			this.buffer.append('\n');
+			this.buffer.appendEscaped(text, 0, text.length());
 			
 		}
 		
-		return len;
 	}
 	
 	/**
-	 * Writes the provided string to the current elements XML data.
-	 * @param text The text to be written
+	 * Opens an writer which streams text data into the current elements XML data, without requiring the whole text in memory.<br>
+	 * Special characters are replaced while writing, and if written as CDATA block, sequences which would end the block are split.<br>
+	 * The writer has to be closed before any other data can be written to this stream, until then all other write methods throw an {@link XMLException}.<br>
+	 * Closing the writer does not close this stream.
 	 * @param useCData If the characters should be written inside an CDATA block to the XML file
+	 * @return An writer for the text data of the current element
 	 * @throws IOException
-	 * @throws XMLException 
+	 * @throws XMLException
 	 */
-	public void writeAllText(String text, boolean useCData) throws IOException, XMLException {
-		char[] chars = text.toCharArray();
-		writeText(chars, 0, chars.length, useCData);
+	public Writer openTextWriter(boolean useCData) throws IOException, XMLException {
+		
+		beginText();
+		
+		// CDATA blocks are always written in a new line
+		if (useCData) {
+			this.singleLineText = false;
+			this.buffer.append('\n');
+		}
+		
+		this.textWriter = new Writer() {
+			
+			private boolean cdataOpen = false;
+			private boolean closed = false;
+			
+			@Override
+			public void write(char[] cbuf, int off, int len) throws IOException {
+				Objects.checkFromIndexSize(off, len, cbuf.length);
+				if (this.closed) throw new IOException("text writer already closed");
+				if (len == 0) return;
+				
+				CharBuffer text = CharBuffer.wrap(cbuf, off, len);
+				if (!useCData) {
+					if (buffer.appendEscaped(text, 0, len))
+						singleLineText = false;
+					return;
+				}
+				
+				if (!this.cdataOpen) {
+					buffer.beginCData();
+					this.cdataOpen = true;
+				}
+				
+				// sequences which would end the CDATA block are split, even if spread over multiple calls
+				buffer.appendCData(text, 0, len);
+				
+			}
+			
+			@Override
+			public void flush() throws IOException {
+				buffer.flush();
+			}
+			
+			@Override
+			public void close() throws IOException {
+				if (this.closed) return;
+				this.closed = true;
+				if (this.cdataOpen)
+					buffer.endCData();
+				textWriter = null;
+			}
+			
+		};
+		return this.textWriter;
 	}
 	
 }
@@ -0,0 +1,261 @@
+package de.m_marvin.basicxml.internal;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Output stream which collects the data in fixed size blocks, which are written to the target stream or channel by an flusher task running on an executor.<br>
+ * The number of blocks waiting to be written is limited, if the target can not keep up, writing blocks until an block was written.<br>
+ * {@link #flush()} and {@link #close()} wait until all data is written to the target.
+ * If writing to the target fails, the exception is thrown by the next write, flush or close operation on this stream.<br>
+ * The flusher task occupies an thread of the executor until the stream is closed, so the stream has to be closed even if writing to it fails.
+ */
+public class AsyncOutputStream extends OutputStream {
+
+	public static final int DEFAULT_BLOCK_SIZE = 16384;
+	/** the executor used if none is supplied, its daemon threads are reused by the following streams and terminate when idle */
+	public static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+		Thread flusher = new Thread(runnable, "XML output flusher");
+		flusher.setDaemon(true);
+		return flusher;
+	});
+
+	/** an block of data waiting to be written, or an command for the flusher if data is null */
+	private static record Block(byte[] data, int length) {}
+	private static final Block FLUSH = new Block(null, 0);
+	private static final Block CLOSE = new Block(null, 0);
+
+	/** target stream for the byte data, null if writing to an channel */
+	private final OutputStream stream;
+	/** target channel for the byte data, null if writing to an stream */
+	private final WritableByteChannel channel;
+	private final int blockSize;
+	/** blocks waiting to be written by the flusher thread */
+	private final BlockingQueue<Block> queue;
+	/** blocks already written by the flusher thread, which can be filled again */
+	private final BlockingQueue<byte[]> freeBlocks;
+	/** block currently filled by the write methods, null until the first write */
+	private byte[] block = null;
+	private int position = 0;
+	/** number of blocks and commands passed to the flusher thread */
+	private long submitted = 0;
+	/** number of blocks and commands completed by the flusher thread, guarded by the queue */
+	private long completed = 0;
+	/** the first exception thrown while writing to the target */
+	private volatile Throwable failure = null;
+	private boolean closed = false;
+
+	/**
+	 * Creates an asynchronous stream writing to the stream or channel.<br>
+	 * The executor has to run the flusher task independently of the thread writing to this stream, otherwise writing blocks forever once the queue is full.
+	 * @param blockSize The size of the blocks in which the data is passed to the flusher thread
+	 * @param queueDepth The maximum number of blocks waiting to be written
+	 * @param executor The executor which runs the flusher task, or null to use {@link #DEFAULT_EXECUTOR}
+	 * @throws IOException If the executor does not accept the flusher task
+	 */
+	public AsyncOutputStream(OutputStream stream, WritableByteChannel channel, int blockSize, int queueDepth, Executor executor) throws IOException {
+		if (stream == null) Objects.requireNonNull(channel, "output stream and channel can not both be null");
+		if (queueDepth < 1) throw new IllegalArgumentException("queue depth must be at least one");
+		this.stream = stream;
+		this.channel = channel;
+		this.blockSize = Math.max(blockSize, 16);
+		this.queue = new ArrayBlockingQueue<>(queueDepth);
+		this.freeBlocks = new ArrayBlockingQueue<>(queueDepth + 1);
+		try {
+			(executor != null ? executor : DEFAULT_EXECUTOR).execute(this::runFlusher);
+		} catch (RejectedExecutionException e) {
+			throw new IOException("executor did not accept the flusher task", e);
+		}
+	}
+
+	public int blockSize() {
+		return this.blockSize;
+	}
+
+	private void runFlusher() {
+		while (true) {
+			Block block;
+			try {
+				block = this.queue.take();
+			} catch (InterruptedException e) {
+				// the producer might be waiting for this thread, so it can not just stop
+				if (this.failure == null) this.failure = e;
+				continue;
+			}
+			try {
+				if (block == CLOSE) {
+					if (this.stream != null) this.stream.close();
+					if (this.channel != null) this.channel.close();
+				} else if (this.failure == null) {
+					if (block == FLUSH) {
+						if (this.stream != null) this.stream.flush();
+					} else if (this.stream != null) {
+						this.stream.write(block.data(), 0, block.length());
+					} else {
+						ByteBuffer buffer = ByteBuffer.wrap(block.data(), 0, block.length());
+						while (buffer.hasRemaining()) this.channel.write(buffer);
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				if (this.failure == null) this.failure = e;
+			}
+			if (block.data() != null && block.data().length == this.blockSize)
+				this.freeBlocks.offer(block.data());
+			synchronized (this.queue) {
+				this.completed++;
+				this.queue.notifyAll();
+			}
+			if (block == CLOSE) return;
+		}
+	}
+
+	private void checkFailure() throws IOException {
+		if (this.failure != null)
+			throw new IOException("asynchronous write to target failed", this.failure);
+	}
+
+	private void checkOpen() throws IOException {
+		if (this.closed) throw new IOException("stream already closed");
+		checkFailure();
+	}
+
+	/**
+	 * Passes the block to the flusher thread, waits if the maximum number of blocks is already queued
+	 */
+	private void enqueue(Block block) throws IOException {
+		try {
+			this.queue.put(block);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for the flusher");
+		}
+		this.submitted++;
+	}
+
+	/**
+	 * Passes the command to the flusher thread like {@link #enqueue(Block)}, but keeps waiting if interrupted and restores the interrupt afterwards
+	 */
+	private void enqueueUninterruptibly(Block block) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				this.queue.put(block);
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		this.submitted++;
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Returns an block already written by the flusher thread, or allocates an new one
+	 */
+	private byte[] takeFreeBlock() {
+		byte[] block = this.freeBlocks.poll();
+		return block != null ? block : new byte[this.blockSize];
+	}
+
+	/**
+	 * Waits until the flusher thread completed all submitted blocks
+	 */
+	private void awaitCompletion() throws IOException {
+		synchronized (this.queue) {
+			while (this.completed < this.submitted) {
+				try {
+					this.queue.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("interrupted while waiting for the flusher");
+				}
+			}
+		}
+	}
+
+	private void submitBlock() throws IOException {
+		enqueue(new Block(this.block, this.position));
+		this.block = takeFreeBlock();
+		this.position = 0;
+	}
+
+	/**
+	 * Passes an filled block to the flusher thread without copying it.<br>
+	 * The block is owned by this stream afterwards, and may not be modified by the caller.
+	 * @param block The block to write, if its size matches the block size it is reused after it is written
+	 * @param length The number of bytes to write from the start of the block
+	 * @return An empty block with the block size of this stream, replacing the submitted block
+	 */
+	public byte[] submit(byte[] block, int length) throws IOException {
+		Objects.checkFromIndexSize(0, length, block.length);
+		checkOpen();
+		// data written through the stream methods has to be written first
+		if (this.position > 0) submitBlock();
+		if (length > 0) enqueue(new Block(block, length));
+		return length > 0 ? takeFreeBlock() : block;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		checkOpen();
+		if (this.block == null) this.block = takeFreeBlock();
+		if (this.position == this.block.length) submitBlock();
+		this.block[this.position++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		Objects.checkFromIndexSize(off, len, b.length);
+		checkOpen();
+		if (this.block == null) this.block = takeFreeBlock();
+		while (len > 0) {
+			if (this.position == this.block.length) submitBlock();
+			int n = Math.min(len, this.block.length - this.position);
+			System.arraycopy(b, off, this.block, this.position, n);
+			this.position += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Waits until all data written so far is written to the target, and flushes the target
+	 */
+	@Override
+	public void flush() throws IOException {
+		checkOpen();
+		if (this.position > 0) submitBlock();
+		enqueue(FLUSH);
+		awaitCompletion();
+		checkFailure();
+	}
+
+	/**
+	 * Waits until all data is written to the target and closes the target, the flusher task completes afterwards
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.closed) return;
+		try {
+			if (this.position > 0) submitBlock();
+		} finally {
+			// the flusher task only completes after the close command, so it is queued even if the last block could not be submitted
+			enqueueUninterruptibly(CLOSE);
+			this.closed = true;
+		}
+		awaitCompletion();
+		this.block = null;
+		checkFailure();
+	}
+
+}
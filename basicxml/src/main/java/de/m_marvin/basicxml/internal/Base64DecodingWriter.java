@@ -0,0 +1,91 @@
+package de.m_marvin.basicxml.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Writer which decodes the base64 text written to it and writes the bytes to an output stream.<br>
+ * White spaces are ignored, closing the writer verifies that the text was complete but does not close the output stream.
+ */
+public class Base64DecodingWriter extends Writer {
+	
+	private static final byte[] VALUES = new byte[128];
+	static {
+		for (int i = 0; i < VALUES.length; i++) VALUES[i] = -1;
+		String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+		for (int i = 0; i < alphabet.length(); i++) VALUES[alphabet.charAt(i)] = (byte) i;
+	}
+	
+	private final OutputStream stream;
+	/** decoded bytes waiting to be written to the stream */
+	private final byte[] bytes = new byte[1024];
+	private int byteCount = 0;
+	/** characters of the incomplete group of four characters */
+	private int bits = 0;
+	private int charCount = 0;
+	/** number of padding characters read, no further data is allowed after them */
+	private int padding = 0;
+	private boolean closed = false;
+	
+	public Base64DecodingWriter(OutputStream stream) {
+		this.stream = stream;
+	}
+	
+	public OutputStream getStream() {
+		return stream;
+	}
+	
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		if (this.closed) throw new IOException("writer closed");
+		for (int i = off; i < off + len; i++) {
+			char c = cbuf[i];
+			if (Character.isWhitespace(c)) continue;
+			if (c == '=') {
+				if (this.charCount < 2 || ++this.padding + this.charCount > 4)
+					throw new IOException("invalid base64 padding");
+				continue;
+			}
+			int v = c < VALUES.length ? VALUES[c] : -1;
+			if (v < 0 || this.padding > 0)
+				throw new IOException("invalid base64 character: " + c);
+			this.bits = (this.bits << 6) | v;
+			if (++this.charCount == 4) {
+				if (this.byteCount + 3 > this.bytes.length) flushBytes();
+				this.bytes[this.byteCount++] = (byte) (this.bits >> 16);
+				this.bytes[this.byteCount++] = (byte) (this.bits >> 8);
+				this.bytes[this.byteCount++] = (byte) this.bits;
+				this.bits = 0;
+				this.charCount = 0;
+			}
+		}
+	}
+	
+	private void flushBytes() throws IOException {
+		this.stream.write(this.bytes, 0, this.byteCount);
+		this.byteCount = 0;
+	}
+	
+	@Override
+	public void flush() throws IOException {
+		flushBytes();
+		this.stream.flush();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if (this.closed) return;
+		if (this.charCount == 1)
+			throw new IOException("incomplete base64 data");
+		if (this.charCount > 1) {
+			if (this.byteCount + 2 > this.bytes.length) flushBytes();
+			int b = this.bits << (6 * (4 - this.charCount));
+			this.bytes[this.byteCount++] = (byte) (b >> 16);
+			if (this.charCount == 3) this.bytes[this.byteCount++] = (byte) (b >> 8);
+		}
+		flush();
+		this.closed = true;
+	}
+	
+}
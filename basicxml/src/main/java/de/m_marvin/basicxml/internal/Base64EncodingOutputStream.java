@@ -0,0 +1,74 @@
+package de.m_marvin.basicxml.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Output stream which encodes the bytes written to it as base64 text and writes it to an character writer.<br>
+ * Closing the stream writes the final padding characters but does not close the writer.
+ */
+public class Base64EncodingOutputStream extends OutputStream {
+	
+	private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+	
+	private final Writer writer;
+	/** encoded characters waiting to be written to the writer */
+	private final char[] chars = new char[1024];
+	private int charCount = 0;
+	/** bytes of the incomplete group of three bytes */
+	private int bits = 0;
+	private int byteCount = 0;
+	private boolean closed = false;
+	
+	public Base64EncodingOutputStream(Writer writer) {
+		this.writer = writer;
+	}
+	
+	@Override
+	public void write(int b) throws IOException {
+		if (this.closed) throw new IOException("stream closed");
+		this.bits = (this.bits << 8) | (b & 0xFF);
+		if (++this.byteCount == 3) {
+			if (this.charCount + 4 > this.chars.length) flushChars();
+			this.chars[this.charCount++] = ALPHABET[(this.bits >> 18) & 0x3F];
+			this.chars[this.charCount++] = ALPHABET[(this.bits >> 12) & 0x3F];
+			this.chars[this.charCount++] = ALPHABET[(this.bits >> 6) & 0x3F];
+			this.chars[this.charCount++] = ALPHABET[this.bits & 0x3F];
+			this.bits = 0;
+			this.byteCount = 0;
+		}
+	}
+	
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		for (int i = off; i < off + len; i++) write(b[i]);
+	}
+	
+	private void flushChars() throws IOException {
+		this.writer.write(this.chars, 0, this.charCount);
+		this.charCount = 0;
+	}
+	
+	@Override
+	public void flush() throws IOException {
+		flushChars();
+		this.writer.flush();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if (this.closed) return;
+		if (this.byteCount > 0) {
+			if (this.charCount + 4 > this.chars.length) flushChars();
+			int b = this.bits << (8 * (3 - this.byteCount));
+			this.chars[this.charCount++] = ALPHABET[(b >> 18) & 0x3F];
+			this.chars[this.charCount++] = ALPHABET[(b >> 12) & 0x3F];
+			this.chars[this.charCount++] = this.byteCount == 2 ? ALPHABET[(b >> 6) & 0x3F] : '=';
+			this.chars[this.charCount++] = '=';
+		}
+		flushChars();
+		this.closed = true;
+	}
+	
+}
@@ -0,0 +1,269 @@
+package de.m_marvin.basicxml.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+/**
+ * Output buffer which encodes the characters directly into an byte buffer as UTF-8 or ASCII, without an intermediate character buffer.<br>
+ * The bytes are written to an output stream or an channel, large blocks of already encoded bytes are written to channels in one gathering write.<br>
+ * Characters which can not be encoded (unpaired surrogates or non ASCII characters in ASCII mode) are replaced with an question mark, like the JDK encoders do.
+ */
+public class ByteOutputBuffer extends OutputBuffer {
+
+	private static final int DEFAULT_CAPACITY = 16384;
+	private static final byte REPLACEMENT = '?';
+
+	/** target stream for the byte data, null if writing to an channel */
+	private final OutputStream stream;
+	/** target channel for the byte data, null if writing to an stream */
+	private final WritableByteChannel channel;
+	/** if only ASCII characters can be encoded */
+	private final boolean ascii;
+	private final int capacity;
+	private byte[] buffer;
+	private int position = 0;
+	/** position in the buffer at which characters can be inserted later, -1 if not set */
+	private int mark = -1;
+	/** high surrogate written as last character, waiting for the low surrogate, 0 if none */
+	private char highSurrogate = 0;
+
+	public ByteOutputBuffer(OutputStream stream, boolean ascii) {
+		this(stream, null, ascii, DEFAULT_CAPACITY);
+	}
+
+	public ByteOutputBuffer(WritableByteChannel channel, boolean ascii) {
+		this(null, channel, ascii, DEFAULT_CAPACITY);
+	}
+
+	public ByteOutputBuffer(OutputStream stream, WritableByteChannel channel, boolean ascii, int capacity) {
+		if (stream == null) Objects.requireNonNull(channel, "output stream and channel can not both be null");
+		this.stream = stream;
+		this.channel = channel;
+		this.ascii = ascii;
+		this.capacity = Math.max(capacity, 16);
+		this.buffer = new byte[this.capacity];
+	}
+
+	/**
+	 * Returns true if only ASCII characters can be encoded
+	 */
+	public boolean isAscii() {
+		return this.ascii;
+	}
+	
+	/**
+	 * Makes room for the number of bytes, by flushing the buffer or by growing it if an mark is set
+	 */
+	private void ensureSpace(int n) throws IOException {
+		if (this.position + n <= this.buffer.length) return;
+		if (this.mark < 0) {
+			flushBuffer();
+			if (n <= this.buffer.length) return;
+		}
+		byte[] buffer = new byte[Math.max(this.position + n, this.buffer.length * 2)];
+		System.arraycopy(this.buffer, 0, buffer, 0, this.position);
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Encodes an single character, handles everything except ASCII characters written without an pending surrogate
+	 */
+	private void encode(char c) throws IOException {
+		ensureSpace(4);
+		if (this.highSurrogate != 0) {
+			char high = this.highSurrogate;
+			this.highSurrogate = 0;
+			if (Character.isLowSurrogate(c)) {
+				if (this.ascii) {
+					this.buffer[this.position++] = REPLACEMENT;
+					return;
+				}
+				int codePoint = Character.toCodePoint(high, c);
+				this.buffer[this.position++] = (byte) (0xF0 | (codePoint >> 18));
+				this.buffer[this.position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+				this.buffer[this.position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+				this.buffer[this.position++] = (byte) (0x80 | (codePoint & 0x3F));
+				return;
+			}
+			this.buffer[this.position++] = REPLACEMENT;
+		}
+		if (c < 0x80) {
+			this.buffer[this.position++] = (byte) c;
+		} else if (Character.isHighSurrogate(c)) {
+			this.highSurrogate = c;
+		} else if (this.ascii || Character.isLowSurrogate(c)) {
+			this.buffer[this.position++] = REPLACEMENT;
+		} else if (c < 0x800) {
+			this.buffer[this.position++] = (byte) (0xC0 | (c >> 6));
+			this.buffer[this.position++] = (byte) (0x80 | (c & 0x3F));
+		} else {
+			this.buffer[this.position++] = (byte) (0xE0 | (c >> 12));
+			this.buffer[this.position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+			this.buffer[this.position++] = (byte) (0x80 | (c & 0x3F));
+		}
+	}
+
+	/**
+	 * Replaces an high surrogate which was not followed by an low surrogate
+	 */
+	private void replacePendingSurrogate() throws IOException {
+		if (this.highSurrogate == 0) return;
+		this.highSurrogate = 0;
+		ensureSpace(1);
+		this.buffer[this.position++] = REPLACEMENT;
+	}
+
+	@Override
+	public ByteOutputBuffer append(char c) throws IOException {
+		if (c < 0x80 && this.highSurrogate == 0 && this.position < this.buffer.length) {
+			this.buffer[this.position++] = (byte) c;
+		} else {
+			encode(c);
+		}
+		return this;
+	}
+
+	@Override
+	public ByteOutputBuffer append(CharSequence s, int start, int end) throws IOException {
+		if (s instanceof CharBuffer b && b.hasArray())
+			return append(b.array(), b.arrayOffset() + b.position() + start, end - start);
+		int i = start;
+		while (i < end) {
+			if (this.highSurrogate != 0 || this.position == this.buffer.length) {
+				encode(s.charAt(i++));
+				continue;
+			}
+			// copy ASCII characters directly, until the buffer is full or an other character is found
+			int runEnd = Math.min(end, i + this.buffer.length - this.position);
+			byte[] buffer = this.buffer;
+			int p = this.position;
+			char c = 0;
+			for (; i < runEnd && (c = s.charAt(i)) < 0x80; i++) buffer[p++] = (byte) c;
+			this.position = p;
+			if (i < runEnd) {
+				encode(c);
+				i++;
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public ByteOutputBuffer append(char[] cbuf, int off, int len) throws IOException {
+		int i = off;
+		int end = off + len;
+		while (i < end) {
+			if (this.highSurrogate != 0 || this.position == this.buffer.length) {
+				encode(cbuf[i++]);
+				continue;
+			}
+			// copy ASCII characters directly, until the buffer is full or an other character is found
+			int runEnd = Math.min(end, i + this.buffer.length - this.position);
+			byte[] buffer = this.buffer;
+			int p = this.position;
+			char c = 0;
+			for (; i < runEnd && (c = cbuf[i]) < 0x80; i++) buffer[p++] = (byte) c;
+			this.position = p;
+			if (i < runEnd) {
+				encode(c);
+				i++;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Appends already encoded bytes.<br>
+	 * Large blocks are not copied but written together with the buffered bytes, as one gathering write if the target is an channel.
+	 */
+	public ByteOutputBuffer appendBytes(ByteBuffer bytes) throws IOException {
+		int len = bytes.remaining();
+		replacePendingSurrogate();
+		if (len < this.buffer.length || this.mark >= 0) {
+			ensureSpace(len);
+			bytes.get(this.buffer, this.position, len);
+			this.position += len;
+			return this;
+		}
+		if (this.channel instanceof GatheringByteChannel gatheringChannel) {
+			ByteBuffer[] blocks = new ByteBuffer[] { ByteBuffer.wrap(this.buffer, 0, this.position), bytes };
+			while (blocks[1].hasRemaining()) gatheringChannel.write(blocks);
+			this.position = 0;
+		} else if (this.channel != null) {
+			flushBuffer();
+			while (bytes.hasRemaining()) this.channel.write(bytes);
+		} else {
+			flushBuffer();
+			if (bytes.hasArray()) {
+				this.stream.write(bytes.array(), bytes.arrayOffset() + bytes.position(), len);
+				bytes.position(bytes.limit());
+			} else {
+				while (bytes.hasRemaining()) {
+					int n = Math.min(bytes.remaining(), this.buffer.length);
+					bytes.get(this.buffer, 0, n);
+					this.stream.write(this.buffer, 0, n);
+				}
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public void mark() {
+		this.mark = this.position;
+	}
+
+	@Override
+	public void insertAtMark(char c) throws IOException {
+		if (this.mark < 0) throw new IllegalStateException("no position marked");
+		if (c >= 0x80) throw new IllegalArgumentException("only ASCII characters can be inserted");
+		ensureSpace(1);
+		System.arraycopy(this.buffer, this.mark, this.buffer, this.mark + 1, this.position - this.mark);
+		this.buffer[this.mark] = (byte) c;
+		this.position++;
+		this.mark = -1;
+	}
+
+	@Override
+	public void unmark() {
+		this.mark = -1;
+	}
+
+	@Override
+	public void flushBuffer() throws IOException {
+		this.mark = -1;
+		if (this.position == 0) return;
+		if (this.channel != null) {
+			ByteBuffer block = ByteBuffer.wrap(this.buffer, 0, this.position);
+			while (block.hasRemaining()) this.channel.write(block);
+		} else if (this.stream instanceof AsyncOutputStream asyncStream && this.buffer.length == asyncStream.blockSize()) {
+			// hand the buffer over to the flusher thread instead of copying it
+			this.buffer = asyncStream.submit(this.buffer, this.position);
+		} else {
+			this.stream.write(this.buffer, 0, this.position);
+		}
+		this.position = 0;
+		// release buffer grown while marked
+		if (this.buffer.length > this.capacity) this.buffer = new byte[this.capacity];
+	}
+
+	@Override
+	public void flush() throws IOException {
+		flushBuffer();
+		if (this.stream != null) this.stream.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		replacePendingSurrogate();
+		flushBuffer();
+		if (this.stream != null) this.stream.close();
+		if (this.channel != null) this.channel.close();
+	}
+
+}
@@ -0,0 +1,127 @@
+package de.m_marvin.basicxml.internal;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * Output buffer which collects the characters and writes them to an writer, used for encodings without an byte level implementation.
+ */
+public class CharOutputBuffer extends OutputBuffer {
+
+	private static final int DEFAULT_CAPACITY = 8192;
+
+	/** target writer for the character data */
+	private final Writer writer;
+	private final int capacity;
+	private char[] buffer;
+	private int position = 0;
+	/** position in the buffer at which characters can be inserted later, -1 if not set */
+	private int mark = -1;
+
+	public CharOutputBuffer(Writer writer) {
+		this(writer, DEFAULT_CAPACITY);
+	}
+
+	public CharOutputBuffer(Writer writer, int capacity) {
+		this.writer = writer;
+		this.capacity = Math.max(capacity, 16);
+		this.buffer = new char[this.capacity];
+	}
+
+	/**
+	 * Makes room for the number of characters, by flushing the buffer or by growing it if an mark is set
+	 */
+	private void ensureSpace(int n) throws IOException {
+		if (this.position + n <= this.buffer.length) return;
+		if (this.mark < 0) {
+			flushBuffer();
+			if (n <= this.buffer.length) return;
+		}
+		char[] buffer = new char[Math.max(this.position + n, this.buffer.length * 2)];
+		System.arraycopy(this.buffer, 0, buffer, 0, this.position);
+		this.buffer = buffer;
+	}
+
+	@Override
+	public CharOutputBuffer append(char c) throws IOException {
+		if (this.position == this.buffer.length) ensureSpace(1);
+		this.buffer[this.position++] = c;
+		return this;
+	}
+
+	@Override
+	public CharOutputBuffer append(CharSequence s, int start, int end) throws IOException {
+		if (s instanceof CharBuffer b && b.hasArray())
+			return append(b.array(), b.arrayOffset() + b.position() + start, end - start);
+		while (start < end) {
+			if (this.position == this.buffer.length) ensureSpace(this.mark < 0 ? 1 : end - start);
+			int n = Math.min(end - start, this.buffer.length - this.position);
+			if (s instanceof String str) {
+				str.getChars(start, start + n, this.buffer, this.position);
+			} else {
+				for (int i = 0; i < n; i++) this.buffer[this.position + i] = s.charAt(start + i);
+			}
+			this.position += n;
+			start += n;
+		}
+		return this;
+	}
+
+	@Override
+	public CharOutputBuffer append(char[] cbuf, int off, int len) throws IOException {
+		if (len >= this.buffer.length && this.mark < 0) {
+			// no need to copy large blocks
+			flushBuffer();
+			this.writer.write(cbuf, off, len);
+			return this;
+		}
+		ensureSpace(len);
+		System.arraycopy(cbuf, off, this.buffer, this.position, len);
+		this.position += len;
+		return this;
+	}
+
+	@Override
+	public void mark() {
+		this.mark = this.position;
+	}
+
+	@Override
+	public void insertAtMark(char c) throws IOException {
+		if (this.mark < 0) throw new IllegalStateException("no position marked");
+		ensureSpace(1);
+		System.arraycopy(this.buffer, this.mark, this.buffer, this.mark + 1, this.position - this.mark);
+		this.buffer[this.mark] = c;
+		this.position++;
+		this.mark = -1;
+	}
+
+	@Override
+	public void unmark() {
+		this.mark = -1;
+	}
+
+	@Override
+	public void flushBuffer() throws IOException {
+		this.mark = -1;
+		if (this.position == 0) return;
+		this.writer.write(this.buffer, 0, this.position);
+		this.position = 0;
+		// release buffer grown while marked
+		if (this.buffer.length > this.capacity) this.buffer = new char[this.capacity];
+	}
+
+	@Override
+	public void flush() throws IOException {
+		flushBuffer();
+		this.writer.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		flushBuffer();
+		this.writer.close();
+	}
+
+}
@@ -0,0 +1,22 @@
+package de.m_marvin.basicxml.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Byte array output stream which collects the data of an XML fragment, which can be read without copying it.
+ */
+public class FragmentOutputStream extends ByteArrayOutputStream {
+
+	public FragmentOutputStream(int size) {
+		super(size);
+	}
+
+	/**
+	 * Returns an byte buffer wrapping the written data, which stays valid until the stream is reset or written to again
+	 */
+	public ByteBuffer toByteBuffer() {
+		return ByteBuffer.wrap(this.buf, 0, this.count);
+	}
+
+}
@@ -0,0 +1,228 @@
+package de.m_marvin.basicxml.internal;
+
+import java.io.IOException;
+import java.nio.charset.CharsetEncoder;
+
+/**
+ * Buffer used by the XML output stream to assemble the XML data, which is then written to the target in large blocks.<br>
+ * Implements the escaping and formatting on top of the character appending operations of the implementations.
+ */
+public abstract class OutputBuffer {
+
+	protected static final int INDENTATION_TABLE_DEPTH = 64;
+	/** line feed followed by tabs, used to write the indentation with a single copy */
+	protected static final char[] INDENTATION = new char[INDENTATION_TABLE_DEPTH + 1];
+	static {
+		INDENTATION[0] = '\n';
+		for (int i = 1; i < INDENTATION.length; i++) INDENTATION[i] = '\t';
+	}
+	/** entity references for the ASCII characters which have to be escaped, null for all other characters */
+	private static final String[] REFERENCES = new String[0x80];
+	static {
+		REFERENCES['&'] = "&amp;";
+		REFERENCES['<'] = "&lt;";
+		REFERENCES['>'] = "&gt;";
+		REFERENCES['\''] = "&apos;";
+		REFERENCES['"'] = "&quot;";
+	}
+
+	/** number of closing brackets written directly before the current position inside an CDATA section */
+	private int cdataBrackets = 0;
+	/** encoder used to detect characters which can not be represented by the target encoding, null if not required */
+	private CharsetEncoder encoder = null;
+	/** scratch space in which primitive values are formatted before they are appended */
+	private final char[] primitiveBuffer = new char[PrimitiveFormatter.MAX_LENGTH];
+
+	/**
+	 * Sets the encoder used to find characters which can not be represented by the target encoding.<br>
+	 * These characters are replaced with numeric character references when escaping, null disables this check.
+	 */
+	public void setEncoder(CharsetEncoder encoder) {
+		this.encoder = encoder;
+	}
+	
+	public CharsetEncoder getEncoder() {
+		return this.encoder;
+	}
+
+	public abstract OutputBuffer append(char c) throws IOException;
+
+	public abstract OutputBuffer append(CharSequence s, int start, int end) throws IOException;
+
+	public abstract OutputBuffer append(char[] cbuf, int off, int len) throws IOException;
+
+	public OutputBuffer append(String s) throws IOException {
+		return append(s, 0, s.length());
+	}
+
+	/**
+	 * Appends an line feed followed by the number of tabs for the indentation depth
+	 */
+	public OutputBuffer appendIndentation(int depth) throws IOException {
+		append(INDENTATION, 0, Math.min(depth, INDENTATION_TABLE_DEPTH) + 1);
+		for (int i = INDENTATION_TABLE_DEPTH; i < depth; i++) append('\t');
+		return this;
+	}
+
+	/**
+	 * Appends an numeric character reference for the unicode code point
+	 */
+	public OutputBuffer appendCharacterReference(int codePoint) throws IOException {
+		return append("&#x").append(Integer.toHexString(codePoint).toUpperCase()).append(';');
+	}
+	
+	/**
+	 * Appends the int in decimal notation, without creating an string
+	 */
+	public OutputBuffer appendInt(int value) throws IOException {
+		return append(this.primitiveBuffer, 0, PrimitiveFormatter.formatInt(value, this.primitiveBuffer, 0));
+	}
+	
+	/**
+	 * Appends the long in decimal notation, without creating an string
+	 */
+	public OutputBuffer appendLong(long value) throws IOException {
+		return append(this.primitiveBuffer, 0, PrimitiveFormatter.formatLong(value, this.primitiveBuffer, 0));
+	}
+	
+	/**
+	 * Appends the double in the notation of {@link Double#toString(double)}, see {@link PrimitiveFormatter#formatDouble(double, char[], int)}
+	 */
+	public OutputBuffer appendDouble(double value) throws IOException {
+		return append(this.primitiveBuffer, 0, PrimitiveFormatter.formatDouble(value, this.primitiveBuffer, 0));
+	}
+	
+	/**
+	 * Appends the float in the notation of {@link Float#toString(float)}, see {@link PrimitiveFormatter#formatFloat(float, char[], int)}
+	 */
+	public OutputBuffer appendFloat(float value) throws IOException {
+		return append(this.primitiveBuffer, 0, PrimitiveFormatter.formatFloat(value, this.primitiveBuffer, 0));
+	}
+	
+	/**
+	 * Appends the boolean as true or false
+	 */
+	public OutputBuffer appendBoolean(boolean value) throws IOException {
+		return append(value ? "true" : "false");
+	}
+
+	/**
+	 * Appends the characters in the range, replacing the XML special characters with entity references in the same scan.<br>
+	 * If an encoder is set, characters it can not encode are replaced with numeric character references.<br>
+	 * If nothing has to be replaced, the characters are copied as one block.
+	 * @return true if the text contains an line break which is followed by further characters
+	 */
+	public boolean appendEscaped(CharSequence text, int start, int end) throws IOException {
+		boolean multiLine = false;
+		int f = start;
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			if (c < 0x80) {
+				String reference = REFERENCES[c];
+				if (reference == null) {
+					if (!multiLine && (c == '\n' || c == '\r'))
+						multiLine = i + 1 < end && !(c == '\r' && text.charAt(i + 1) == '\n' && i + 2 == end);
+					continue;
+				}
+				append(text, f, i).append(reference);
+				f = i + 1;
+			} else if (this.encoder != null) {
+				int length = unencodableLength(text, i, end);
+				if (length == 0) continue;
+				append(text, f, i).appendCharacterReference(Character.codePointAt(text, i));
+				i += length - 1;
+				f = i + 1;
+			}
+		}
+		append(text, f, end);
+		return multiLine;
+	}
+
+	/**
+	 * Returns the number of characters of the code point at the index if it can not be encoded, or 0 if it can be encoded.<br>
+	 * Incomplete surrogate pairs are left to the encoder.
+	 */
+	private int unencodableLength(CharSequence text, int index, int end) {
+		char c = text.charAt(index);
+		if (!Character.isSurrogate(c))
+			return this.encoder.canEncode(c) ? 0 : 1;
+		if (Character.isHighSurrogate(c) && index + 1 < end && Character.isLowSurrogate(text.charAt(index + 1)))
+			return this.encoder.canEncode(text.subSequence(index, index + 2)) ? 0 : 2;
+		return 0;
+	}
+
+	/**
+	 * Opens an new CDATA section
+	 */
+	public void beginCData() throws IOException {
+		append("<![CDATA[");
+		this.cdataBrackets = 0;
+	}
+
+	/**
+	 * Appends the characters in the range to the currently open CDATA section.<br>
+	 * Sequences which would end the section are split into two sections, even if they are spread over multiple calls.<br>
+	 * If an encoder is set, characters it can not encode are written as numeric character references between two sections.
+	 */
+	public void appendCData(CharSequence text, int start, int end) throws IOException {
+		int f = start;
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			if (c == ']') {
+				this.cdataBrackets++;
+				continue;
+			}
+			if (c == '>' && this.cdataBrackets >= 2) {
+				append(text, f, i).append("]]><![CDATA[");
+				f = i;
+			} else if (c >= 0x80 && this.encoder != null) {
+				int length = unencodableLength(text, i, end);
+				if (length > 0) {
+					append(text, f, i).append("]]>").appendCharacterReference(Character.codePointAt(text, i)).append("<![CDATA[");
+					i += length - 1;
+					f = i + 1;
+				}
+			}
+			this.cdataBrackets = 0;
+		}
+		append(text, f, end);
+	}
+
+	/**
+	 * Closes the currently open CDATA section
+	 */
+	public void endCData() throws IOException {
+		append("]]>");
+	}
+
+	/**
+	 * Marks the current position, until the mark is removed the buffer is not flushed and grows if necessary.
+	 */
+	public abstract void mark();
+
+	/**
+	 * Inserts an ASCII character at the marked position and removes the mark
+	 */
+	public abstract void insertAtMark(char c) throws IOException;
+
+	/**
+	 * Removes the mark, allowing the buffer to be flushed again
+	 */
+	public abstract void unmark();
+
+	/**
+	 * Writes the buffered data to the target, without flushing the target
+	 */
+	public abstract void flushBuffer() throws IOException;
+
+	/**
+	 * Writes the buffered data to the target and flushes it
+	 */
+	public abstract void flush() throws IOException;
+
+	/**
+	 * Writes the buffered data to the target and closes it
+	 */
+	public abstract void close() throws IOException;
+
+}
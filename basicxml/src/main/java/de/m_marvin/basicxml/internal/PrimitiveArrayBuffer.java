@@ -0,0 +1,140 @@
+package de.m_marvin.basicxml.internal;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+/**
+ * Growable buffer for an java primitive array, used to collect primitive values parsed from XML without boxing them.<br>
+ * Supports int, long, short, double, float and boolean arrays.
+ */
+public class PrimitiveArrayBuffer {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/** component type of the array */
+	private final Class<?> componentType;
+	/** the array holding the values, only valid up to size */
+	private Object array;
+	private int size;
+
+	public PrimitiveArrayBuffer(Class<?> componentType) {
+		this(componentType, DEFAULT_CAPACITY);
+	}
+
+	public PrimitiveArrayBuffer(Class<?> componentType, int capacity) {
+		if (!isPrimitiveComponent(componentType))
+			throw new IllegalArgumentException("not an supported primitive array component type: " + componentType);
+		this.componentType = componentType;
+		this.array = Array.newInstance(componentType, Math.max(capacity, 1));
+	}
+
+	/**
+	 * Returns true if the type is an supported component type for primitive arrays
+	 */
+	public static boolean isPrimitiveComponent(Class<?> type) {
+		return type == int.class || type == long.class || type == short.class || type == double.class || type == float.class || type == boolean.class;
+	}
+
+	/**
+	 * Returns true if the type is an supported primitive array type
+	 */
+	public static boolean isPrimitiveArray(Class<?> type) {
+		return type.isArray() && isPrimitiveComponent(type.getComponentType());
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private void ensureCapacity(int capacity) {
+		int length = Array.getLength(this.array);
+		if (capacity <= length) return;
+		int newLength = Math.max(capacity, length * 2);
+		if (this.array instanceof int[] a) this.array = Arrays.copyOf(a, newLength);
+		else if (this.array instanceof long[] a) this.array = Arrays.copyOf(a, newLength);
+		else if (this.array instanceof short[] a) this.array = Arrays.copyOf(a, newLength);
+		else if (this.array instanceof double[] a) this.array = Arrays.copyOf(a, newLength);
+		else if (this.array instanceof float[] a) this.array = Arrays.copyOf(a, newLength);
+		else if (this.array instanceof boolean[] a) this.array = Arrays.copyOf(a, newLength);
+	}
+
+	/**
+	 * Parses the characters in the range as single value and appends it to the array
+	 */
+	public PrimitiveArrayBuffer append(CharSequence text, int start, int end) {
+		ensureCapacity(this.size + 1);
+		if (this.array instanceof int[] a) a[this.size] = PrimitiveParser.parseInt(text, start, end);
+		else if (this.array instanceof double[] a) a[this.size] = PrimitiveParser.parseDouble(text, start, end);
+		else if (this.array instanceof long[] a) a[this.size] = PrimitiveParser.parseLong(text, start, end);
+		else if (this.array instanceof float[] a) a[this.size] = PrimitiveParser.parseFloat(text, start, end);
+		else if (this.array instanceof short[] a) a[this.size] = PrimitiveParser.parseShort(text, start, end);
+		else if (this.array instanceof boolean[] a) a[this.size] = PrimitiveParser.parseBoolean(text, start, end);
+		this.size++;
+		return this;
+	}
+
+	/**
+	 * Parses the text as single value and appends it to the array
+	 */
+	public PrimitiveArrayBuffer append(CharSequence text) {
+		return append(text, 0, text.length());
+	}
+
+	/**
+	 * Parses the text as list of white space separated values and appends them to the array
+	 */
+	public PrimitiveArrayBuffer appendList(CharSequence text) {
+		int i = 0;
+		int len = text.length();
+		while (i < len) {
+			while (i < len && Character.isWhitespace(text.charAt(i))) i++;
+			if (i == len) break;
+			int start = i;
+			while (i < len && !Character.isWhitespace(text.charAt(i))) i++;
+			append(text, start, i);
+		}
+		return this;
+	}
+
+	/**
+	 * Returns an array of the exact size containing all values appended to this buffer
+	 */
+	public Object toArray() {
+		if (Array.getLength(this.array) == this.size) return this.array;
+		Object trimmed = Array.newInstance(this.componentType, this.size);
+		System.arraycopy(this.array, 0, trimmed, 0, this.size);
+		return trimmed;
+	}
+
+	/**
+	 * Formats the value at the index of the primitive array as string
+	 */
+	public static String elementString(Object array, int index) {
+		if (array instanceof int[] a) return Integer.toString(a[index]);
+		if (array instanceof double[] a) return Double.toString(a[index]);
+		if (array instanceof long[] a) return Long.toString(a[index]);
+		if (array instanceof float[] a) return Float.toString(a[index]);
+		if (array instanceof short[] a) return Short.toString(a[index]);
+		if (array instanceof boolean[] a) return Boolean.toString(a[index]);
+		throw new IllegalArgumentException("not an supported primitive array: " + array.getClass());
+	}
+
+	/**
+	 * Formats the primitive array as list of white space separated values
+	 */
+	public static String listString(Object array) {
+		int length = Array.getLength(array);
+		StringBuilder buffer = new StringBuilder(length * 4);
+		for (int i = 0; i < length; i++) {
+			if (i > 0) buffer.append(' ');
+			if (array instanceof int[] a) buffer.append(a[i]);
+			else if (array instanceof double[] a) buffer.append(a[i]);
+			else if (array instanceof long[] a) buffer.append(a[i]);
+			else if (array instanceof float[] a) buffer.append(a[i]);
+			else if (array instanceof short[] a) buffer.append(a[i]);
+			else if (array instanceof boolean[] a) buffer.append(a[i]);
+		}
+		return buffer.toString();
+	}
+
+}
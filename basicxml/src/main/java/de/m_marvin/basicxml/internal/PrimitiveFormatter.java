@@ -0,0 +1,154 @@
+package de.m_marvin.basicxml.internal;
+
+/**
+ * Formats java primitives directly into an character array, without creating an string or boxed value.<br>
+ * Produces the same format as the methods of the boxed types, uncommon values are delegated to them.
+ */
+public class PrimitiveFormatter {
+
+	/** maximum number of characters written by the format methods */
+	public static final int MAX_LENGTH = 32;
+
+	private static final double[] DOUBLE_POW10 = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17
+	};
+	private static final float[] FLOAT_POW10 = {
+			1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+	};
+	private static final long[] LONG_POW10 = {
+			1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L, 10000000000L,
+			100000000000L, 1000000000000L, 10000000000000L, 100000000000000L, 1000000000000000L,
+			10000000000000000L, 100000000000000000L, 1000000000000000000L
+	};
+	/** largest integer below which all integers can be represented exactly as double */
+	private static final long DOUBLE_EXACT_LIMIT = 1L << 53;
+	/** largest integer below which all integers can be represented exactly as float */
+	private static final long FLOAT_EXACT_LIMIT = 1L << 24;
+
+	private PrimitiveFormatter() {}
+
+	private static int copy(String s, char[] buf, int off) {
+		s.getChars(0, s.length(), buf, off);
+		return off + s.length();
+	}
+
+	/**
+	 * Writes the digits of an positive number ending at the end position
+	 */
+	private static void writeDigits(long value, char[] buf, int end) {
+		do {
+			buf[--end] = (char) ('0' + value % 10);
+			value /= 10;
+		} while (value != 0);
+	}
+
+	private static int digitCount(long value) {
+		int n = 1;
+		while (n < 19 && value >= LONG_POW10[n]) n++;
+		return n;
+	}
+
+	/**
+	 * Formats an long like {@link Long#toString(long)}
+	 * @return The end position of the written characters
+	 */
+	public static int formatLong(long value, char[] buf, int off) {
+		if (value == Long.MIN_VALUE) return copy(Long.toString(value), buf, off);
+		if (value < 0) {
+			buf[off++] = '-';
+			value = -value;
+		}
+		int end = off + digitCount(value);
+		writeDigits(value, buf, end);
+		return end;
+	}
+
+	/**
+	 * Formats an int like {@link Integer#toString(int)}
+	 * @return The end position of the written characters
+	 */
+	public static int formatInt(int value, char[] buf, int off) {
+		return formatLong(value, buf, off);
+	}
+
+	/**
+	 * Formats an boolean like {@link Boolean#toString(boolean)}
+	 * @return The end position of the written characters
+	 */
+	public static int formatBoolean(boolean value, char[] buf, int off) {
+		return copy(value ? "true" : "false", buf, off);
+	}
+
+	/**
+	 * Writes the decimal number digits * 10^-fractionDigits in plain notation with at least one fraction digit
+	 */
+	private static int formatDecimal(boolean negative, long digits, int fractionDigits, char[] buf, int off) {
+		if (negative) buf[off++] = '-';
+		long integer = digits / LONG_POW10[fractionDigits];
+		long fraction = digits % LONG_POW10[fractionDigits];
+		off = formatLong(integer, buf, off);
+		buf[off++] = '.';
+		if (fractionDigits == 0) {
+			buf[off++] = '0';
+			return off;
+		}
+		int end = off + fractionDigits;
+		for (int i = off; i < end; i++) buf[i] = '0';
+		if (fraction != 0) writeDigits(fraction, buf, end);
+		return end;
+	}
+
+	/**
+	 * Formats an double in the same notation as {@link Double#toString(double)}, using the shortest decimal representation which parses back to the same value.<br>
+	 * For values written in plain notation, the shortest representation is searched by scaling the value with increasing powers of ten,
+	 * until the nearest integer converts back to the value exactly. As long as the integer and the power of ten are both exactly representable as double,
+	 * this conversion is an single correctly rounded division, equal to parsing the decimal representation.<br>
+	 * Values in scientific notation, values with too many significant digits and special values are delegated to {@link Double#toString(double)}.
+	 * @return The end position of the written characters
+	 */
+	public static int formatDouble(double value, char[] buf, int off) {
+		boolean negative = Double.doubleToRawLongBits(value) < 0;
+		double abs = Math.abs(value);
+		if (abs == 0) return copy(negative ? "-0.0" : "0.0", buf, off);
+		// Double.toString uses plain notation in this range, NaN and infinity also fail this check
+		if (abs >= 1e-3 && abs < 1e7) {
+			for (int k = 0; k < DOUBLE_POW10.length; k++) {
+				double scaled = abs * DOUBLE_POW10[k];
+				if (scaled >= DOUBLE_EXACT_LIMIT - 1) break;
+				// ties to even, like the boxed types pick between two equally close representations
+				long digits = (long) Math.rint(scaled);
+				if (digits / DOUBLE_POW10[k] == abs) return formatDecimal(negative, digits, k, buf, off);
+				// the product might have been rounded to the wrong side, check the neighbors too
+				if ((digits - 1) / DOUBLE_POW10[k] == abs) return formatDecimal(negative, digits - 1, k, buf, off);
+				if ((digits + 1) / DOUBLE_POW10[k] == abs) return formatDecimal(negative, digits + 1, k, buf, off);
+			}
+		}
+		return copy(Double.toString(value), buf, off);
+	}
+
+	/**
+	 * Formats an float in the same notation as {@link Float#toString(float)}, see {@link #formatDouble(double, char[], int)}.
+	 * @return The end position of the written characters
+	 */
+	public static int formatFloat(float value, char[] buf, int off) {
+		boolean negative = Float.floatToRawIntBits(value) < 0;
+		float abs = Math.abs(value);
+		if (abs == 0) return copy(negative ? "-0.0" : "0.0", buf, off);
+		// Float.toString uses plain notation in this range, NaN and infinity also fail this check
+		if (abs >= 1e-3f && abs < 1e7f) {
+			for (int k = 0; k < FLOAT_POW10.length; k++) {
+				double scaled = (double) abs * DOUBLE_POW10[k];
+				if (scaled >= FLOAT_EXACT_LIMIT - 1) break;
+				// ties to even, like the boxed types pick between two equally close representations
+				long digits = (long) Math.rint(scaled);
+				if ((float) digits / FLOAT_POW10[k] == abs) return formatDecimal(negative, digits, k, buf, off);
+				// the product might have been rounded to the wrong side, check the neighbors too
+				if ((float) (digits - 1) / FLOAT_POW10[k] == abs) return formatDecimal(negative, digits - 1, k, buf, off);
+				if ((float) (digits + 1) / FLOAT_POW10[k] == abs) return formatDecimal(negative, digits + 1, k, buf, off);
+			}
+		}
+		return copy(Float.toString(value), buf, off);
+	}
+
+}
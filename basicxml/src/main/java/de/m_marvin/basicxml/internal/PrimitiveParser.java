@@ -0,0 +1,156 @@
+package de.m_marvin.basicxml.internal;
+
+/**
+ * Parses java primitives directly from an range of characters, without creating an string or boxed value.<br>
+ * Accepts the same input as the methods of the boxed types, uncommon formats are delegated to them.
+ */
+public class PrimitiveParser {
+
+	private static final double[] DOUBLE_POW10 = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	private static final float[] FLOAT_POW10 = {
+			1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+	};
+
+	private PrimitiveParser() {}
+
+	private static NumberFormatException numberFormatException(CharSequence s, int start, int end) {
+		return new NumberFormatException("For input string: \"" + s.subSequence(start, end) + "\"");
+	}
+
+	/**
+	 * Parses an signed decimal integer and checks it against the bounds, behaves like {@link Long#parseLong(String)}
+	 */
+	private static long parseInteger(CharSequence s, int start, int end, long min, long max) {
+		if (start >= end) throw numberFormatException(s, start, end);
+		int i = start;
+		boolean negative = false;
+		char first = s.charAt(i);
+		if (first == '-' || first == '+') {
+			negative = first == '-';
+			if (++i == end) throw numberFormatException(s, start, end);
+		}
+		// accumulate negative to be able to represent the minimum value
+		long limit = negative ? min : -max;
+		long multiplyLimit = limit / 10;
+		long result = 0;
+		for (; i < end; i++) {
+			int digit = s.charAt(i) - '0';
+			if (digit < 0 || digit > 9 || result < multiplyLimit) throw numberFormatException(s, start, end);
+			result *= 10;
+			if (result < limit + digit) throw numberFormatException(s, start, end);
+			result -= digit;
+		}
+		return negative ? result : -result;
+	}
+
+	public static long parseLong(CharSequence s, int start, int end) {
+		return parseInteger(s, start, end, Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	public static int parseInt(CharSequence s, int start, int end) {
+		return (int) parseInteger(s, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	public static short parseShort(CharSequence s, int start, int end) {
+		return (short) parseInteger(s, start, end, Short.MIN_VALUE, Short.MAX_VALUE);
+	}
+
+	/**
+	 * Parses an boolean, behaves like {@link Boolean#parseBoolean(String)}
+	 */
+	public static boolean parseBoolean(CharSequence s, int start, int end) {
+		if (end - start != 4) return false;
+		return (s.charAt(start) | 0x20) == 't' && (s.charAt(start + 1) | 0x20) == 'r' && (s.charAt(start + 2) | 0x20) == 'u' && (s.charAt(start + 3) | 0x20) == 'e';
+	}
+
+	/**
+	 * Parses an decimal floating point number.<br>
+	 * If the number has few enough significant digits and an small exponent, the value can be calculated exactly from the digits and an power of ten.
+	 * In any other case, the parsing is delegated to {@link Double#parseDouble(String)}.
+	 */
+	public static double parseDouble(CharSequence s, int start, int end) {
+		long mantissa = parseMantissa(s, start, end, 15, 22);
+		if (mantissa == FALLBACK) return Double.parseDouble(s.subSequence(start, end).toString());
+		int exponent = (int) (mantissa & 0xFF) - 128;
+		boolean negative = (mantissa & 0x100) != 0;
+		double value = mantissa >>> 9;
+		value = exponent < 0 ? value / DOUBLE_POW10[-exponent] : value * DOUBLE_POW10[exponent];
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parses an decimal floating point number, see {@link #parseDouble(CharSequence, int, int)}
+	 */
+	public static float parseFloat(CharSequence s, int start, int end) {
+		long mantissa = parseMantissa(s, start, end, 7, 10);
+		if (mantissa == FALLBACK) return Float.parseFloat(s.subSequence(start, end).toString());
+		int exponent = (int) (mantissa & 0xFF) - 128;
+		boolean negative = (mantissa & 0x100) != 0;
+		float value = mantissa >>> 9;
+		value = exponent < 0 ? value / FLOAT_POW10[-exponent] : value * FLOAT_POW10[exponent];
+		return negative ? -value : value;
+	}
+
+	private static final long FALLBACK = -1;
+
+	/**
+	 * Parses the significant digits and decimal exponent of an plain decimal number.<br>
+	 * Returns the digits shifted by 9 bits, the sign in bit 8 and the exponent + 128 in the lowest 8 bits, or {@link #FALLBACK} if the limits are exceeded or the format is not plain decimal.
+	 */
+	private static long parseMantissa(CharSequence s, int start, int end, int maxDigits, int maxExponent) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+			negative = s.charAt(i) == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean anyDigit = false;
+		boolean fraction = false;
+		for (; i < end; i++) {
+			char c = s.charAt(i);
+			if (c == '.') {
+				if (fraction) return FALLBACK;
+				fraction = true;
+				continue;
+			}
+			if (c < '0' || c > '9') break;
+			anyDigit = true;
+			if (fraction) exponent--;
+			// leading zeros are not significant
+			if (mantissa == 0 && c == '0') continue;
+			if (++digits > maxDigits) return FALLBACK;
+			mantissa = mantissa * 10 + (c - '0');
+		}
+		if (!anyDigit) return FALLBACK;
+
+		if (i < end && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+				negativeExponent = s.charAt(i) == '-';
+				i++;
+			}
+			if (i == end) return FALLBACK;
+			int explicitExponent = 0;
+			for (; i < end; i++) {
+				char c = s.charAt(i);
+				if (c < '0' || c > '9' || explicitExponent > 1000) return FALLBACK;
+				explicitExponent = explicitExponent * 10 + (c - '0');
+			}
+			exponent += negativeExponent ? -explicitExponent : explicitExponent;
+		}
+		if (i != end) return FALLBACK;
+
+		if (mantissa == 0) exponent = 0;
+		if (exponent < -maxExponent || exponent > maxExponent) return FALLBACK;
+		return (mantissa << 9) | (negative ? 0x100 : 0) | (exponent + 128);
+	}
+
+}
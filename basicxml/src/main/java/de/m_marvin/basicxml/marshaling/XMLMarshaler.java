@@ -1,42 +1,113 @@
 package de.m_marvin.basicxml.marshaling;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
+import de.m_marvin.basicxml.TagTemplate;
 import de.m_marvin.basicxml.XMLException;
 import de.m_marvin.basicxml.XMLOutputStream;
 import de.m_marvin.basicxml.XMLStream.DescType;
 import de.m_marvin.basicxml.XMLStream.ElementDescriptor;
-import de.m_marvin.basicxml.marshaling.annotations.XMLCDATA;
+import de.m_marvin.basicxml.internal.PrimitiveArrayBuffer;
+import de.m_marvin.basicxml.marshaling.adapter.XMLStreamFieldAdapter;
 import de.m_marvin.basicxml.marshaling.annotations.XMLField;
 import de.m_marvin.basicxml.marshaling.annotations.XMLRootType;
 import de.m_marvin.basicxml.marshaling.annotations.XMLType;
-import de.m_marvin.basicxml.marshaling.internal.NamespaceMap;
-import de.m_marvin.basicxml.marshaling.internal.NamespaceMap.Entry;
+import de.m_marvin.basicxml.marshaling.binding.XMLBindingWriter;
 import de.m_marvin.basicxml.marshaling.internal.NamespaceMap.Key;
 import de.m_marvin.basicxml.marshaling.internal.XMLClassField;
+import de.m_marvin.basicxml.marshaling.internal.XMLClassField.FieldType;
 import de.m_marvin.basicxml.marshaling.internal.XMLClassType;
+import de.m_marvin.basicxml.marshaling.internal.XMLTypeRegistry;
 
 public class XMLMarshaler {
 
-	private final Map<Class<?>, XMLClassType<?, ?>> types = new HashMap<>();
+	private final XMLTypeRegistry types;
+	/** the namespaces of all element fields of the registered types, null until they are first needed */
+	private volatile Set<URI> namespaces = null;
+	/** if all namespaces should be declared on the root element */
+	private boolean hoistNamespaces = false;
+	/** minimum number of items in an element collection to marshal it in parallel, 0 if disabled */
+	private int parallelThreshold = 0;
+	/** pool on which element collections are marshaled in parallel, null for the common pool */
+	private ForkJoinPool parallelPool = null;
 	
+	/** number of collection items marshaled into each fragment when marshaling in parallel */
+	private static final int PARALLEL_CHUNK_SIZE = 256;
+	
+	/**
+	 * Creates an marshaler for the root types and the XML types declared in them.<br>
+	 * The types are resolved when they are first marshaled, use {@link #warmUp()} to resolve them in advance.
+	 * @param ignoreNamespaces If the namespaces of the fields should be ignored when looking them up
+	 * @param types The XML root types
+	 */
 	public XMLMarshaler(boolean ignoreNamespaces, Class<?>... types) {
-		for (Class<?> type : types) {
-			resolveTypeObjects(type, null, ignoreNamespaces);
-		}
+		this.types = new XMLTypeRegistry(ignoreNamespaces, types);
+	}
+	
+	/**
+	 * Resolves all registered types in advance, instead of when they are first marshaled.<br>
+	 * This moves the cost of examining the types out of the first marshal calls, and reports invalid types immediately.
+	 * @throws IllegalArgumentException If an type is not a valid XML type
+	 * @throws LayerInstantiationException If an type or type adapter can not be constructed
+	 */
+	public void warmUp() {
+		this.types.resolveAll();
+		namespaces();
 	}
 	
-	private void resolveTypeObjects(Class<?> type, Class<?> parent, boolean ignoreNamespace) {
-		var typeObj = XMLClassType.makeFromClass(type, parent, ignoreNamespace);
-		this.types.put(type, typeObj);
-		for (Class<?> subTypes : typeObj.subTypes()) {
-			resolveTypeObjects(subTypes, type, ignoreNamespace);
+	/**
+	 * Returns the namespaces of the element fields of all registered types, which requires all types to be resolved
+	 */
+	private Set<URI> namespaces() {
+		Set<URI> namespaces = this.namespaces;
+		if (namespaces == null) {
+			namespaces = new LinkedHashSet<>();
+			for (Class<?> type : this.types.registeredTypes())
+				for (Key elementKey : this.types.get(type).elements().keySet())
+					if (elementKey.namespace() != null) namespaces.add(elementKey.namespace());
+			this.namespaces = namespaces = Collections.unmodifiableSet(namespaces);
 		}
+		return namespaces;
+	}
+	
+	/**
+	 * Sets if the namespaces used by the registered types should be declared in advance on the root element.<br>
+	 * Otherwise they are declared on the first element using them, and have to be declared again on every element outside of its scope.
+	 * For documents with many elements in such namespaces, this reduces the size of the XML data considerably.<br>
+	 * The namespaces are collected from the element fields of all registered types, even if they do not appear in the document.
+	 * @param hoistNamespaces True if all namespaces should be declared on the root element
+	 */
+	public void setHoistNamespaces(boolean hoistNamespaces) {
+		this.hoistNamespaces = hoistNamespaces;
+	}
+	
+	/**
+	 * Sets the minimum number of items an element collection needs to be marshaled in parallel.<br>
+	 * The items are split into chunks which are marshaled concurrently into fragments of the XML stream (see {@link XMLOutputStream#createFragment()}),
+	 * the fragments are then written to the stream in the order of the items.
+	 * Since the chunks are independent of the number of threads, the output does not depend on the parallelism.<br>
+	 * Only collections of XML type objects are marshaled in parallel, the objects must not be modified while they are marshaled.
+	 * If an custom namespace id provider is used, it has to be thread safe.
+	 * @param parallelThreshold The minimum number of items, or 0 to always marshal sequentially (the default)
+	 * @param pool The pool on which the chunks are marshaled, or null to use the common pool
+	 */
+	public void setParallelMarshaling(int parallelThreshold, ForkJoinPool pool) {
+		if (parallelThreshold < 0) throw new IllegalArgumentException("threshold can not be negative");
+		this.parallelThreshold = parallelThreshold;
+		this.parallelPool = pool;
 	}
 	
 	public <T> void marshal(XMLOutputStream xmlStream, T object) throws XMLMarshalingException, IOException, XMLException {
@@ -48,25 +119,127 @@ public class XMLMarshaler {
 		if (xmlRootAnnotation == null)
 			throw new XMLMarshalingException("class is not annotated as XML root type");
 		
-		URI namespace = null;
-		if (!xmlRootAnnotation.namespace().equals(XMLField.NULL_STR))
-			try {
-				namespace = new URI(xmlRootAnnotation.namespace());
-			} catch (URISyntaxException e) {
-				throw new IllegalArgumentException("supplied namspace is not a vald URI: " + xmlRootAnnotation.namespace(), e);
-			}
+		URI namespace = rootNamespace(xmlRootAnnotation);
+		
+		// the stream is closed even if marshaling fails, which also ends the background writes of asynchronous output
+		try (xmlStream) {
+			if (this.hoistNamespaces)
+				for (URI elementNamespace : namespaces())
+					xmlStream.declareNamespace(elementNamespace);
+			
+			writeElementObject(xmlStream, namespace, xmlRootAnnotation.value(), object);
+		}
+		
+	}
+	
+	private static URI rootNamespace(XMLRootType xmlRootAnnotation) {
+		if (xmlRootAnnotation.namespace().equals(XMLField.NULL_STR)) return null;
+		try {
+			return new URI(xmlRootAnnotation.namespace());
+		} catch (URISyntaxException e) {
+			throw new IllegalArgumentException("supplied namspace is not a vald URI: " + xmlRootAnnotation.namespace(), e);
+		}
+	}
+	
+	/**
+	 * Opens an sequence of elements, the root element is named after the XML root type annotation of the supplied class.<br>
+	 * See {@link #openSequence(XMLOutputStream, URI, String)}
+	 * @param rootType The class annotated with the name of the root element
+	 * @return The writer to which the items are passed
+	 * @throws XMLMarshalingException
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public XMLSequenceWriter openSequence(XMLOutputStream xmlStream, Class<?> rootType) throws XMLMarshalingException, IOException, XMLException {
 		
-		writeElementObject(xmlStream, namespace, xmlRootAnnotation.value(), object);
+		XMLRootType xmlRootAnnotation = rootType.getAnnotation(XMLRootType.class);
+		if (xmlRootAnnotation == null)
+			throw new XMLMarshalingException("class is not annotated as XML root type");
 		
-		xmlStream.close();
+		return openSequence(xmlStream, rootNamespace(xmlRootAnnotation), xmlRootAnnotation.value());
+		
+	}
+	
+	/**
+	 * Opens an sequence of elements, by writing the opening tag of the root element.<br>
+	 * The items are then marshaled one at a time as they are passed to the returned writer,
+	 * so they do not have to be held in memory together, for example when exporting the rows of an database table.<br>
+	 * Closing the writer writes the closing tag of the root element and closes the XML stream.
+	 * The writer has to be closed even if marshaling an item fails, for example by opening it in an try-with-resources statement.
+	 * @param namespace The namespace of the root element, or null
+	 * @param name The name of the root element
+	 * @return The writer to which the items are passed
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public XMLSequenceWriter openSequence(XMLOutputStream xmlStream, URI namespace, String name) throws IOException, XMLException {
+		
+		try {
+			if (this.hoistNamespaces)
+				for (URI elementNamespace : namespaces())
+					xmlStream.declareNamespace(elementNamespace);
+			
+			xmlStream.writeNext(new ElementDescriptor(DescType.OPEN, namespace, name, null));
+		} catch (IOException | XMLException | RuntimeException e) {
+			// no writer is returned which could close the stream
+			try {
+				xmlStream.close();
+			} catch (IOException closeException) {
+				e.addSuppressed(closeException);
+			}
+			throw e;
+		}
+		return new XMLSequenceWriter(this, xmlStream, namespace, name);
 		
 	}
 	
 	protected <T, P> void writeElement(XMLOutputStream xmlStream, URI namespace, String name, XMLClassField<T, P> xmlField, Object xmlClassObject) throws XMLMarshalingException, IOException, XMLException {
 		
+		if (xmlField.fieldType() == FieldType.PRIMITIVE_ARRAY) {
+			Object array = xmlField.queryArray(xmlClassObject);
+			if (array == null) return;
+			boolean useCData = xmlField.useCData();
+			for (int i = 0; i < Array.getLength(array); i++) {
+				// write element text data without boxing the value
+				ElementDescriptor openingElement = new ElementDescriptor(DescType.OPEN, namespace, name, null);
+				xmlStream.writeNext(openingElement);
+				if (useCData)
+					xmlStream.writeAllText(PrimitiveArrayBuffer.elementString(array, i), useCData);
+				else
+					XMLClassField.writeArrayElement(xmlStream, array, i);
+				ElementDescriptor closingElement = new ElementDescriptor(DescType.CLOSE, namespace, name, null);
+				xmlStream.writeNext(closingElement);
+			}
+			return;
+		}
+		
+		if (xmlField.isJavaPrimitive() && !xmlField.useCData()) {
+			// write element text data without boxing the value
+			ElementDescriptor openingElement = new ElementDescriptor(DescType.OPEN, namespace, name, null);
+			xmlStream.writeNext(openingElement);
+			xmlField.writePrimitive(xmlClassObject, xmlStream, null);
+			ElementDescriptor closingElement = new ElementDescriptor(DescType.CLOSE, namespace, name, null);
+			xmlStream.writeNext(closingElement);
+			return;
+		}
+		
 		T[] value = xmlField.query(xmlClassObject, name);
 		
-		if (xmlField.adapter() != null || xmlField.isPrimitive()) {
+		if (xmlField.isStream()) {
+			boolean useCData = xmlField.useCData();
+			for (T elementValue : value) {
+				if (elementValue == null) continue;
+				// sink fields only receive data when unmarshaling
+				if (xmlField.adapter() == null && xmlField.streamType().isSink()) continue;
+				
+				// stream element text data
+				ElementDescriptor openingElement = new ElementDescriptor(DescType.OPEN, namespace, name, null);
+				xmlStream.writeNext(openingElement);
+				writeStreamText(xmlStream, xmlField, elementValue, useCData);
+				ElementDescriptor closingElement = new ElementDescriptor(DescType.CLOSE, namespace, name, null);
+				xmlStream.writeNext(closingElement);
+			}
+		} else if (xmlField.adapter() != null || xmlField.isPrimitive()) {
 			for (T elementValue : value) {
 				if (elementValue == null) continue;
 				String elementValueStr = xmlField.adapter() != null ? 
@@ -76,11 +249,13 @@ public class XMLMarshaler {
 				// write element text data
 				ElementDescriptor openingElement = new ElementDescriptor(DescType.OPEN, namespace, name, null);
 				xmlStream.writeNext(openingElement);
-				boolean useCData = xmlField.field().isAnnotationPresent(XMLCDATA.class);
+				boolean useCData = xmlField.useCData();
 				xmlStream.writeAllText(elementValueStr, useCData);
 				ElementDescriptor closingElement = new ElementDescriptor(DescType.CLOSE, namespace, name, null);
 				xmlStream.writeNext(closingElement);
 			}
+		} else if (this.parallelThreshold > 0 && value.length >= this.parallelThreshold && ForkJoinTask.getPool() != parallelPool()) {
+			writeElementObjectsParallel(xmlStream, namespace, name, value);
 		} else {
 			for (T elementValue : value) {
 				if (elementValue == null) continue;
@@ -91,6 +266,112 @@ public class XMLMarshaler {
 		
 	}
 	
+	private ForkJoinPool parallelPool() {
+		return this.parallelPool != null ? this.parallelPool : ForkJoinPool.commonPool();
+	}
+	
+	/**
+	 * Marshals the elements in chunks on the fork join pool into fragments of the stream, which are then written in order.<br>
+	 * Collections nested in the elements are marshaled sequentially, since they are already on the pool.
+	 */
+	protected <T> void writeElementObjectsParallel(XMLOutputStream xmlStream, URI namespace, String name, T[] values) throws XMLMarshalingException, IOException, XMLException {
+		
+		ForkJoinPool pool = parallelPool();
+		// limit the number of completed fragments waiting in memory
+		int maxPending = Math.max(2, pool.getParallelism() * 2);
+		Deque<ForkJoinTask<XMLOutputStream>> pending = new ArrayDeque<>(maxPending);
+		
+		try {
+			int next = 0;
+			while (next < values.length || !pending.isEmpty()) {
+				while (next < values.length && pending.size() < maxPending) {
+					XMLOutputStream fragment = xmlStream.createFragment();
+					int start = next;
+					int end = Math.min(values.length, start + PARALLEL_CHUNK_SIZE);
+					pending.add(pool.submit(() -> {
+						for (int i = start; i < end; i++) {
+							if (values[i] == null) continue;
+							writeElementObject(fragment, namespace, name, values[i]);
+						}
+						return fragment;
+					}));
+					next = end;
+				}
+				xmlStream.writeFragment(joinFragment(pending.poll()));
+			}
+		} finally {
+			for (ForkJoinTask<XMLOutputStream> task : pending) task.cancel(false);
+		}
+		
+	}
+	
+	private XMLOutputStream joinFragment(ForkJoinTask<XMLOutputStream> task) throws XMLMarshalingException, IOException, XMLException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while marshaling in parallel");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof XMLMarshalingException marshalingException) throw marshalingException;
+			if (cause instanceof XMLException xmlException) throw xmlException;
+			if (cause instanceof IOException ioException) throw ioException;
+			if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+			if (cause instanceof Error error) throw error;
+			throw new XMLMarshalingException("failed to marshal fragment", e);
+		}
+	}
+	
+	protected <T> void writeStreamText(XMLOutputStream xmlStream, XMLClassField<T, ?> xmlField, T value, boolean useCData) throws IOException, XMLException {
+		
+		try (Writer writer = xmlStream.openTextWriter(useCData)) {
+			if (xmlField.adapter() instanceof XMLStreamFieldAdapter<T, ?> adapter) {
+				adapter.writeType(value, writer);
+			} else {
+				XMLClassField.transferTo(xmlField.streamType(), value, writer);
+			}
+		}
+		
+	}
+	
+	protected <T, V> void writeAttribute(XMLOutputStream xmlStream, String name, XMLClassField<V, ?> attributeField, T xmlObject) throws XMLMarshalingException, IOException, XMLException {
+		
+		// java primitives are written without boxing the value
+		if (attributeField.writePrimitive(xmlObject, xmlStream, name)) return;
+		V[] value = attributeField.query(xmlObject, name);
+		if (value.length == 0) return;
+		if (value[0] == null) return;
+		String attributeValue;
+		if (attributeField.adapter() != null)
+			attributeValue = attributeField.adapter().typeString(value[0]);
+		else if (attributeField.isPrimitive())
+			attributeValue = XMLClassField.primitiveString(attributeField.type(), value[0]);
+		else
+			throw new XMLMarshalingException(xmlStream, "attribute type needs type adapter: " + name);
+		xmlStream.writeAttribute(name, attributeValue);
+		
+	}
+	
+	/**
+	 * Returns the text data of the text field, which is either the text or the value of the stream field to write, or null if there is none
+	 */
+	protected <V> Object textValue(XMLOutputStream xmlStream, XMLClassField<V, ?> textField, Object xmlObject) throws XMLMarshalingException {
+		
+		V[] value = textField.query(xmlObject, null);
+		if (value.length == 0) return null;
+		if (textField.isStream()) {
+			// sink fields only receive data when unmarshaling
+			return textField.adapter() != null || !textField.streamType().isSink() ? value[0] : null;
+		} else if (textField.adapter() != null) {
+			return textField.adapter().typeString(value[0]);
+		} else if (textField.isPrimitive()) {
+			return XMLClassField.primitiveString(textField.type(), value[0]);
+		} else {
+			throw new XMLMarshalingException(xmlStream, "text data field requires type adapter");
+		}
+		
+	}
+	
 	protected <T, V> void writeElementObject(XMLOutputStream xmlStream, URI namespace, String name, T xmlObject) throws XMLMarshalingException, IOException, XMLException {
 		
 		@SuppressWarnings("unchecked")
@@ -98,96 +379,175 @@ public class XMLMarshaler {
 		if (type == null)
 			throw new XMLMarshalingException(xmlStream, "object class unknown to marshaler: " + xmlObject.getClass());
 		
-		// collect and order attributes
-		Map<String, XMLClassField<?, ?>> attributeMap = new LinkedHashMap<>();
-		for (String attributeName : type.attributeOrder())
-			attributeMap.put(attributeName, type.attributes().get(attributeName));
-		for (String attributeName : type.attributes().keySet()) {
-			if (attributeMap.get(attributeName) != null) continue;
-			if (attributeName.equals(XMLClassType.TEXT_VALUE_FIELD)) continue;
-			var attributeField = type.attributes().get(attributeName);
-			if (attributeName.equals(XMLClassType.REMAINING_MAP_FIELD)) {
-				for (String attributeName2 : attributeField.queryKeys(xmlObject))
-					attributeMap.put(attributeName2, attributeField);
-			} else {
-				attributeMap.put(attributeName, attributeField);
-			}
-		}
-
-		// collect attribute values
-		Map<String, String> attributes = new LinkedHashMap<String, String>();
-		for (var attribute : attributeMap.entrySet()) {
-			@SuppressWarnings("unchecked")
-			XMLClassField<V, ?> attributeField = (XMLClassField<V, ?>) attribute.getValue();
-			V[] value = attributeField.query(xmlObject, attribute.getKey());
-			if (value.length == 0) continue;
-			if (value[0] == null) continue;
-			String attributeValue;
-			if (attributeField.adapter() != null)
-				attributeValue = attributeField.adapter().typeString(value[0]);
-			else if (attributeField.isPrimitive())
-				attributeValue = XMLClassField.primitiveString(attributeField.type(), value[0]);
-			else
-				throw new XMLMarshalingException(xmlStream, "attribute type needs type adapter: " + attribute.getKey());
-			attributes.put(attribute.getKey(), attributeValue);
+		// the generated binding writes the fields directly, and passes back the fields it does not write itself
+		if (type.binding() != null) {
+			type.binding().write(new BindingWriter(xmlStream, type, type.tagTemplate(namespace, name), xmlObject), xmlObject);
+			return;
 		}
 		
+		// fields are written in the order of the precomputed plan, only remaining maps are expanded for each object
+		XMLClassType.WritePlan plan = type.writePlan();
+		
 		// check for text data field
 		@SuppressWarnings("unchecked")
-		XMLClassField<V, ?> textField = (XMLClassField<V, ?>) type.attributes().get(XMLClassType.TEXT_VALUE_FIELD);
+		XMLClassField<V, ?> textField = (XMLClassField<V, ?>) plan.textField();
 		String textData = null;
+		V textStream = null;
+		boolean textPrimitive = false;
 		boolean useCData = false;
 		if (textField != null) {
-			useCData = textField.field().isAnnotationPresent(XMLCDATA.class);
-			V[] value = textField.query(xmlObject, null);
-			if (value.length > 0) {
-				if (textField.adapter() != null) {
-					textData = textField.adapter().typeString(value[0]);
-				} else if (textField.isPrimitive()) {
-					textData = XMLClassField.primitiveString(textField.type(), value[0]);
-				} else {
-					throw new XMLMarshalingException(xmlStream, "text data field requires type adapter");
-				}
+			useCData = textField.useCData();
+			// java primitives are written without boxing the value
+			textPrimitive = textField.isJavaPrimitive() && !useCData;
+			Object textValue = textPrimitive ? null : textValue(xmlStream, textField, xmlObject);
+			if (textField.isStream()) {
+				@SuppressWarnings("unchecked")
+				V stream = (V) textValue;
+				textStream = stream;
+			} else {
+				textData = (String) textValue;
 			}
 		}
 		
-		// collect and order elements
-		NamespaceMap<XMLClassField<?, ?>> elementMap = new NamespaceMap<>(false);
-		for (String elementName : type.elementOrder())
-			for (Entry<XMLClassField<?, ?>> element : type.elements().entrySet()) {
-				if (!element.name().equals(elementName)) continue;
-				elementMap.put(element.namespace(), element.name(), element.value());
+		// check for elements to write
+		boolean hasElements = false;
+		for (XMLClassType.WriteEntry element : plan.elements()) {
+			if (!element.isRemainingMap() || !element.field().queryKeys(xmlObject).isEmpty()) {
+				hasElements = true;
+				break;
 			}
-		for (Key elementKey : type.elements().keySet()) {
-			if (elementMap.get(elementKey.namespace(), elementKey.name()) != null) continue;
-			var elementField = type.elements().get(elementKey.namespace(), elementKey.name());
-			if (elementKey.name().equals(XMLClassType.REMAINING_MAP_FIELD)) {
-				for (String elementName : elementField.queryKeys(xmlObject))
-					elementMap.put(elementKey.namespace(), elementName, elementField);
+		}
+		
+		// write opening element tag
+		boolean isSelfClosing = textData == null && textStream == null && !textPrimitive && !hasElements;
+		TagTemplate tagTemplate = type.tagTemplate(namespace, name);
+		xmlStream.writeStartTag(isSelfClosing ? DescType.SELF_CLOSING : DescType.OPEN, tagTemplate);
+		
+		// write attribute values, the keys of remaining maps which are written by an attribute field are skipped
+		for (XMLClassType.WriteEntry attribute : plan.attributes()) {
+			if (attribute.isRemainingMap()) {
+				for (String attributeName : attribute.field().queryKeys(xmlObject))
+					if (!plan.attributeNames().contains(attributeName))
+						writeAttribute(xmlStream, attributeName, attribute.field(), xmlObject);
 			} else {
-				elementMap.put(elementKey.namespace(), elementKey.name(), elementField);
+				writeAttribute(xmlStream, attribute.name(), attribute.field(), xmlObject);
 			}
 		}
-		
-		// create opening element descriptor
-		boolean isSelfClosing = textData == null && elementMap.isEmpty();
-		ElementDescriptor openingElement = new ElementDescriptor(isSelfClosing ? DescType.SELF_CLOSING : DescType.OPEN, namespace, name, attributes);
-		xmlStream.writeNext(openingElement);
+		xmlStream.finishStartTag();
 		
 		if (isSelfClosing) return;
 		
 		// write text data
-		if (textData != null)
+		if (textPrimitive)
+			textField.writePrimitive(xmlObject, xmlStream, null);
+		else if (textStream != null)
+			writeStreamText(xmlStream, textField, textStream, useCData);
+		else if (textData != null)
 			xmlStream.writeAllText(textData, useCData);
 		
-		// marshal elements
-		for (Entry<XMLClassField<?, ?>> element : elementMap.entrySet()) {
-			writeElement(xmlStream, element.namespace(), element.name(), element.value(), xmlObject);
+		// marshal elements, the keys of remaining maps which are written by an element field are skipped
+		for (XMLClassType.WriteEntry element : plan.elements()) {
+			if (element.isRemainingMap()) {
+				for (String elementName : element.field().queryKeys(xmlObject))
+					if (!plan.elementKeys().contains(new Key(element.namespace(), elementName)))
+						writeElement(xmlStream, element.namespace(), elementName, element.field(), xmlObject);
+			} else {
+				writeElement(xmlStream, element.namespace(), element.name(), element.field(), xmlObject);
+			}
 		}
 		
-		// create closing element descriptor
-		ElementDescriptor closingElement = new ElementDescriptor(DescType.CLOSE, namespace, name, null);
-		xmlStream.writeNext(closingElement);
+		// write closing element tag
+		xmlStream.writeEndTag(tagTemplate);
+		
+	}
+	
+	/**
+	 * Supplies the stream to the generated binding of an object, and writes the fields of the object which the binding does not write itself
+	 */
+	private final class BindingWriter implements XMLBindingWriter {
+		
+		private final XMLOutputStream xmlStream;
+		private final XMLClassType<?, ?> type;
+		private final TagTemplate tagTemplate;
+		private final Object object;
+		
+		public BindingWriter(XMLOutputStream xmlStream, XMLClassType<?, ?> type, TagTemplate tagTemplate, Object object) {
+			this.xmlStream = xmlStream;
+			this.type = type;
+			this.tagTemplate = tagTemplate;
+			this.object = object;
+		}
+		
+		@Override
+		public XMLOutputStream stream() {
+			return this.xmlStream;
+		}
+		
+		@Override
+		public TagTemplate tagTemplate() {
+			return this.tagTemplate;
+		}
+		
+		@Override
+		public boolean ignoreNamespaces() {
+			return XMLMarshaler.this.types.ignoreNamespaces();
+		}
+		
+		@Override
+		public void writeAttribute(int field, String name) throws IOException, XMLException, XMLMarshalingException {
+			XMLClassField<?, ?> attributeField = this.type.fields().get(field);
+			if (attributeField.fieldType() == FieldType.REMAINING_MAP) {
+				// the keys which are written by an attribute field are skipped
+				for (String attributeName : attributeField.queryKeys(this.object))
+					if (!this.type.writePlan().attributeNames().contains(attributeName))
+						XMLMarshaler.this.writeAttribute(this.xmlStream, attributeName, attributeField, this.object);
+			} else {
+				XMLMarshaler.this.writeAttribute(this.xmlStream, name, attributeField, this.object);
+			}
+		}
+		
+		@Override
+		public Object textValue(int field) throws XMLMarshalingException {
+			XMLClassField<?, ?> textField = this.type.fields().get(field);
+			// java primitives are written by writeText without boxing the value
+			if (textField.isJavaPrimitive() && !textField.useCData()) return Boolean.TRUE;
+			return XMLMarshaler.this.textValue(this.xmlStream, textField, this.object);
+		}
+		
+		@Override
+		public void writeText(int field, Object value) throws IOException, XMLException, XMLMarshalingException {
+			@SuppressWarnings("unchecked")
+			XMLClassField<Object, ?> textField = (XMLClassField<Object, ?>) this.type.fields().get(field);
+			if (!textField.useCData() && textField.writePrimitive(this.object, this.xmlStream, null))
+				return;
+			if (textField.isStream())
+				writeStreamText(this.xmlStream, textField, value, textField.useCData());
+			else
+				this.xmlStream.writeAllText((String) value, textField.useCData());
+		}
+		
+		@Override
+		public boolean hasElements(int field) {
+			return !this.type.fields().get(field).queryKeys(this.object).isEmpty();
+		}
+		
+		@Override
+		public void writeElement(int field, URI namespace, String name) throws IOException, XMLException, XMLMarshalingException {
+			XMLClassField<?, ?> elementField = this.type.fields().get(field);
+			if (elementField.fieldType() == FieldType.REMAINING_MAP) {
+				// the keys which are written by an element field are skipped
+				for (String elementName : elementField.queryKeys(this.object))
+					if (!this.type.writePlan().elementKeys().contains(new Key(namespace, elementName)))
+						XMLMarshaler.this.writeElement(this.xmlStream, namespace, elementName, elementField, this.object);
+			} else {
+				XMLMarshaler.this.writeElement(this.xmlStream, namespace, name, elementField, this.object);
+			}
+		}
+		
+		@Override
+		public void writeObject(URI namespace, String name, Object object) throws IOException, XMLException, XMLMarshalingException {
+			writeElementObject(this.xmlStream, namespace, name, object);
+		}
 		
 	}
 	
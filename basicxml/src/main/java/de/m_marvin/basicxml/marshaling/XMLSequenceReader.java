@@ -0,0 +1,197 @@
+package de.m_marvin.basicxml.marshaling;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import de.m_marvin.basicxml.XMLException;
+import de.m_marvin.basicxml.XMLInputStream;
+import de.m_marvin.basicxml.XMLStream.DescType;
+import de.m_marvin.basicxml.XMLStream.ElementDescriptor;
+import de.m_marvin.basicxml.internal.StackList;
+import de.m_marvin.basicxml.marshaling.internal.ObjectStack;
+import de.m_marvin.basicxml.marshaling.internal.XMLClassType;
+
+/**
+ * Unmarshals the matching elements of an document one at a time as they are read, instead of the whole document at once.<br>
+ * Opened by {@link XMLUnmarshaler#unmarshallEach(XMLInputStream, URI, String, Class)}, the objects are unmarshaled with the types registered on that unmarshaler.
+ * The reader can be used through {@link #read()}, as iterator or as stream, but only by one thread at a time.<br>
+ * The iterator and stream methods throw {@link UncheckedIOException} instead of the checked exceptions of {@link #read()}.
+ * @param <T> The type of the objects
+ */
+public class XMLSequenceReader<T> implements Iterator<T>, AutoCloseable {
+
+	private final XMLUnmarshaler unmarshaler;
+	private final XMLInputStream xmlStream;
+	/** namespace of the elements, null to match all namespaces */
+	private final URI namespace;
+	/** name of the elements */
+	private final String name;
+	private final Class<T> objectType;
+	/** the objects of the enclosing elements which are known types */
+	private final ObjectStack objectStack = new ObjectStack();
+	/** the types of the enclosing elements, null for elements of unknown type */
+	private final StackList<XMLClassType<?, ?>> enclosingTypes = new StackList<>();
+	/** the object read ahead by {@link #hasNext()} */
+	private T next = null;
+	private boolean closed = false;
+
+	XMLSequenceReader(XMLUnmarshaler unmarshaler, XMLInputStream xmlStream, URI namespace, String name, Class<T> objectType) {
+		this.unmarshaler = unmarshaler;
+		this.xmlStream = xmlStream;
+		this.namespace = namespace;
+		this.name = name;
+		this.objectType = objectType;
+	}
+
+	private boolean matches(ElementDescriptor element) {
+		return element.name().equals(this.name) && (this.namespace == null || this.namespace.equals(element.namespace()));
+	}
+
+	/**
+	 * Unmarshals the next matching element, the content before it is skipped.
+	 * @return The next object, or null if the end of the document is reached
+	 * @throws IOException
+	 * @throws XMLException
+	 * @throws XMLMarshalingException
+	 */
+	public T read() throws IOException, XMLException, XMLMarshalingException {
+		if (this.next != null) {
+			T object = this.next;
+			this.next = null;
+			return object;
+		}
+		if (this.closed) return null;
+		while (true) {
+			ElementDescriptor element = this.xmlStream.readNext();
+			if (element == null) {
+				// text data of the enclosing elements is skipped
+				if (this.xmlStream.readAllTextWindow(false) != null) continue;
+				if (!this.enclosingTypes.isEmpty())
+					throw new XMLMarshalingException(this.xmlStream, "unexpected EOF while reading sequence"); // this would indicate a problem with the stream
+				close();
+				return null;
+			}
+			if (element.type() == DescType.CLOSE) {
+				if (this.enclosingTypes.pop() != null) this.objectStack.pop();
+				if (this.enclosingTypes.isEmpty()) {
+					// the root element is closed
+					close();
+					return null;
+				}
+				continue;
+			}
+			if (matches(element))
+				return this.unmarshaler.makeObjectFromXML(this.xmlStream, element, this.objectType, this.objectStack);
+			if (element.type() == DescType.OPEN) {
+				// the enclosing elements are available as parent objects
+				XMLClassType<?, ?> enclosingType = this.enclosingTypes.isEmpty() ? this.unmarshaler.enclosingType(element, null) :
+					this.enclosingTypes.peek() == null ? null : this.unmarshaler.enclosingType(element, this.enclosingTypes.peek());
+				if (enclosingType != null)
+					this.objectStack.push(this.unmarshaler.makeEnclosingObject(this.xmlStream, element, enclosingType, this.objectStack));
+				this.enclosingTypes.push(enclosingType);
+			}
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (this.next == null) {
+			try {
+				this.next = read();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} catch (XMLException | XMLMarshalingException e) {
+				throw new UncheckedIOException(new IOException("error while unmarshaling sequence", e));
+			}
+		}
+		return this.next != null;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) throw new NoSuchElementException();
+		T object = this.next;
+		this.next = null;
+		return object;
+	}
+
+	/**
+	 * Returns an sequential stream of the remaining objects, closing the stream closes this reader.
+	 */
+	public Stream<T> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::closeUnchecked);
+	}
+
+	/**
+	 * Returns an stream of the remaining objects, which can be consumed in parallel in batches of the supplied size.<br>
+	 * The objects are unmarshaled by the thread splitting the stream, the batches are then processed by the threads of the stream.
+	 * Parallel streams split their source ahead of consumption, so the number of objects held at once depends on how fast the batches are processed.
+	 * Closing the stream closes this reader.
+	 * @param batchSize The number of objects in each batch
+	 * @param parallel If the stream should be parallel
+	 */
+	public Stream<T> stream(int batchSize, boolean parallel) {
+		if (batchSize < 1)
+			throw new IllegalArgumentException("batch size must be positive: " + batchSize);
+		return StreamSupport.stream(new BatchSpliterator(batchSize), parallel).onClose(this::closeUnchecked);
+	}
+
+	/**
+	 * Splits the objects of the reader into batches of fixed size, so that they can be processed in parallel
+	 */
+	private class BatchSpliterator extends Spliterators.AbstractSpliterator<T> {
+
+		private final int batchSize;
+
+		public BatchSpliterator(int batchSize) {
+			super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+			this.batchSize = batchSize;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			if (!hasNext()) return false;
+			action.accept(next());
+			return true;
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			Object[] batch = new Object[this.batchSize];
+			int size = 0;
+			while (size < this.batchSize && hasNext())
+				batch[size++] = next();
+			if (size == 0) return null;
+			return Spliterators.spliterator(batch, 0, size, Spliterator.ORDERED | Spliterator.NONNULL);
+		}
+
+	}
+
+	private void closeUnchecked() {
+		try {
+			close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Closes the XML stream, the remaining content is not read
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.closed) return;
+		this.closed = true;
+		this.xmlStream.close();
+	}
+
+}
@@ -0,0 +1,112 @@
+package de.m_marvin.basicxml.marshaling;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import de.m_marvin.basicxml.XMLException;
+import de.m_marvin.basicxml.XMLOutputStream;
+import de.m_marvin.basicxml.XMLStream.DescType;
+import de.m_marvin.basicxml.XMLStream.ElementDescriptor;
+
+/**
+ * Marshals an sequence of objects as elements of an root element, one at a time as they are supplied.<br>
+ * Opened by {@link XMLMarshaler#openSequence(XMLOutputStream, URI, String)}, the objects are marshaled with the types registered on that marshaler.
+ * Null objects are skipped, like in element collections.<br>
+ * The writer has to be closed even if marshaling an object fails, so that the XML stream is closed.
+ */
+public class XMLSequenceWriter implements AutoCloseable {
+
+	private final XMLMarshaler marshaler;
+	private final XMLOutputStream xmlStream;
+	/** namespace of the root element */
+	private final URI namespace;
+	/** name of the root element */
+	private final String name;
+	private boolean closed = false;
+
+	XMLSequenceWriter(XMLMarshaler marshaler, XMLOutputStream xmlStream, URI namespace, String name) {
+		this.marshaler = marshaler;
+		this.xmlStream = xmlStream;
+		this.namespace = namespace;
+		this.name = name;
+	}
+
+	/**
+	 * Marshals the object as element inside the root element.
+	 * @param namespace The namespace of the element, or null
+	 * @param name The name of the element
+	 * @param object The object to marshal, an instance of an type registered on the marshaler
+	 * @throws XMLMarshalingException
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public void write(URI namespace, String name, Object object) throws XMLMarshalingException, IOException, XMLException {
+		Objects.requireNonNull(name, "name can not be null");
+		if (this.closed)
+			throw new IllegalStateException("sequence already closed");
+		if (object == null) return;
+		this.marshaler.writeElementObject(this.xmlStream, namespace, name, object);
+	}
+
+	/**
+	 * Marshals all remaining objects of the iterator as elements inside the root element, requesting the next object after the previous one is written.
+	 * @param namespace The namespace of the elements, or null
+	 * @param name The name of the elements
+	 * @param objects The objects to marshal, instances of types registered on the marshaler
+	 * @throws XMLMarshalingException
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public void writeAll(URI namespace, String name, Iterator<?> objects) throws XMLMarshalingException, IOException, XMLException {
+		while (objects.hasNext())
+			write(namespace, name, objects.next());
+	}
+
+	/**
+	 * Marshals all objects of the stream as elements inside the root element, in encounter order.<br>
+	 * The objects are pulled from the stream one at a time, the stream is not closed.
+	 * @param namespace The namespace of the elements, or null
+	 * @param name The name of the elements
+	 * @param objects The objects to marshal, instances of types registered on the marshaler
+	 * @throws XMLMarshalingException
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public void writeAll(URI namespace, String name, Stream<?> objects) throws XMLMarshalingException, IOException, XMLException {
+		writeAll(namespace, name, objects.iterator());
+	}
+
+	/**
+	 * Marshals the objects returned by the supplier as elements inside the root element, until it returns null.
+	 * @param namespace The namespace of the elements, or null
+	 * @param name The name of the elements
+	 * @param objects The supplier of the objects to marshal, instances of types registered on the marshaler
+	 * @throws XMLMarshalingException
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	public void writeAll(URI namespace, String name, Supplier<?> objects) throws XMLMarshalingException, IOException, XMLException {
+		Object object;
+		while ((object = objects.get()) != null)
+			write(namespace, name, object);
+	}
+
+	/**
+	 * Writes the closing tag of the root element and closes the XML stream, the stream is closed even if the closing tag can not be written
+	 * @throws IOException
+	 * @throws XMLException
+	 */
+	@Override
+	public void close() throws IOException, XMLException {
+		if (this.closed) return;
+		this.closed = true;
+		try (this.xmlStream) {
+			this.xmlStream.writeNext(new ElementDescriptor(DescType.CLOSE, this.namespace, this.name, null));
+		}
+	}
+
+}
@@ -1,34 +1,52 @@
 package de.m_marvin.basicxml.marshaling;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.net.URI;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Objects;
 
+import de.m_marvin.basicxml.Attributes;
 import de.m_marvin.basicxml.XMLException;
 import de.m_marvin.basicxml.XMLInputStream;
 import de.m_marvin.basicxml.XMLStream.DescType;
 import de.m_marvin.basicxml.XMLStream.ElementDescriptor;
-import de.m_marvin.basicxml.internal.StackList;
+import de.m_marvin.basicxml.internal.PrimitiveArrayBuffer;
+import de.m_marvin.basicxml.marshaling.adapter.XMLStreamFieldAdapter;
+import de.m_marvin.basicxml.marshaling.annotations.XMLField;
+import de.m_marvin.basicxml.marshaling.annotations.XMLRootType;
+import de.m_marvin.basicxml.marshaling.binding.XMLBindingReader;
+import de.m_marvin.basicxml.marshaling.internal.FieldDispatch;
+import de.m_marvin.basicxml.marshaling.internal.FieldDispatch.Action;
+import de.m_marvin.basicxml.marshaling.internal.ObjectStack;
 import de.m_marvin.basicxml.marshaling.internal.XMLClassField;
+import de.m_marvin.basicxml.marshaling.internal.XMLClassField.FieldType;
+import de.m_marvin.basicxml.marshaling.internal.XMLClassField.StreamType;
 import de.m_marvin.basicxml.marshaling.internal.XMLClassType;
+import de.m_marvin.basicxml.marshaling.internal.XMLTypeRegistry;
 
 public class XMLUnmarshaler {
 	
-	private final Map<Class<?>, XMLClassType<?, ?>> types = new HashMap<>();
+	private final XMLTypeRegistry types;
 	
+	/**
+	 * Creates an unmarshaler for the root types and the XML types declared in them.<br>
+	 * The types are resolved when they are first unmarshaled, use {@link #warmUp()} to resolve them in advance.
+	 * @param ignoreNamespaces If the namespaces of the elements should be ignored when looking up the fields
+	 * @param types The XML root types
+	 */
 	public XMLUnmarshaler(boolean ignoreNamespaces, Class<?>... types) {
-		for (Class<?> type : types) {
-			resolveTypeObjects(type, null, ignoreNamespaces);
-		}
+		this.types = new XMLTypeRegistry(ignoreNamespaces, types);
 	}
 	
-	private void resolveTypeObjects(Class<?> type, Class<?> parent, boolean ignoreNamespace) {
-		var typeObj = XMLClassType.makeFromClass(type, parent, ignoreNamespace);
-		this.types.put(type, typeObj);
-		for (Class<?> subTypes : typeObj.subTypes()) {
-			resolveTypeObjects(subTypes, type, ignoreNamespace);
-		}
+	/**
+	 * Resolves all registered types in advance, instead of when they are first unmarshaled.<br>
+	 * This moves the cost of examining the types out of the first unmarshal calls, and reports invalid types immediately.
+	 * @throws IllegalArgumentException If an type is not a valid XML type
+	 * @throws LayerInstantiationException If an type or type adapter can not be constructed
+	 */
+	public void warmUp() {
+		this.types.resolveAll();
 	}
 	
 	public <T> T unmarshall(XMLInputStream xmlStream, Class<T> objectType, URI fallbackNamespace) throws IOException, XMLException, XMLMarshalingException {
@@ -37,7 +55,7 @@ public class XMLUnmarshaler {
 			xmlStream.getNamespaces().put("", fallbackNamespace);
 		ElementDescriptor element = xmlStream.readNext();
 		if (element == null) return null;
-		T xmlObject = makeObjectFromXML(xmlStream, element, objectType, new StackList<Object>());
+		T xmlObject = makeObjectFromXML(xmlStream, element, objectType, new ObjectStack());
 		xmlStream.close();
 		return xmlObject;
 		
@@ -47,28 +65,86 @@ public class XMLUnmarshaler {
 		return unmarshall(xmlStream, objectType, null);
 	}
 	
-	protected <T, P> void fillAttributeFromXML(Object xmlClassObject, XMLClassField<T, P> attributeField, String attributeName, XMLInputStream xmlStream, String valueStr, StackList<Object> objectStack) throws XMLMarshalingException {
+	/**
+	 * Unmarshals the elements with the name one at a time as they are read, instead of the whole document at once.<br>
+	 * See {@link #unmarshallEach(XMLInputStream, URI, String, Class)}
+	 * @param name The name of the elements to unmarshal, in any namespace
+	 * @param objectType The type of the objects
+	 * @return The reader returning the objects
+	 * @throws XMLMarshalingException If the type is not registered on this unmarshaler
+	 */
+	public <T> XMLSequenceReader<T> unmarshallEach(XMLInputStream xmlStream, String name, Class<T> objectType) throws XMLMarshalingException {
+		return unmarshallEach(xmlStream, null, name, objectType);
+	}
+	
+	/**
+	 * Unmarshals the elements with the namespace and name one at a time as they are read, instead of the whole document at once.<br>
+	 * The matching elements can be at any depth of the document, for example the records inside the root element, but not inside an other matching element.
+	 * Each object is only held by the returned reader until it is returned, so documents with any number of records can be read with constant memory.<br>
+	 * The elements enclosing the matching elements are constructed as objects if their type is known, starting at the root types of this unmarshaler, and are available as parent objects of non-static types.
+	 * Only their attributes are unmarshaled, their other content is skipped.<br>
+	 * The XML stream is closed when the reader is closed or the end of the document is reached.
+	 * @param namespace The namespace of the elements to unmarshal, or null to match all namespaces
+	 * @param name The name of the elements to unmarshal
+	 * @param objectType The type of the objects
+	 * @return The reader returning the objects
+	 * @throws XMLMarshalingException If the type is not registered on this unmarshaler
+	 */
+	public <T> XMLSequenceReader<T> unmarshallEach(XMLInputStream xmlStream, URI namespace, String name, Class<T> objectType) throws XMLMarshalingException {
+		Objects.requireNonNull(name, "name can not be null");
+		if (this.types.get(objectType) == null)
+			throw new XMLMarshalingException("the supplied type is not recognized by this marshaler: " + objectType.getName());
+		return new XMLSequenceReader<T>(this, xmlStream, this.types.ignoreNamespaces() ? null : namespace, name, objectType);
+	}
+	
+	/**
+	 * Returns the type of an element which encloses the elements of an sequence, or null if it is unknown
+	 * @param enclosingType The type of the enclosing element, or null if the element is the root element
+	 */
+	protected XMLClassType<?, ?> enclosingType(ElementDescriptor element, XMLClassType<?, ?> enclosingType) {
+		if (enclosingType != null) {
+			FieldDispatch.Slot elementSlot = enclosingType.elementDispatch().lookup(element.namespace(), element.name());
+			return elementSlot.action() == Action.OBJECT ? this.types.get(elementSlot.field().type()) : null;
+		}
+		for (Class<?> rootType : this.types.rootTypes()) {
+			XMLRootType xmlRootAnnotation = rootType.getAnnotation(XMLRootType.class);
+			if (xmlRootAnnotation == null || !xmlRootAnnotation.value().equals(element.name())) continue;
+			// no namespace is declared as empty namespace or not at all
+			String namespace = xmlRootAnnotation.namespace().equals(XMLField.NULL_STR) ? "" : xmlRootAnnotation.namespace();
+			if (this.types.ignoreNamespaces() || namespace.equals(element.namespace() == null ? "" : element.namespace().toString()))
+				return this.types.get(rootType);
+		}
+		return null;
+	}
+	
+	/**
+	 * Constructs the object of an element which encloses the elements of an sequence, only its attributes are unmarshaled
+	 */
+	protected <T> T makeEnclosingObject(XMLInputStream xmlStream, ElementDescriptor openingElement, XMLClassType<T, ?> xmlClassType, ObjectStack objectStack) throws XMLMarshalingException {
+		T xmlClassObject = constructObject(xmlStream, xmlClassType, objectStack);
+		fillAttributesFromXML(xmlStream, openingElement, xmlClassType, xmlClassObject, objectStack);
+		return xmlClassObject;
+	}
+	
+	protected <T, P> void fillAttributeFromXML(Object xmlClassObject, XMLClassField<T, P> attributeField, String attributeName, XMLInputStream xmlStream, CharSequence valueStr, ObjectStack objectStack) throws XMLMarshalingException {
 
+		// java primitives are parsed and assigned without creating an string or boxed value
+		if (attributeField.adapter() == null && attributeField.assignPrimitive(xmlClassObject, valueStr))
+			return;
+		
 		objectStack.push(xmlClassObject);
 		T value = null;
 		if (attributeField.adapter() != null) {
-			@SuppressWarnings("unchecked")
+			// adapters which do not require the parent object might declare an arbitrary parent type, they receive null instead
 			P parentObject = attributeField.parentType() == null ? null : 
-				(P) objectStack.findTopMost(attributeField.parentType()::isInstance);
+				attributeField.adapterParent(objectStack.findTopMost(attributeField.parentType()));
 			try {
-				value = attributeField.adapter().adaptType(valueStr, parentObject);
+				value = attributeField.adapter().adaptType(valueStr.toString(), parentObject);
 			} catch (XMLException e) {
 				throw new XMLMarshalingException(xmlStream, "error while invoking type adapter: " + attributeField.field(), e);
-			} catch (ClassCastException e) {
-				// if this happens, it indicates that the adapters parent object-type type-argument was probably set to some arbitrary value because the parent argument is not required.
-				try {
-					value = attributeField.adapter().adaptType(valueStr, null);
-				} catch (XMLException e1) {
-					throw new XMLMarshalingException(xmlStream, "error while invoking type adapter: " + attributeField.field(), e1);
-				}
 			}
 		} else if (attributeField.isPrimitive()) {
-			value = XMLClassField.adaptPrimitive(attributeField.type(), valueStr);
+			value = XMLClassField.adaptPrimitive(attributeField.type(), valueStr.toString());
 		} else {
 			throw new XMLMarshalingException(xmlStream, "attribute is not XML primitive and has no adapter: " + attributeField.field());
 		}
@@ -78,7 +154,7 @@ public class XMLUnmarshaler {
 		
 	}
 	
-	protected <T, P> void fillElementFromXML(Object xmlClassObject, XMLClassField<T, P> elementField, String elementName, XMLInputStream xmlStream, ElementDescriptor openingElement, StackList<Object> objectStack) throws IOException, XMLException, XMLMarshalingException {
+	protected <T, P> void fillElementFromXML(Object xmlClassObject, XMLClassField<T, P> elementField, String elementName, XMLInputStream xmlStream, ElementDescriptor openingElement, ObjectStack objectStack) throws IOException, XMLException, XMLMarshalingException {
 		
 		objectStack.push(xmlClassObject);
 		T value = makeObjectFromXML(xmlStream, openingElement, elementField.type(), objectStack);
@@ -88,96 +164,297 @@ public class XMLUnmarshaler {
 		
 	}
 	
-	protected <T, P> T makeObjectFromXML(XMLInputStream xmlStream, ElementDescriptor openingElement, Class<T> objectType, StackList<Object> objectStack) throws IOException, XMLException, XMLMarshalingException {
+	protected <T, P> void fillStreamFromXML(Object xmlClassObject, XMLClassField<T, P> streamField, String elementName, XMLInputStream xmlStream, ElementDescriptor openingElement, ObjectStack objectStack) throws IOException, XMLException, XMLMarshalingException {
+		
+		try (Reader reader = openingElement.type() == DescType.SELF_CLOSING ? Reader.nullReader() : xmlStream.openTextReader()) {
+			if (streamField.adapter() instanceof XMLStreamFieldAdapter<T, P> adapter) {
+				objectStack.push(xmlClassObject);
+				// see fillAttributeFromXML
+				P parentObject = streamField.parentType() == null ? null : 
+					streamField.adapterParent(objectStack.findTopMost(streamField.parentType()));
+				T value = null;
+				try {
+					value = adapter.adaptType(reader, parentObject);
+				} catch (XMLException e) {
+					throw new XMLMarshalingException(xmlStream, "error while invoking type adapter: " + streamField.field(), e);
+				}
+				objectStack.pop();
+				
+				streamField.assign(xmlClassObject, value, elementName);
+			} else {
+				Writer writer = openStreamSink(xmlClassObject, streamField, elementName, xmlStream);
+				reader.transferTo(writer);
+				closeStreamSink(xmlClassObject, streamField, elementName, writer);
+			}
+		}
+		
+	}
+	
+	protected <T, P> Writer openStreamSink(Object xmlClassObject, XMLClassField<T, P> streamField, String name, XMLInputStream xmlStream) throws XMLMarshalingException {
+		
+		if (streamField.streamType().isSource())
+			throw new XMLMarshalingException(xmlStream, "stream field can only be marshaled: " + streamField.field());
+		Object sink = null;
+		if (streamField.streamType().isSink()) {
+			sink = streamField.query(xmlClassObject, name)[0];
+			if (sink == null)
+				throw new XMLMarshalingException(xmlStream, "stream field has no instance to write to: " + streamField.field());
+		}
+		return XMLClassField.openStreamWriter(streamField.streamType(), sink);
+		
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected <T, P> void closeStreamSink(Object xmlClassObject, XMLClassField<T, P> streamField, String name, Writer writer) throws IOException, XMLMarshalingException {
+		
+		Object value = XMLClassField.closeStreamWriter(streamField.streamType(), writer);
+		if (!streamField.streamType().isSink())
+			streamField.assign(xmlClassObject, (T) value, name);
+		
+	}
+	
+	/**
+	 * Reads the text data of the element until it is closed, the returned text window is only valid until the next read on the stream.
+	 */
+	protected CharSequence readElementText(XMLInputStream xmlStream, ElementDescriptor element) throws IOException, XMLException, XMLMarshalingException {
+		
+		CharSequence text = "";
+		if (element.type() == DescType.SELF_CLOSING) return text;
+		boolean append = false;
+		while (true) {
+			ElementDescriptor e;
+			while ((e = xmlStream.readNext()) != null)
+				if (e.isSameField(element)) return text;
+			text = xmlStream.readAllTextWindow(append);
+			if (text == null)
+				throw new XMLMarshalingException(xmlStream, "unexpected EOF while reading element text: " + element.namespace() + " > " + element.name());
+			append = true;
+		}
+		
+	}
+	
+	/**
+	 * Constructs an object of the type, non-static types are constructed with the topmost object of their parent type on the stack as parent
+	 */
+	protected <T, P> T constructObject(XMLInputStream xmlStream, XMLClassType<T, P> xmlClassType, ObjectStack objectStack) throws XMLMarshalingException {
+		
+		@SuppressWarnings("unchecked")
+		P parentObject = xmlClassType.isStatic() ? null : (P) objectStack.findTopMost(xmlClassType.parentType());
+		if (!xmlClassType.isStatic() && parentObject == null)
+			throw new XMLMarshalingException(xmlStream, "non-static class hierarchical error, unable to identify closest parent class to construct from: " + xmlClassType.parentType());
+		return xmlClassType.factory().makeType(parentObject);
+		
+	}
+	
+	protected <T> void fillAttributesFromXML(XMLInputStream xmlStream, ElementDescriptor openingElement, XMLClassType<T, ?> xmlClassType, T xmlClassObject, ObjectStack objectStack) throws XMLMarshalingException {
+		
+		Attributes attributes = openingElement.attributes() instanceof Attributes a ? a : new Attributes(openingElement.attributes());
+		for (int i = 0; i < attributes.size(); i++) {
+			String attributeName = attributes.name(i);
+			FieldDispatch.Slot attributeSlot = xmlClassType.attributeDispatch().lookup(null, attributeName);
+			if (attributeSlot.action() == Action.SKIP) continue;
+			fillAttributeFromXML(xmlClassObject, attributeSlot.field(), attributeName, xmlStream, attributes.value(i), objectStack);
+		}
+		
+	}
+	
+	protected <T, P> T makeObjectFromXML(XMLInputStream xmlStream, ElementDescriptor openingElement, Class<T> objectType, ObjectStack objectStack) throws IOException, XMLException, XMLMarshalingException {
 		assert openingElement.type() != DescType.CLOSE : "element descriptor can not be a closing element";
 	
 		@SuppressWarnings("unchecked")
-		XMLClassType<T, P> xmlClassType = (XMLClassType<T, P>) this.types.get(objectType);
+		XMLClassType<T, P> xmlClassType = (XMLClassType<T, P>) (XMLClassType<T, ?>) this.types.get(objectType);
 		if (xmlClassType == null)
 			 throw new XMLMarshalingException("the supplied type is not recognized by this marshaler: " + objectType.getName());
 		
-		@SuppressWarnings("unchecked")
-		P parentObject = xmlClassType.isStatic() ? null : (P) objectStack.findTopMost(xmlClassType.parentType()::isInstance);
-		if (!xmlClassType.isStatic() && parentObject == null)
-			throw new XMLMarshalingException(xmlStream, "non-static class hierarchical error, unable to identify closest parent class to construct from: " + xmlClassType.parentType());
-		T xmlClassObject = xmlClassType.factory().makeType(parentObject);
+		T xmlClassObject = constructObject(xmlStream, xmlClassType, objectStack);
+		BindingReader reader = new BindingReader(xmlStream, openingElement, xmlClassType, xmlClassObject, objectStack);
+		
+		if (xmlClassType.binding() != null) {
+			// the generated binding reads the fields directly, and passes back the attributes and elements it does not read itself
+			xmlClassType.binding().read(reader, xmlClassObject);
+		} else {
+			fillAttributesFromXML(xmlStream, openingElement, xmlClassType, xmlClassObject, objectStack);
+			ElementDescriptor element;
+			while ((element = reader.nextElement()) != null)
+				reader.readElement(element);
+			reader.finish();
+		}
+		
+		return xmlClassObject;
+		
+	}
+	
+	/**
+	 * Reads the content of the element of an object, which is passed to the generated binding of the object or used to read all fields if there is none.<br>
+	 * The text data between the child elements is collected for the text field, or streamed to it directly if it is an stream field.
+	 */
+	private final class BindingReader implements XMLBindingReader {
+		
+		private final XMLInputStream xmlStream;
+		private final ElementDescriptor openingElement;
+		private final XMLClassType<?, ?> xmlClassType;
+		private final Object xmlClassObject;
+		private final ObjectStack objectStack;
+		/** true once the content of the element is read, set by the first call to nextElement */
+		private boolean started = false;
+		/** true once the element is closed */
+		private boolean closed;
+		private XMLClassField<?, ?> xmlTextField = null;
+		private Writer textWriter = null;
+		private char[] textBuffer = null;
+		private StringBuilder elementText = null;
+		private PrimitiveArrayBuffer[] arrayBuffers = null;
+		
+		public BindingReader(XMLInputStream xmlStream, ElementDescriptor openingElement, XMLClassType<?, ?> xmlClassType, Object xmlClassObject, ObjectStack objectStack) {
+			this.xmlStream = xmlStream;
+			this.openingElement = openingElement;
+			this.xmlClassType = xmlClassType;
+			this.xmlClassObject = xmlClassObject;
+			this.objectStack = objectStack;
+			this.closed = openingElement.type() == DescType.SELF_CLOSING;
+		}
+		
+		@Override
+		public boolean ignoreNamespaces() {
+			return XMLUnmarshaler.this.types.ignoreNamespaces();
+		}
+		
+		@Override
+		public Attributes attributes() {
+			return this.openingElement.attributes() instanceof Attributes a ? a : new Attributes(this.openingElement.attributes());
+		}
+		
+		@Override
+		public void readAttribute(String name, CharSequence value) throws XMLMarshalingException {
+			FieldDispatch.Slot attributeSlot = this.xmlClassType.attributeDispatch().lookup(null, name);
+			if (attributeSlot.action() == Action.SKIP) return;
+			fillAttributeFromXML(this.xmlClassObject, attributeSlot.field(), name, this.xmlStream, value, this.objectStack);
+		}
 		
-		for (String attributeName : openingElement.attributes().keySet()) {
-			XMLClassField<?, ?> attributeField = xmlClassType.attributes().get(attributeName);
-			if (attributeField == null) {
-				attributeField = xmlClassType.attributes().get(XMLClassType.REMAINING_MAP_FIELD);
-				if (attributeField == null) continue;
+		private void start() throws XMLMarshalingException {
+			this.started = true;
+			this.xmlTextField = this.xmlClassType.attributes().get(XMLClassType.TEXT_VALUE_FIELD);
+			// source stream fields only supply data when marshaling, their text data is skipped
+			if (this.xmlTextField != null && this.xmlTextField.adapter() == null && this.xmlTextField.streamType().isSource())
+				this.xmlTextField = null;
+			
+			// stream text fields receive the text data directly instead of collecting it
+			if (this.xmlTextField != null && this.xmlTextField.adapter() == null && this.xmlTextField.streamType() != StreamType.NONE) {
+				this.textWriter = openStreamSink(this.xmlClassObject, this.xmlTextField, null, this.xmlStream);
+				this.textBuffer = new char[256];
+			} else {
+				this.elementText = new StringBuilder();
 			}
-			fillAttributeFromXML(xmlClassObject, attributeField, attributeName, xmlStream, openingElement.attributes().get(attributeName), objectStack);
 		}
 		
-		if (openingElement.type() != DescType.SELF_CLOSING) {
-			StringBuffer elementText = new StringBuffer();
-			readelements: while (true) {
+		@Override
+		public ElementDescriptor nextElement() throws IOException, XMLException, XMLMarshalingException {
+			if (this.closed) return null;
+			if (!this.started) start();
+			while (true) {
 				
-				ElementDescriptor element;
-				while ((element = xmlStream.readNext()) != null) {
-					
-					if (element.type() == DescType.CLOSE) {
-						if (!element.isSameField(openingElement))
-							throw new XMLMarshalingException(xmlStream, "improper element close order, element not closed: " + openingElement.namespace() + " > " + openingElement.name()); // this would indicate a problem with the stream
-						break readelements;
-					} else {
-						XMLClassField<?, ?> xmlElementField = xmlClassType.elements().get(element.namespace(), element.name());
-						if (xmlElementField == null) {
-							xmlElementField = xmlClassType.elements().get(element.namespace(), XMLClassType.REMAINING_MAP_FIELD);
-							if (xmlElementField == null) {
-								if (element.type() == DescType.OPEN) {
-									// skip the element, read until close reached
-									skipelement: while (true) {
-										ElementDescriptor e;
-										while ((e = xmlStream.readNext()) != null)
-											if (e.isSameField(element)) break skipelement;
-										if (xmlStream.readAllText() == null)
-											throw new XMLMarshalingException(xmlStream, "unexpected EOF while skipping element: " + element.namespace() + " > " + element.name());
-									}
-								}
-								continue;
-							}
-						}
-						
-						if (xmlElementField.isPrimitive() || xmlElementField.adapter() != null) {
-							// read only text data of the element
-							StringBuffer text = new StringBuffer();
-							if (element.type() != DescType.SELF_CLOSING) {
-								readtext: while (true) {
-									ElementDescriptor e;
-									while ((e = xmlStream.readNext()) != null)
-										if (e.isSameField(element)) break readtext;
-									String s = xmlStream.readAllText();
-									if (s == null)
-										throw new XMLMarshalingException(xmlStream, "unexpected EOF while reading element text: " + element.namespace() + " > " + element.name());
-									text.append(s);
-								}
-							}
-							// write variable as if it was an attribute
-							fillAttributeFromXML(xmlClassObject, xmlElementField, element.name(), xmlStream, text.toString(), objectStack);
-						} else {
-							fillElementFromXML(xmlClassObject, xmlElementField, element.name(), xmlStream, element, objectStack);
-						}
-					}
-					
+				ElementDescriptor element = this.xmlStream.readNext();
+				if (element != null) {
+					if (element.type() != DescType.CLOSE) return element;
+					if (!element.isSameField(this.openingElement))
+						throw new XMLMarshalingException(this.xmlStream, "improper element close order, element not closed: " + this.openingElement.namespace() + " > " + this.openingElement.name()); // this would indicate a problem with the stream
+					this.closed = true;
+					return null;
 				}
 				
-				String s = xmlStream.readAllText();
+				if (this.textWriter != null) {
+					int r;
+					while ((r = this.xmlStream.readText(this.textBuffer, 0, this.textBuffer.length)) > 0)
+						this.textWriter.write(this.textBuffer, 0, r);
+					if (r < 0)
+						throw new XMLMarshalingException(this.xmlStream, "unexpected end of XML stream"); // this would indicate a problem with the stream
+					continue;
+				}
+				
+				CharSequence s = this.xmlStream.readAllTextWindow(false);
 				if (s == null)
-					throw new XMLMarshalingException(xmlStream, "unexpected end of XML stream"); // this would indicate a problem with the stream
-				elementText.append(s);
+					throw new XMLMarshalingException(this.xmlStream, "unexpected end of XML stream"); // this would indicate a problem with the stream
+				this.elementText.append(s);
 				
 			}
-			
-			XMLClassField<?, ?> xmlTextField = xmlClassType.attributes().get(XMLClassType.TEXT_VALUE_FIELD);
-			if (xmlTextField != null) {
-				fillAttributeFromXML(xmlClassObject, xmlTextField, null, xmlStream, elementText.toString(), objectStack);
+		}
+		
+		@Override
+		public CharSequence readText(ElementDescriptor element) throws IOException, XMLException, XMLMarshalingException {
+			return readElementText(this.xmlStream, element);
+		}
+		
+		@Override
+		public <V> V readObject(Class<V> type, ElementDescriptor element) throws IOException, XMLException, XMLMarshalingException {
+			this.objectStack.push(this.xmlClassObject);
+			V value = makeObjectFromXML(this.xmlStream, element, type, this.objectStack);
+			this.objectStack.pop();
+			return value;
+		}
+		
+		@Override
+		public void readElement(ElementDescriptor element) throws IOException, XMLException, XMLMarshalingException {
+			FieldDispatch.Slot elementSlot = this.xmlClassType.elementDispatch().lookup(element.namespace(), element.name());
+			XMLClassField<?, ?> xmlElementField = elementSlot.field();
+			switch (elementSlot.action()) {
+			case SKIP:
+				if (element.type() == DescType.OPEN) {
+					// skip the element, read until close reached
+					skipelement: while (true) {
+						ElementDescriptor e;
+						while ((e = this.xmlStream.readNext()) != null)
+							if (e.isSameField(element)) break skipelement;
+						if (this.xmlStream.readAllText() == null)
+							throw new XMLMarshalingException(this.xmlStream, "unexpected EOF while skipping element: " + element.namespace() + " > " + element.name());
+					}
+				}
+				break;
+			case STREAM:
+				fillStreamFromXML(this.xmlClassObject, xmlElementField, element.name(), this.xmlStream, element, this.objectStack);
+				break;
+			case PRIMITIVE_ARRAY:
+				// collect the values in an growable buffer until the object is complete
+				if (this.arrayBuffers == null) this.arrayBuffers = new PrimitiveArrayBuffer[this.xmlClassType.elementDispatch().arrayCount()];
+				PrimitiveArrayBuffer arrayBuffer = this.arrayBuffers[elementSlot.arrayIndex()];
+				if (arrayBuffer == null) {
+					arrayBuffer = xmlElementField.newArrayBuffer();
+					this.arrayBuffers[elementSlot.arrayIndex()] = arrayBuffer;
+				}
+				arrayBuffer.append(readElementText(this.xmlStream, element));
+				break;
+			case TEXT:
+				// read only text data of the element and write variable as if it was an attribute
+				fillAttributeFromXML(this.xmlClassObject, xmlElementField, element.name(), this.xmlStream, readElementText(this.xmlStream, element), this.objectStack);
+				break;
+			case OBJECT:
+				fillElementFromXML(this.xmlClassObject, xmlElementField, element.name(), this.xmlStream, element, this.objectStack);
+				break;
 			}
 		}
 		
-		return xmlClassObject;
+		@Override
+		public void finish() throws IOException, XMLException, XMLMarshalingException {
+			if (this.started) {
+				if (this.arrayBuffers != null) {
+					for (int i = 0; i < this.arrayBuffers.length; i++) {
+						if (this.arrayBuffers[i] == null) continue;
+						XMLClassField<?, ?> arrayField = this.xmlClassType.elementDispatch().arrayField(i);
+						arrayField.assignArray(this.xmlClassObject, this.arrayBuffers[i].toArray());
+						arrayField.containerFactory().recordSize(this.arrayBuffers[i].size());
+					}
+				}
+				
+				if (this.textWriter != null) {
+					closeStreamSink(this.xmlClassObject, this.xmlTextField, null, this.textWriter);
+				} else if (this.xmlTextField != null) {
+					fillAttributeFromXML(this.xmlClassObject, this.xmlTextField, null, this.xmlStream, this.elementText, this.objectStack);
+				}
+			}
+			
+			// the number of values is used as initial capacity of the containers of the next objects
+			this.xmlClassType.attributeDispatch().recordSizes(this.xmlClassObject);
+			this.xmlClassType.elementDispatch().recordSizes(this.xmlClassObject);
+		}
 		
 	}
 	
@@ -0,0 +1,52 @@
+package de.m_marvin.basicxml.marshaling.adapter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+import de.m_marvin.basicxml.XMLException;
+
+/**
+ * An type adapter which converts between the class field data type and XML text data using character streams instead of strings.<br>
+ * Used for fields holding large amounts of text which should not be collected in memory, such as embedded files.<br>
+ * If used on attributes, the string methods are used, which by default redirect to the streaming methods.
+ * @param <V> The value type of the field
+ * @param <P> The type of the parent class in which the fields data type class is defined, used when construction non-static classes
+ */
+public interface XMLStreamFieldAdapter<V, P> extends XMLClassFieldAdapter<V, P> {
+
+	/**
+	 * Constructs the value from the text data supplied by the reader.<br>
+	 * The reader does not have to be read completely, any remaining text data is skipped after this method returns.
+	 */
+	public V adaptType(Reader reader, P parentObject) throws XMLException, IOException;
+
+	/**
+	 * Writes the text data of the value to the writer, the writer must not be closed by this method.
+	 */
+	public void writeType(V value, Writer writer) throws IOException;
+
+	@Override
+	public default V adaptType(String str, P parentObject) throws XMLException {
+		try {
+			return adaptType(new StringReader(str), parentObject);
+		} catch (IOException e) {
+			throw new XMLException("failed to read from string", e);
+		}
+	}
+
+	@Override
+	public default String typeString(V value) {
+		try {
+			StringWriter writer = new StringWriter();
+			writeType(value, writer);
+			return writer.toString();
+		} catch (IOException e) {
+			throw new UncheckedIOException("failed to write to string", e);
+		}
+	}
+
+}
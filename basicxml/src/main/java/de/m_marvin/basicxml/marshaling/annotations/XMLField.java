@@ -63,7 +63,7 @@ public @interface XMLField {
 	public String namespace() default NULL_STR;
 	
 	/**
-	 * The type of this field, only required for collection or map fields, ignored by normal single value fields
+	 * The type of this field, only required for collection or map fields, ignored by normal single value fields and primitive array collections
 	 */
 	public Class<?> type() default Void.class;
 	
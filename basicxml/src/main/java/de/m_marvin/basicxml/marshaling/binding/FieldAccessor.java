@@ -0,0 +1,69 @@
+package de.m_marvin.basicxml.marshaling.binding;
+
+/**
+ * Reads and writes the value of an field of an XML type object.<br>
+ * The primitive methods access primitive fields without boxing the value, short fields are read as int.
+ * By default they box the value and use {@link #get(Object)} and {@link #set(Object, Object)}, implementations for primitive fields should override the methods for the fields type.
+ */
+public interface FieldAccessor {
+
+	/**
+	 * Returns the value of the field
+	 * @throws IllegalArgumentException If the object is not an instance of the class declaring the field
+	 */
+	public Object get(Object object);
+
+	/**
+	 * Assigns the value to the field
+	 * @throws IllegalArgumentException If the object or value does not match the type of the class or field
+	 */
+	public void set(Object object, Object value);
+
+	/**
+	 * Reads an int or short field
+	 */
+	public default int getInt(Object object) {
+		return ((Number) get(object)).intValue();
+	}
+
+	public default long getLong(Object object) {
+		return (Long) get(object);
+	}
+
+	public default double getDouble(Object object) {
+		return (Double) get(object);
+	}
+
+	public default float getFloat(Object object) {
+		return (Float) get(object);
+	}
+
+	public default boolean getBoolean(Object object) {
+		return (Boolean) get(object);
+	}
+
+	public default void setInt(Object object, int value) {
+		set(object, value);
+	}
+
+	public default void setShort(Object object, short value) {
+		set(object, value);
+	}
+
+	public default void setLong(Object object, long value) {
+		set(object, value);
+	}
+
+	public default void setDouble(Object object, double value) {
+		set(object, value);
+	}
+
+	public default void setFloat(Object object, float value) {
+		set(object, value);
+	}
+
+	public default void setBoolean(Object object, boolean value) {
+		set(object, value);
+	}
+
+}
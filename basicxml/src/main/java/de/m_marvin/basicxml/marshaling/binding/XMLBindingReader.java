@@ -0,0 +1,58 @@
+package de.m_marvin.basicxml.marshaling.binding;
+
+import java.io.IOException;
+
+import de.m_marvin.basicxml.Attributes;
+import de.m_marvin.basicxml.XMLException;
+import de.m_marvin.basicxml.XMLStream.ElementDescriptor;
+import de.m_marvin.basicxml.marshaling.XMLMarshalingException;
+
+/**
+ * Passed by the unmarshaler to {@link XMLTypeBinding#read(XMLBindingReader, Object)} for each object, supplies the element of the object and reads the fields which the binding does not read itself.<br>
+ * The text data between the child elements is collected for the text field of the type, and assigned by {@link #finish()}.
+ */
+public interface XMLBindingReader {
+
+	/**
+	 * Returns true if the namespaces of the elements are ignored when looking up the fields
+	 */
+	public boolean ignoreNamespaces();
+
+	/**
+	 * Returns the attributes of the element of the object
+	 */
+	public Attributes attributes();
+
+	/**
+	 * Reads the attribute into the field with its name, or into the remaining attribute map, or skips it if there is neither
+	 */
+	public void readAttribute(String name, CharSequence value) throws XMLMarshalingException;
+
+	/**
+	 * Returns the next child element, or null if the element of the object is closed
+	 */
+	public ElementDescriptor nextElement() throws IOException, XMLException, XMLMarshalingException;
+
+	/**
+	 * Reads the text data of the child element until it is closed, the returned text window is only valid until the next read on the stream
+	 */
+	public CharSequence readText(ElementDescriptor element) throws IOException, XMLException, XMLMarshalingException;
+
+	/**
+	 * Reads the child element as object of the XML type, the object of this reader is available as parent object for non-static types
+	 * @param type The declared type of the field
+	 * @param element The child element
+	 */
+	public <V> V readObject(Class<V> type, ElementDescriptor element) throws IOException, XMLException, XMLMarshalingException;
+
+	/**
+	 * Reads the child element into the field with its namespace and name, or into the remaining element map, or skips it if there is neither
+	 */
+	public void readElement(ElementDescriptor element) throws IOException, XMLException, XMLMarshalingException;
+
+	/**
+	 * Assigns the collected text data and primitive arrays after the element was closed
+	 */
+	public void finish() throws IOException, XMLException, XMLMarshalingException;
+
+}
@@ -0,0 +1,70 @@
+package de.m_marvin.basicxml.marshaling.binding;
+
+import java.io.IOException;
+import java.net.URI;
+
+import de.m_marvin.basicxml.TagTemplate;
+import de.m_marvin.basicxml.XMLException;
+import de.m_marvin.basicxml.XMLOutputStream;
+import de.m_marvin.basicxml.marshaling.XMLMarshalingException;
+
+/**
+ * Passed by the marshaler to {@link XMLTypeBinding#write(XMLBindingWriter, Object)} for each object, supplies the stream and writes the fields which the binding does not write itself.<br>
+ * The fields are referred to by their index in {@link XMLTypeBinding#fields()}.
+ */
+public interface XMLBindingWriter {
+
+	/**
+	 * Returns the stream the object is written to
+	 */
+	public XMLOutputStream stream();
+
+	/**
+	 * Returns the template of the tag the object is written as, which contains the names of all attribute fields of its type
+	 */
+	public TagTemplate tagTemplate();
+
+	/**
+	 * Returns true if the namespaces of the fields are ignored, in which case all elements are written without namespace
+	 */
+	public boolean ignoreNamespaces();
+
+	/**
+	 * Writes the value of the attribute field, or the entries of an remaining attribute map which are not written by an other field
+	 * @param field The index of the field
+	 * @param name The name of the attribute
+	 */
+	public void writeAttribute(int field, String name) throws IOException, XMLException, XMLMarshalingException;
+
+	/**
+	 * Returns the text data of the text field to pass to {@link #writeText(int, Object)}, or null if the field has no text data to write
+	 * @param field The index of the field
+	 */
+	public Object textValue(int field) throws XMLMarshalingException;
+
+	/**
+	 * Writes the text data returned by {@link #textValue(int)}
+	 * @param field The index of the field
+	 */
+	public void writeText(int field, Object value) throws IOException, XMLException, XMLMarshalingException;
+
+	/**
+	 * Returns true if the remaining element map field holds any entries
+	 * @param field The index of the field
+	 */
+	public boolean hasElements(int field);
+
+	/**
+	 * Writes the values of the element field, or the entries of an remaining element map which are not written by an other field
+	 * @param field The index of the field
+	 * @param namespace The namespace of the elements
+	 * @param name The name of the elements
+	 */
+	public void writeElement(int field, URI namespace, String name) throws IOException, XMLException, XMLMarshalingException;
+
+	/**
+	 * Writes the XML type object as child element
+	 */
+	public void writeObject(URI namespace, String name, Object object) throws IOException, XMLException, XMLMarshalingException;
+
+}
@@ -0,0 +1,52 @@
+package de.m_marvin.basicxml.marshaling.binding;
+
+import de.m_marvin.basicxml.internal.PrimitiveParser;
+import de.m_marvin.basicxml.marshaling.internal.EnumTable;
+
+/**
+ * Conversions of XML primitives used by the generated bindings, which behave the same as the conversions of the marshaler and unmarshaler.<br>
+ * The primitives are parsed directly from the text, without creating an string or boxed value.
+ */
+public final class XMLBindings {
+
+	private XMLBindings() {}
+
+	public static int parseInt(CharSequence text) {
+		return PrimitiveParser.parseInt(text, 0, text.length());
+	}
+
+	public static short parseShort(CharSequence text) {
+		return PrimitiveParser.parseShort(text, 0, text.length());
+	}
+
+	public static long parseLong(CharSequence text) {
+		return PrimitiveParser.parseLong(text, 0, text.length());
+	}
+
+	public static double parseDouble(CharSequence text) {
+		return PrimitiveParser.parseDouble(text, 0, text.length());
+	}
+
+	public static float parseFloat(CharSequence text) {
+		return PrimitiveParser.parseFloat(text, 0, text.length());
+	}
+
+	public static boolean parseBoolean(CharSequence text) {
+		return PrimitiveParser.parseBoolean(text, 0, text.length());
+	}
+
+	/**
+	 * Returns the enum constant matching the text, or null if there is none
+	 */
+	public static <E extends Enum<E>> E enumConstant(Class<E> type, CharSequence text) {
+		return EnumTable.of(type).constantOf(text.toString());
+	}
+
+	/**
+	 * Returns the XML string of the enum constant
+	 */
+	public static <E extends Enum<E>> String enumString(Class<E> type, E constant) {
+		return EnumTable.of(type).stringOf(constant);
+	}
+
+}
@@ -0,0 +1,33 @@
+package de.m_marvin.basicxml.marshaling.binding;
+
+import de.m_marvin.basicxml.marshaling.adapter.XMLClassFieldAdapter;
+import de.m_marvin.basicxml.marshaling.annotations.XMLField;
+
+/**
+ * The annotation metadata of an XML field, resolved at compile time by the annotation processor.<br>
+ * The values are the same the marshaler would read from the annotations of the field, so that the field does not have to be examined reflectively.
+ */
+public record XMLFieldDescriptor(
+		/** the class declaring the field **/
+		Class<?> declaringClass,
+		/** the name of the java field **/
+		String fieldName,
+		/** the type of the XML field annotation **/
+		XMLField.FieldType kind,
+		/** the name of the attribute or element, the name of the java field if the annotation defines none **/
+		String name,
+		/** the namespace of the element, or null if the annotation defines none **/
+		String namespace,
+		/** the data type defined by the annotation, {@link Void} if it defines none **/
+		Class<?> type,
+		/** the type adapter defined on the field, or null if there is none **/
+		Class<? extends XMLClassFieldAdapter<?, ?>> adapter,
+		/** the parent type defined for the type adapter of the field, {@link Void} if it defines none **/
+		Class<?> adapterParent,
+		/** the type adapter defined on the data type of the field, or null if there is none **/
+		Class<? extends XMLClassFieldAdapter<?, ?>> typeAdapter,
+		/** true if the text data of the field is written as CDATA **/
+		boolean cdata,
+		/** the accessor of the field, or null if the binding can not access the field **/
+		FieldAccessor accessor
+		) {}
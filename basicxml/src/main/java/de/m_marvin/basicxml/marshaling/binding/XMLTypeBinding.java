@@ -0,0 +1,71 @@
+package de.m_marvin.basicxml.marshaling.binding;
+
+import java.io.IOException;
+import java.util.List;
+
+import de.m_marvin.basicxml.XMLException;
+import de.m_marvin.basicxml.marshaling.XMLMarshalingException;
+
+/**
+ * Reads and writes objects of an XML type without reflection, implemented by the classes generated by the basicxml annotation processor.<br>
+ * The binding supplies the annotation metadata of the type, so that the type is not examined reflectively, and switches on the attribute and element names to access the fields directly.
+ * Fields which the binding does not handle itself, such as collections, remaining maps, streams and fields with type adapters, are passed back to the marshaler and unmarshaler.<br>
+ * The binding of an type is found by its class name, see {@link #bindingClassName(String)}, and is used by the marshaler and unmarshaler instead of reflective access when present.
+ * @param <T> The XML type
+ */
+public interface XMLTypeBinding<T> {
+
+	public static final String CLASS_SUFFIX = "$$XMLBinding";
+
+	/**
+	 * Returns the binary name of the binding class of the type with the binary name.<br>
+	 * The binding is declared as top level class in the same package as the type, its name is the binary name of the type with the suffix {@link #CLASS_SUFFIX}.
+	 * Since the binary names of the types are unique and names containing '$' are reserved for generated code, the names of the bindings can not collide.
+	 * @param binaryName The binary name of the type, as returned by {@link Class#getName()}
+	 */
+	public static String bindingClassName(String binaryName) {
+		return binaryName + CLASS_SUFFIX;
+	}
+
+	/**
+	 * Returns the XML fields of the type and of its XML super types, the fields of the super types first, each in the order in which they are declared.<br>
+	 * The marshaler refers to the fields by their index in this list.
+	 */
+	public List<XMLFieldDescriptor> fields();
+
+	/**
+	 * Returns the XML types declared in the type and in its XML super types
+	 */
+	public List<Class<?>> subTypes();
+
+	/**
+	 * Returns the order in which the attributes are written, as defined by the XML order annotation of the type
+	 */
+	public List<String> attributeOrder();
+
+	/**
+	 * Returns the order in which the elements are written, as defined by the XML order annotation of the type
+	 */
+	public List<String> elementOrder();
+
+	/**
+	 * Constructs an new instance of the type
+	 * @param parentObject The instance of the enclosing class for non-static types, ignored for static types
+	 */
+	public T construct(Object parentObject);
+
+	/**
+	 * Writes the object as element, including its opening and closing tags
+	 * @param writer The writer of the marshaler, which supplies the stream and writes the fields the binding does not write itself
+	 * @param object The object to write
+	 */
+	public void write(XMLBindingWriter writer, T object) throws IOException, XMLException, XMLMarshalingException;
+
+	/**
+	 * Reads the attributes and elements of the element into the object, until the element is closed
+	 * @param reader The reader of the unmarshaler, which supplies the element and reads the fields the binding does not read itself
+	 * @param object The object constructed for the element
+	 */
+	public void read(XMLBindingReader reader, T object) throws IOException, XMLException, XMLMarshalingException;
+
+}
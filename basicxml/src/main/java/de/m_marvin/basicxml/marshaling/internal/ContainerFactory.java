@@ -0,0 +1,144 @@
+package de.m_marvin.basicxml.marshaling.internal;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.m_marvin.basicxml.internal.PrimitiveArrayBuffer;
+import de.m_marvin.basicxml.marshaling.XMLMarshalingException;
+
+/**
+ * Constructs the collections, maps or primitive array buffers of an field, resolved once for each field.<br>
+ * Fields of an interface or abstract type are constructed as the first default implementation which is assignable to the type, see {@link #COLLECTION_IMPLEMENTATIONS} and {@link #MAP_IMPLEMENTATIONS}.
+ * The factory remembers the number of values of the last filled container, which is used as initial capacity of the next container if the implementation supports it.
+ */
+public final class ContainerFactory {
+
+	/** the implementations used for collection fields of an interface or abstract type, in the order in which they are tried */
+	public static final List<Class<?>> COLLECTION_IMPLEMENTATIONS = List.of(ArrayList.class, LinkedHashSet.class, ArrayDeque.class, TreeSet.class);
+	/** the implementations used for map fields of an interface or abstract type, in the order in which they are tried */
+	public static final List<Class<?>> MAP_IMPLEMENTATIONS = List.of(LinkedHashMap.class, TreeMap.class, ConcurrentHashMap.class);
+	/** the largest initial capacity, so that an single large document does not make all following containers large */
+	public static final int MAX_SIZE_HINT = 1 << 16;
+
+	@FunctionalInterface
+	private static interface ContainerConstructor {
+		public Object construct(int capacity) throws ReflectiveOperationException;
+	}
+
+	private final String description;
+	private final ContainerConstructor constructor;
+	/** the number of values of the last filled container, only an hint which might be updated by multiple threads concurrently */
+	private volatile int sizeHint = 0;
+
+	private ContainerFactory(String description, ContainerConstructor constructor) {
+		this.description = description;
+		this.constructor = constructor;
+	}
+
+	/**
+	 * Creates the factory for an collection or map field.<br>
+	 * If the type can not be constructed, the factory is still created but fails when it is used, since the field might always be initialized by its object.
+	 */
+	public static ContainerFactory forField(Field field) {
+		Class<?> type = field.getType();
+		String description = (Map.class.isAssignableFrom(type) ? "map" : "collection") + " field: " + field;
+		if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+			for (Class<?> implementation : Map.class.isAssignableFrom(type) ? MAP_IMPLEMENTATIONS : COLLECTION_IMPLEMENTATIONS)
+				if (type.isAssignableFrom(implementation)) return new ContainerFactory(description, sizedConstructor(implementation));
+			return new ContainerFactory(description, null);
+		}
+		ContainerConstructor constructor = sizedConstructor(type);
+		if (constructor == null) {
+			try {
+				Constructor<?> defaultConstructor = type.getConstructor();
+				constructor = capacity -> defaultConstructor.newInstance();
+			} catch (NoSuchMethodException | SecurityException e) {}
+		}
+		return new ContainerFactory(description, constructor);
+	}
+
+	/**
+	 * Creates the factory for the buffers used to collect the values of an primitive array field
+	 */
+	public static ContainerFactory forArrayBuffer(Field field, Class<?> componentType) {
+		return new ContainerFactory("primitive array field: " + field, capacity -> new PrimitiveArrayBuffer(componentType, capacity));
+	}
+
+	/**
+	 * Returns an constructor taking the initial capacity for the known implementations, or null if the type is unknown
+	 */
+	private static ContainerConstructor sizedConstructor(Class<?> type) {
+		if (type == ArrayList.class) return ArrayList::new;
+		if (type == ArrayDeque.class) return ArrayDeque::new;
+		if (type == Vector.class) return capacity -> new Vector<>(Math.max(capacity, 1));
+		if (type == HashSet.class) return capacity -> new HashSet<>(hashCapacity(capacity));
+		if (type == LinkedHashSet.class) return capacity -> new LinkedHashSet<>(hashCapacity(capacity));
+		if (type == HashMap.class) return capacity -> new HashMap<>(hashCapacity(capacity));
+		if (type == LinkedHashMap.class) return capacity -> new LinkedHashMap<>(hashCapacity(capacity));
+		if (type == ConcurrentHashMap.class) return ConcurrentHashMap::new;
+		if (type == TreeSet.class) return capacity -> new TreeSet<>();
+		if (type == TreeMap.class) return capacity -> new TreeMap<>();
+		return null;
+	}
+
+	/**
+	 * Returns the capacity of an hash table with the default load factor which holds the number of values without resizing
+	 */
+	private static int hashCapacity(int size) {
+		return size == 0 ? 16 : (int) (size / 0.75f) + 1;
+	}
+
+	/**
+	 * Constructs an new container, with the number of values of the last filled container as initial capacity
+	 * @throws XMLMarshalingException If the type of the field can not be constructed
+	 */
+	public Object create() throws XMLMarshalingException {
+		if (this.constructor == null)
+			throw new XMLMarshalingException("the class does not have an default constructor, and no instance is provided: " + this.description);
+		try {
+			return this.constructor.construct(this.sizeHint);
+		} catch (ReflectiveOperationException | SecurityException e) {
+			throw new XMLMarshalingException("the class could not be constructed: " + this.description, e);
+		}
+	}
+
+	/**
+	 * Remembers the number of values of an filled container, as initial capacity of the next containers
+	 */
+	public void recordSize(int size) {
+		int sizeHint = Math.min(size, MAX_SIZE_HINT);
+		if (this.sizeHint != sizeHint) this.sizeHint = sizeHint;
+	}
+
+	/**
+	 * Returns the number of values of the last filled container
+	 */
+	public int sizeHint() {
+		return this.sizeHint;
+	}
+
+	/**
+	 * Remembers the number of values of the collection or map
+	 */
+	public void recordSize(Object container) {
+		if (container instanceof Collection<?> collection)
+			recordSize(collection.size());
+		else if (container instanceof Map<?, ?> map)
+			recordSize(map.size());
+	}
+
+}
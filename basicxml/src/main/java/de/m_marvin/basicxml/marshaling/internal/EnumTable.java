@@ -0,0 +1,84 @@
+package de.m_marvin.basicxml.marshaling.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import de.m_marvin.basicxml.marshaling.annotations.XMLEnum;
+
+/**
+ * The XML strings of the constants of an enum, created once for each enum type.<br>
+ * Constants annotated with {@link XMLEnum} are written as and matched against the annotation value, other constants are written as their name and matched ignoring the case.
+ * If multiple constants match an string, the first declared one is returned.
+ */
+public final class EnumTable<E extends Enum<E>> {
+
+	private static final ClassValue<EnumTable<?>> TABLES = new ClassValue<>() {
+		@Override
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		protected EnumTable<?> computeValue(Class<?> type) {
+			return new EnumTable(type);
+		}
+	};
+
+	private final E[] constants;
+	/** the XML strings of the constants, by ordinal */
+	private final String[] strings;
+	/** the first constant matching the string, for the exact strings of all constants */
+	private final Map<String, E> exactMatches = new HashMap<>();
+	/** the first constant without annotation which matches the string ignoring its case */
+	private final Map<String, E> caseInsensitiveMatches = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+	private EnumTable(Class<E> type) {
+		this.constants = type.getEnumConstants();
+		this.strings = new String[this.constants.length];
+		for (E constant : this.constants) {
+			XMLEnum enumAnnotation;
+			try {
+				enumAnnotation = type.getDeclaredField(constant.name()).getAnnotation(XMLEnum.class);
+			} catch (NoSuchFieldException | SecurityException e) {
+				throw new RuntimeException("enum field access error", e);
+			}
+			if (enumAnnotation == null) {
+				this.strings[constant.ordinal()] = constant.name();
+				this.caseInsensitiveMatches.putIfAbsent(constant.name(), constant);
+			} else {
+				this.strings[constant.ordinal()] = enumAnnotation.value();
+			}
+		}
+		// an constant declared earlier might match the exact string of an other constant ignoring its case
+		for (E constant : this.constants) {
+			String string = this.strings[constant.ordinal()];
+			E caseInsensitiveMatch = this.caseInsensitiveMatches.get(string);
+			E match = caseInsensitiveMatch != null && caseInsensitiveMatch.ordinal() < constant.ordinal() ? caseInsensitiveMatch : constant;
+			this.exactMatches.putIfAbsent(string, match);
+		}
+	}
+
+	/**
+	 * Returns the table of the enum type
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E extends Enum<E>> EnumTable<E> of(Class<E> type) {
+		if (!type.isEnum())
+			throw new IllegalArgumentException("supplied class is not an enum: " + type);
+		return (EnumTable<E>) TABLES.get(type);
+	}
+
+	/**
+	 * Returns the constant matching the string, or null if there is none
+	 */
+	public E constantOf(String string) {
+		if (string == null) return null;
+		E constant = this.exactMatches.get(string);
+		return constant != null ? constant : this.caseInsensitiveMatches.get(string);
+	}
+
+	/**
+	 * Returns the XML string of the constant
+	 */
+	public String stringOf(E constant) {
+		return this.strings[constant.ordinal()];
+	}
+
+}
@@ -0,0 +1,155 @@
+package de.m_marvin.basicxml.marshaling.internal;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import de.m_marvin.basicxml.marshaling.internal.XMLClassField.FieldType;
+
+/**
+ * Maps the namespaces and names of parsed attributes or elements to the fields of an XML type in one lookup, compiled once for each type.<br>
+ * Names without an field of their own are mapped to the remaining map field of their namespace, or to {@link #SKIP} if there is none.
+ * The fields are stored in an open addressing table over the combined hash of namespace and name, which is not modified after construction and can be read by multiple threads concurrently.
+ */
+public final class FieldDispatch {
+
+	/**
+	 * How the value of an element is read for its field
+	 */
+	public static enum Action {
+		/** the element has no field, or an stream field which only supplies data when marshaling, and is skipped **/
+		SKIP,
+		/** the text of the element is transfered to an stream field **/
+		STREAM,
+		/** the text of the element is collected into the array of an primitive array field **/
+		PRIMITIVE_ARRAY,
+		/** the text of the element is read as the value of an primitive field or an field with type adapter **/
+		TEXT,
+		/** the element is read as an XML type object **/
+		OBJECT;
+	}
+
+	/**
+	 * The field an attribute or element is mapped to, with the action used to read its value
+	 * @param arrayIndex The index of the array buffer of primitive array fields, -1 for other fields
+	 */
+	public static record Slot(XMLClassField<?, ?> field, Action action, int arrayIndex) {}
+
+	public static final Slot SKIP = new Slot(null, Action.SKIP, -1);
+
+	private final boolean ignoreNamespaces;
+	private final URI[] namespaces;
+	private final String[] names;
+	private final Slot[] slots;
+	private final int mask;
+	private final XMLClassField<?, ?>[] arrayFields;
+	private final XMLClassField<?, ?>[] containerFields;
+
+	private FieldDispatch(boolean ignoreNamespaces, List<NamespaceMap.Entry<XMLClassField<?, ?>>> fields) {
+		this.ignoreNamespaces = ignoreNamespaces;
+		// at most half of the table is used, which keeps the probe sequences short
+		int size = Integer.highestOneBit(Math.max(fields.size(), 1) * 4 - 1);
+		this.namespaces = new URI[size];
+		this.names = new String[size];
+		this.slots = new Slot[size];
+		this.mask = size - 1;
+		List<XMLClassField<?, ?>> arrayFields = new ArrayList<>();
+		List<XMLClassField<?, ?>> containerFields = new ArrayList<>();
+		for (NamespaceMap.Entry<XMLClassField<?, ?>> entry : fields) {
+			XMLClassField<?, ?> field = entry.value();
+			Action action = actionOf(field);
+			Slot slot = new Slot(field, action, action == Action.PRIMITIVE_ARRAY ? arrayFields.size() : -1);
+			if (action == Action.PRIMITIVE_ARRAY) arrayFields.add(field);
+			if (field.fieldType() == FieldType.VALUE_COLLECTION || field.fieldType() == FieldType.REMAINING_MAP) containerFields.add(field);
+			URI namespace = ignoreNamespaces ? null : entry.namespace();
+			int i = hash(namespace, entry.name()) & this.mask;
+			while (this.names[i] != null) i = (i + 1) & this.mask;
+			this.namespaces[i] = namespace;
+			this.names[i] = entry.name();
+			this.slots[i] = slot;
+		}
+		this.arrayFields = arrayFields.toArray(XMLClassField<?, ?>[]::new);
+		this.containerFields = containerFields.toArray(XMLClassField<?, ?>[]::new);
+	}
+
+	private static Action actionOf(XMLClassField<?, ?> field) {
+		if (field.adapter() == null && field.streamType().isSource()) return Action.SKIP;
+		if (field.isStream()) return Action.STREAM;
+		if (field.fieldType() == FieldType.PRIMITIVE_ARRAY) return Action.PRIMITIVE_ARRAY;
+		if (field.isPrimitive() || field.adapter() != null) return Action.TEXT;
+		return Action.OBJECT;
+	}
+
+	/**
+	 * Compiles the table for the element fields of an type
+	 * @param ignoreNamespaces If the namespaces of the elements are ignored when they are looked up
+	 */
+	public static FieldDispatch ofElements(NamespaceMap<XMLClassField<?, ?>> elements, boolean ignoreNamespaces) {
+		return new FieldDispatch(ignoreNamespaces, elements.entrySet());
+	}
+
+	/**
+	 * Compiles the table for the attribute fields of an type, the text field is not included
+	 */
+	public static FieldDispatch ofAttributes(Map<String, XMLClassField<?, ?>> attributes) {
+		List<NamespaceMap.Entry<XMLClassField<?, ?>>> fields = new ArrayList<>();
+		for (var attribute : attributes.entrySet()) {
+			if (attribute.getKey().equals(XMLClassType.TEXT_VALUE_FIELD)) continue;
+			fields.add(new NamespaceMap.Entry<>(null, attribute.getKey(), attribute.getValue()));
+		}
+		return new FieldDispatch(true, fields);
+	}
+
+	private static int hash(URI namespace, String name) {
+		int h = (namespace == null ? 0 : namespace.hashCode()) * 31 + name.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private Slot find(URI namespace, String name) {
+		int i = hash(namespace, name) & this.mask;
+		String key;
+		while ((key = this.names[i]) != null) {
+			if (key.equals(name) && (this.namespaces[i] == namespace || Objects.equals(this.namespaces[i], namespace))) return this.slots[i];
+			i = (i + 1) & this.mask;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the slot of the field for the element or attribute, the slot of the remaining map field of its namespace if it has no field, or {@link #SKIP} if there is neither.
+	 * @param namespace The namespace of the element, null for attributes
+	 * @param name The name of the element or attribute
+	 */
+	public Slot lookup(URI namespace, String name) {
+		if (this.ignoreNamespaces) namespace = null;
+		Slot slot = find(namespace, name);
+		if (slot != null) return slot;
+		slot = find(namespace, XMLClassType.REMAINING_MAP_FIELD);
+		return slot != null ? slot : SKIP;
+	}
+
+	/**
+	 * Returns the number of primitive array fields, which are numbered by {@link Slot#arrayIndex()}
+	 */
+	public int arrayCount() {
+		return this.arrayFields.length;
+	}
+
+	/**
+	 * Returns the primitive array field with the index
+	 */
+	public XMLClassField<?, ?> arrayField(int arrayIndex) {
+		return this.arrayFields[arrayIndex];
+	}
+
+	/**
+	 * Remembers the number of values in the collections and maps of the object, see {@link XMLClassField#recordSize(Object)}
+	 */
+	public void recordSizes(Object xmlClassObject) {
+		for (XMLClassField<?, ?> containerField : this.containerFields)
+			containerField.recordSize(xmlClassObject);
+	}
+
+}
@@ -0,0 +1,210 @@
+package de.m_marvin.basicxml.marshaling.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Objects;
+
+import de.m_marvin.basicxml.marshaling.binding.FieldAccessor;
+
+/**
+ * Reads and writes the value of an field through method handles, which are created once, used if no generated accessor is available for the field.<br>
+ * The primitive methods access primitive fields without boxing the value, short fields are read as int.
+ * If no method handles can be created for the field, because it is not accessible, the methods throw an {@link IllegalStateException}.
+ */
+public final class MethodHandleFieldAccessor implements FieldAccessor {
+
+	private static final MethodType OBJECT_GETTER = MethodType.methodType(Object.class, Object.class);
+	private static final MethodType OBJECT_SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private final Field field;
+	/** getter of type (Object)Object */
+	private final MethodHandle getter;
+	/** setter of type (Object,Object)void */
+	private final MethodHandle setter;
+	/** getter of type (Object)P for primitive fields, with P being int for short fields, otherwise null */
+	private final MethodHandle primitiveGetter;
+	/** setter of type (Object,P)void for primitive fields, otherwise null */
+	private final MethodHandle primitiveSetter;
+
+	public MethodHandleFieldAccessor(Field field) {
+		this.field = Objects.requireNonNull(field, "field can not be null");
+		Class<?> type = field.getType();
+		Class<?> primitiveType = type == short.class ? int.class : type;
+		// the object is ignored when accessing static fields
+		boolean isStatic = Modifier.isStatic(field.getModifiers());
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		MethodHandle getter = null;
+		MethodHandle primitiveGetter = null;
+		try {
+			MethodHandle fieldGetter = lookup.unreflectGetter(field);
+			if (isStatic) fieldGetter = MethodHandles.dropArguments(fieldGetter, 0, Object.class);
+			getter = fieldGetter.asType(OBJECT_GETTER);
+			if (type.isPrimitive()) primitiveGetter = fieldGetter.asType(MethodType.methodType(primitiveType, Object.class));
+		} catch (IllegalAccessException e) {}
+		MethodHandle setter = null;
+		MethodHandle primitiveSetter = null;
+		try {
+			// fails for final fields, which can then only be read
+			MethodHandle fieldSetter = lookup.unreflectSetter(field);
+			if (isStatic) fieldSetter = MethodHandles.dropArguments(fieldSetter, 0, Object.class);
+			setter = fieldSetter.asType(OBJECT_SETTER);
+			if (type.isPrimitive()) primitiveSetter = fieldSetter.asType(MethodType.methodType(void.class, Object.class, type));
+		} catch (IllegalAccessException e) {}
+		this.getter = getter;
+		this.setter = setter;
+		this.primitiveGetter = primitiveGetter;
+		this.primitiveSetter = primitiveSetter;
+	}
+
+	private void checkAccessible(MethodHandle handle) {
+		if (handle == null)
+			throw new IllegalStateException("the field is not accessible: " + this.field);
+	}
+
+	/**
+	 * Converts the exceptions thrown by the method handles to the exceptions thrown by reflective field access
+	 */
+	private RuntimeException accessFailed(Throwable e) {
+		if (e instanceof ClassCastException)
+			return new IllegalArgumentException("the supplied type does not match the fields type: " + this.field, e);
+		if (e instanceof RuntimeException runtimeException)
+			return runtimeException;
+		if (e instanceof Error error)
+			throw error;
+		return new IllegalStateException("field access failed: " + this.field, e);
+	}
+
+	@Override
+	public Object get(Object object) {
+		checkAccessible(this.getter);
+		try {
+			return (Object) this.getter.invokeExact(object);
+		} catch (Throwable e) {
+			throw accessFailed(e);
+		}
+	}
+
+	@Override
+	public void set(Object object, Object value) {
+		checkAccessible(this.setter);
+		try {
+			this.setter.invokeExact(object, value);
+		} catch (Throwable e) {
+			throw accessFailed(e);
+		}
+	}
+
+	@Override
+	public int getInt(Object object) {
+		checkAccessible(this.primitiveGetter);
+		try {
+			return (int) this.primitiveGetter.invokeExact(object);
+		} catch (Throwable e) {
+			throw accessFailed(e);
+		}
+	}
+
+	@Override
+	public long getLong(Object object) {
+		checkAccessible(this.primitiveGetter);
+		try {
+			return (long) this.primitiveGetter.invokeExact(object);
+		} catch (Throwable e) {
+			throw accessFailed(e);
+		}
+	}
+
+	@Override
+	public double getDouble(Object object) {
+		checkAccessible(this.primitiveGetter);
+		try {
+			return (double) this.primitiveGetter.invokeExact(object);
+		} catch (Throwable e) {
+			throw accessFailed(e);
+		}
+	}
+
+	@Override
+	public float getFloat(Object object) {
+		checkAccessible(this.primitiveGetter);
+		try {
+			return (float) this.primitiveGetter.invokeExact(object);
+		} catch (Throwable e) {
+			throw accessFailed(e);
+		}
+	}
+
+	@Override
+	public boolean getBoolean(Object object) {
+		checkAccessible(this.primitiveGetter);
+		try {
+			return (boolean) this.primitiveGetter.invokeExact(object);
+		} catch (Throwable e) {
+			throw accessFailed(e);
+		}
+	}
+
+	@Override
+	public void setInt(Object object, int value) {
+		checkAccessible(this.primitiveSetter);
+		try {
+			this.primitiveSetter.invokeExact(object, value);
+		} catch (Throwable e) {
+			throw accessFailed(e);
+		}
+	}
+
+	@Override
+	public void setShort(Object object, short value) {
+		checkAccessible(this.primitiveSetter);
+		try {
+			this.primitiveSetter.invokeExact(object, value);
+		} catch (Throwable e) {
+			throw accessFailed(e);
+		}
+	}
+
+	@Override
+	public void setLong(Object object, long value) {
+		checkAccessible(this.primitiveSetter);
+		try {
+			this.primitiveSetter.invokeExact(object, value);
+		} catch (Throwable e) {
+			throw accessFailed(e);
+		}
+	}
+
+	@Override
+	public void setDouble(Object object, double value) {
+		checkAccessible(this.primitiveSetter);
+		try {
+			this.primitiveSetter.invokeExact(object, value);
+		} catch (Throwable e) {
+			throw accessFailed(e);
+		}
+	}
+
+	@Override
+	public void setFloat(Object object, float value) {
+		checkAccessible(this.primitiveSetter);
+		try {
+			this.primitiveSetter.invokeExact(object, value);
+		} catch (Throwable e) {
+			throw accessFailed(e);
+		}
+	}
+
+	@Override
+	public void setBoolean(Object object, boolean value) {
+		checkAccessible(this.primitiveSetter);
+		try {
+			this.primitiveSetter.invokeExact(object, value);
+		} catch (Throwable e) {
+			throw accessFailed(e);
+		}
+	}
+
+}
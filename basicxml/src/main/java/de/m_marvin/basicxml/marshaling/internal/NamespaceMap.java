@@ -2,6 +2,7 @@ package de.m_marvin.basicxml.marshaling.internal;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,6 +18,20 @@ public class NamespaceMap<T> {
 		this.ignoreNamespaces = ignoreNamespace;
 		this.map = new LinkedHashMap<URI, Map<String,T>>();
 	}
+	
+	private NamespaceMap(boolean ignoreNamespace, Map<URI, Map<String, T>> map) {
+		this.ignoreNamespaces = ignoreNamespace;
+		this.map = map;
+	}
+	
+	/**
+	 * Returns an unmodifiable copy of this map, which can be read by multiple threads concurrently
+	 */
+	public NamespaceMap<T> immutableCopy() {
+		Map<URI, Map<String, T>> map = new LinkedHashMap<URI, Map<String,T>>();
+		this.map.forEach((namespace, m) -> map.put(namespace, Collections.unmodifiableMap(new LinkedHashMap<String, T>(m))));
+		return new NamespaceMap<T>(this.ignoreNamespaces, Collections.unmodifiableMap(map));
+	}
 
 	public T get(String namespace, String name) {
 		try {
@@ -0,0 +1,81 @@
+package de.m_marvin.basicxml.marshaling.internal;
+
+import java.util.Arrays;
+
+/**
+ * The stack of the objects currently unmarshaled, used to find the parent objects of non-static types and type adapters.<br>
+ * For each parent type looked up, the stack keeps the indices of the objects which are instances of it, so that the topmost instance is found without searching the stack.
+ * The parent types are only the enclosing classes of the XML types, so there are only a few of them for each document.
+ */
+public final class ObjectStack {
+
+	private Object[] objects = new Object[16];
+	private int size = 0;
+	/** the parent types looked up so far */
+	private Class<?>[] types = new Class<?>[4];
+	/** the indices of the objects which are instances of the parent type, for each parent type */
+	private int[][] indices = new int[4][];
+	private int[] counts = new int[4];
+	private int typeCount = 0;
+
+	public void push(Object object) {
+		if (this.size == this.objects.length)
+			this.objects = Arrays.copyOf(this.objects, this.size * 2);
+		for (int t = 0; t < this.typeCount; t++)
+			if (this.types[t].isInstance(object)) pushIndex(t, this.size);
+		this.objects[this.size++] = object;
+	}
+
+	public Object pop() {
+		if (this.size == 0) return null;
+		int index = --this.size;
+		Object object = this.objects[index];
+		this.objects[index] = null;
+		for (int t = 0; t < this.typeCount; t++)
+			if (this.counts[t] > 0 && this.indices[t][this.counts[t] - 1] == index) this.counts[t]--;
+		return object;
+	}
+
+	public Object peek() {
+		return this.size == 0 ? null : this.objects[this.size - 1];
+	}
+
+	private void pushIndex(int t, int index) {
+		if (this.counts[t] == this.indices[t].length)
+			this.indices[t] = Arrays.copyOf(this.indices[t], this.counts[t] * 2);
+		this.indices[t][this.counts[t]++] = index;
+	}
+
+	/**
+	 * Returns the topmost object which is an instance of the type, or null if there is none
+	 */
+	public Object findTopMost(Class<?> type) {
+		if (this.size == 0) return null;
+		// the parent is usually the object directly above
+		Object top = this.objects[this.size - 1];
+		if (type.isInstance(top)) return top;
+		int t = 0;
+		while (t < this.typeCount && this.types[t] != type) t++;
+		if (t == this.typeCount) t = addType(type);
+		return this.counts[t] == 0 ? null : this.objects[this.indices[t][this.counts[t] - 1]];
+	}
+
+	/**
+	 * Starts to keep the indices of the instances of the type, the objects already on the stack are searched once
+	 */
+	private int addType(Class<?> type) {
+		if (this.typeCount == this.types.length) {
+			this.types = Arrays.copyOf(this.types, this.typeCount * 2);
+			this.indices = Arrays.copyOf(this.indices, this.typeCount * 2);
+			this.counts = Arrays.copyOf(this.counts, this.typeCount * 2);
+		}
+		int t = this.typeCount++;
+		this.types[t] = type;
+		this.indices[t] = new int[8];
+		this.counts[t] = 0;
+		for (int i = 0; i < this.size; i++)
+			if (type.isInstance(this.objects[i])) pushIndex(t, i);
+		return t;
+	}
+
+}
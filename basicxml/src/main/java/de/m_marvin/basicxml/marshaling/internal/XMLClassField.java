@@ -1,20 +1,39 @@
 package de.m_marvin.basicxml.marshaling.internal;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
+import de.m_marvin.basicxml.XMLException;
+import de.m_marvin.basicxml.XMLOutputStream;
+import de.m_marvin.basicxml.internal.Base64DecodingWriter;
+import de.m_marvin.basicxml.internal.Base64EncodingOutputStream;
+import de.m_marvin.basicxml.internal.PrimitiveArrayBuffer;
+import de.m_marvin.basicxml.internal.PrimitiveParser;
 import de.m_marvin.basicxml.marshaling.XMLMarshalingException;
 import de.m_marvin.basicxml.marshaling.adapter.XMLClassFieldAdapter;
-import de.m_marvin.basicxml.marshaling.annotations.XMLEnum;
+import de.m_marvin.basicxml.marshaling.adapter.XMLStreamFieldAdapter;
+import de.m_marvin.basicxml.marshaling.annotations.XMLCDATA;
 import de.m_marvin.basicxml.marshaling.annotations.XMLField;
 import de.m_marvin.basicxml.marshaling.annotations.XMLType;
 import de.m_marvin.basicxml.marshaling.annotations.XMLTypeAdapter;
+import de.m_marvin.basicxml.marshaling.binding.FieldAccessor;
+import de.m_marvin.basicxml.marshaling.binding.XMLFieldDescriptor;
 
 /**
  * Describes information about an class field required for XML marshaling
@@ -24,39 +43,137 @@ import de.m_marvin.basicxml.marshaling.annotations.XMLTypeAdapter;
 public record XMLClassField<V, P>(
 		/** true if this fields data type is an XML primitive (java primitives + string and enums) **/
 		boolean isPrimitive,
+		/** type of stream this fields text data is read from or written to, if the field does not hold an single text value **/
+		StreamType streamType,
 		/** type of this fields data container, can be a single value, a list or an map **/
 		FieldType fieldType,
 		/** java field that this class is describing */
 		Field field,
+		/** accessor used to read and write the value of the field **/
+		FieldAccessor accessor,
 		/** data type of the field **/
 		Class<V> type,
 		/** parent type for non static classes **/
 		Class<P> parentType,
 		/** optional type adapter used for converting to the fields data type **/
-		XMLClassFieldAdapter<V, P> adapter
+		XMLClassFieldAdapter<V, P> adapter,
+		/** the parent type accepted by the type adapter, which might be unrelated to the parent type if the adapter does not use the parent object **/
+		Class<?> adapterParentType,
+		/** factory for the collection or map of container fields, or the array buffers of primitive array fields **/
+		ContainerFactory containerFactory,
+		/** true if the text data of this field is written as CDATA **/
+		boolean useCData
 		) {
 	
 	public static enum FieldType {
 		SINGLE_VALUE,
 		VALUE_COLLECTION,
-		REMAINING_MAP;
+		REMAINING_MAP,
+		PRIMITIVE_ARRAY;
+	}
+	
+	public static enum StreamType {
+		/** the field holds an value which is converted from and to text **/
+		NONE,
+		/** the field holds an reader from which the text data is streamed when marshaling **/
+		READER,
+		/** the field holds an writer to which the text data is streamed when unmarshaling **/
+		WRITER,
+		/** the field holds an byte array which is converted from and to base64 text **/
+		BYTES,
+		/** the field holds an byte buffer which is converted from and to base64 text **/
+		BYTE_BUFFER,
+		/** the field holds an input stream from which the binary data is streamed as base64 text when marshaling **/
+		INPUT_STREAM,
+		/** the field holds an output stream to which the binary data is streamed from base64 text when unmarshaling **/
+		OUTPUT_STREAM;
+		
+		/**
+		 * Returns true if the field holds an instance which receives the data when unmarshaling, instead of an value
+		 */
+		public boolean isSink() {
+			return this == WRITER || this == OUTPUT_STREAM;
+		}
+		
+		/**
+		 * Returns true if the field holds an instance which supplies the data when marshaling, but can not be unmarshaled
+		 */
+		public boolean isSource() {
+			return this == READER || this == INPUT_STREAM;
+		}
+	}
+	
+	/** descriptions created by {@link #forField(Field)} and {@link #forDescriptor(XMLFieldDescriptor)}, by the name of the field in the declaring class */
+	private static final ClassValue<Map<String, XMLClassField<?, ?>>> FIELDS = new ClassValue<>() {
+		@Override
+		protected Map<String, XMLClassField<?, ?>> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+	
+	/**
+	 * Returns the description of the field, which is created only once, together with its type adapter.<br>
+	 * The description can be shared by all types inheriting the field and used by multiple threads concurrently.
+	 */
+	public static XMLClassField<?, ?> forField(Field field) {
+		Objects.requireNonNull(field, "field can not be null");
+		return FIELDS.get(field.getDeclaringClass()).computeIfAbsent(field.getName(), name -> makeFromField(field.getType(), field));
+	}
+	
+	/**
+	 * Returns the description of the field described by the metadata of an generated binding, see {@link #forField(Field)}.<br>
+	 * The annotations of the field are not read, the java field is only looked up by its name.
+	 */
+	public static XMLClassField<?, ?> forDescriptor(XMLFieldDescriptor descriptor) {
+		Objects.requireNonNull(descriptor, "descriptor can not be null");
+		return FIELDS.get(descriptor.declaringClass()).computeIfAbsent(descriptor.fieldName(), name -> makeFromDescriptor(descriptor));
 	}
 	
-	@SuppressWarnings("unchecked")
 	public static <V, P> XMLClassField<V, P> makeFromField(Class<V> type, Field field) {
 		Objects.requireNonNull(field, "field can not be null");
 		
-		field.trySetAccessible();
-		
 		if (!field.isAnnotationPresent(XMLField.class))
 			throw new IllegalArgumentException("the supplied field is not annotated as an XML type object: " + field);
 		
 		XMLField xmlFieldAnnotation = field.getAnnotation(XMLField.class);
 		XMLTypeAdapter xmlTypeAdapterAnnotation = field.getAnnotation(XMLTypeAdapter.class);
 		
+		return makeField(type, field, xmlFieldAnnotation.value(), xmlFieldAnnotation.type(),
+				xmlTypeAdapterAnnotation == null ? null : xmlTypeAdapterAnnotation.value(), xmlTypeAdapterAnnotation == null ? Void.class : xmlTypeAdapterAnnotation.parent(),
+				dataType -> {
+					XMLTypeAdapter fallbackAdapterAnnotation = dataType.getAnnotation(XMLTypeAdapter.class);
+					return fallbackAdapterAnnotation == null ? null : fallbackAdapterAnnotation.value();
+				},
+				field.isAnnotationPresent(XMLCDATA.class), null);
+	}
+	
+	public static <V, P> XMLClassField<V, P> makeFromDescriptor(XMLFieldDescriptor descriptor) {
+		Objects.requireNonNull(descriptor, "descriptor can not be null");
+		
+		Field field;
+		try {
+			field = descriptor.declaringClass().getDeclaredField(descriptor.fieldName());
+		} catch (NoSuchFieldException e) {
+			throw new IllegalArgumentException("the binding describes an field which does not exist: " + descriptor.declaringClass().getName() + "." + descriptor.fieldName(), e);
+		}
+		
+		@SuppressWarnings("unchecked")
+		Class<V> type = (Class<V>) field.getType();
+		return makeField(type, field, descriptor.kind(), descriptor.type(), descriptor.adapter(), descriptor.adapterParent(), dataType -> descriptor.typeAdapter(), descriptor.cdata(), descriptor.accessor());
+	}
+	
+	/**
+	 * Creates the description of the field from its annotation values, which are either read from the annotations or supplied by an generated binding
+	 * @param fallbackAdapter Returns the type adapter defined on the data type, or null
+	 * @param accessor The accessor generated for the field, or null to access it through method handles
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static <V, P> XMLClassField<V, P> makeField(Class<V> type, Field field, XMLField.FieldType kind, Class<?> annotationType, 
+			Class<? extends XMLClassFieldAdapter<?, ?>> adapterClass, Class<?> adapterParent, Function<Class<?>, Class<? extends XMLClassFieldAdapter<?, ?>>> fallbackAdapter, boolean useCData, FieldAccessor accessor) {
+		
 		FieldType fieldType = null;
 		Class<V> dataType = null;
-		switch (xmlFieldAnnotation.value()) {
+		switch (kind) {
 		case ATTRIBUTE:
 		case ELEMENT:
 		case TEXT:
@@ -64,8 +181,14 @@ public record XMLClassField<V, P>(
 			dataType = (Class<V>) field.getType();
 			break;
 		case ELEMENT_COLLECTION:
+			if (PrimitiveArrayBuffer.isPrimitiveArray(field.getType())) {
+				// primitive arrays are filled from repeated elements without boxing the values
+				fieldType = FieldType.PRIMITIVE_ARRAY;
+				dataType = (Class<V>) field.getType().getComponentType();
+				break;
+			}
 			fieldType = FieldType.VALUE_COLLECTION;
-			dataType = (Class<V>) xmlFieldAnnotation.type();
+			dataType = (Class<V>) annotationType;
 			if (dataType == Void.class)
 				throw new IllegalArgumentException("element collection field requires type parameter in annotation: " + field);
 			if (!Collection.class.isAssignableFrom(field.getType()))
@@ -74,7 +197,7 @@ public record XMLClassField<V, P>(
 		case REMAINING_ATTRIBUTE_MAP:
 		case REMAINING_ELEMENT_MAP:
 			fieldType = FieldType.REMAINING_MAP;
-			dataType = (Class<V>) xmlFieldAnnotation.type();
+			dataType = (Class<V>) annotationType;
 			if (dataType == Void.class)
 				throw new IllegalArgumentException("remaining element map field requires type parameter in annotation: " + field);
 			if (!Map.class.isAssignableFrom(field.getType()))
@@ -82,14 +205,31 @@ public record XMLClassField<V, P>(
 			break;
 		}
 		
-		boolean isPrimitive = dataType.isPrimitive() || dataType == String.class || dataType.isEnum();
+		boolean isPrimitive = dataType.isPrimitive() || dataType == String.class || dataType.isEnum() || PrimitiveArrayBuffer.isPrimitiveArray(dataType);
+		// the lookup table of the enum is created with the metadata instead of on the first value
+		if (dataType.isEnum()) EnumTable.of((Class) dataType);
+		
+		StreamType streamType = StreamType.NONE;
+		if (Reader.class.isAssignableFrom(dataType))
+			streamType = StreamType.READER;
+		else if (Writer.class.isAssignableFrom(dataType))
+			streamType = StreamType.WRITER;
+		else if (dataType == byte[].class)
+			streamType = StreamType.BYTES;
+		else if (dataType == ByteBuffer.class)
+			streamType = StreamType.BYTE_BUFFER;
+		else if (InputStream.class.isAssignableFrom(dataType))
+			streamType = StreamType.INPUT_STREAM;
+		else if (OutputStream.class.isAssignableFrom(dataType))
+			streamType = StreamType.OUTPUT_STREAM;
+		if (streamType != StreamType.NONE && (fieldType != FieldType.SINGLE_VALUE || kind == XMLField.FieldType.ATTRIBUTE))
+			throw new IllegalArgumentException("stream fields can only be used for single elements or text data: " + field);
 		
 		XMLClassFieldAdapter<V, P> adapter = null;
 		Class<P> parentType = (Class<P>) type.getEnclosingClass();
-		if (xmlTypeAdapterAnnotation != null) {
-			Class<? extends XMLClassFieldAdapter<?, ?>> adapterClass = xmlTypeAdapterAnnotation.value();
+		if (adapterClass != null) {
 			if (parentType == null || Modifier.isStatic(parentType.getModifiers()))
-				parentType = (Class<P>) xmlTypeAdapterAnnotation.parent();
+				parentType = (Class<P>) adapterParent;
 			if (parentType == Void.class)
 				parentType = null;
 			try {
@@ -105,13 +245,12 @@ public record XMLClassField<V, P>(
 		}
 		
 		if (adapter == null) {
-			XMLTypeAdapter fallbackAdapterAnnotation = dataType.getAnnotation(XMLTypeAdapter.class);
-			if (fallbackAdapterAnnotation != null) {
-				Class<? extends XMLClassFieldAdapter<?, ?>> adapterClass = fallbackAdapterAnnotation.value();
+			Class<? extends XMLClassFieldAdapter<?, ?>> fallbackAdapterClass = fallbackAdapter.apply(dataType);
+			if (fallbackAdapterClass != null) {
 				try {
-					if (adapterClass.getEnclosingClass() != null && !Modifier.isStatic(adapterClass.getModifiers()))
-						throw new IllegalArgumentException("the supplied type adapter class must be static: " + adapterClass);
-					Constructor<? extends XMLClassFieldAdapter<?, ?>> constructor = adapterClass.getConstructor();
+					if (fallbackAdapterClass.getEnclosingClass() != null && !Modifier.isStatic(fallbackAdapterClass.getModifiers()))
+						throw new IllegalArgumentException("the supplied type adapter class must be static: " + fallbackAdapterClass);
+					Constructor<? extends XMLClassFieldAdapter<?, ?>> constructor = fallbackAdapterClass.getConstructor();
 					adapter = (XMLClassFieldAdapter<V, P>) constructor.newInstance();
 				} catch (NoSuchMethodException e) {
 					throw new IllegalArgumentException("the supplied field's fallback type adapter has no default constructor: " + field);
@@ -121,58 +260,79 @@ public record XMLClassField<V, P>(
 			}
 		}
 		
-		if (!dataType.isAnnotationPresent(XMLType.class) && adapter == null && !isPrimitive)
+		if (!dataType.isAnnotationPresent(XMLType.class) && adapter == null && !isPrimitive && streamType == StreamType.NONE)
 			throw new IllegalArgumentException("field type requires type adapter: " + field);
 		
-		return new XMLClassField<V, P>(isPrimitive, fieldType, field, dataType, parentType, adapter);
+		Class<?> adapterParentType = adapter == null ? null : adapterParentType(adapter.getClass());
+		// the containers are constructed through an factory resolved once, with the size of the previous container as capacity
+		ContainerFactory containerFactory = null;
+		if (fieldType == FieldType.VALUE_COLLECTION || fieldType == FieldType.REMAINING_MAP)
+			containerFactory = ContainerFactory.forField(field);
+		else if (fieldType == FieldType.PRIMITIVE_ARRAY)
+			containerFactory = ContainerFactory.forArrayBuffer(field, dataType);
+
+		// fields without generated accessor are accessed through method handles
+		if (accessor == null) {
+			field.trySetAccessible();
+			accessor = new MethodHandleFieldAccessor(field);
+		}
+		
+		return new XMLClassField<V, P>(isPrimitive, streamType, fieldType, field, accessor, dataType, parentType, adapter, adapterParentType, containerFactory, useCData);
 		
 	}
 	
+	/**
+	 * Returns the parent type accepted by the adapter, the most specific parent parameter type of its adapt methods
+	 */
+	private static Class<?> adapterParentType(Class<?> adapterClass) {
+		Class<?> adapterParentType = Object.class;
+		for (Method method : adapterClass.getMethods()) {
+			if (!method.getName().equals("adaptType") || method.getParameterCount() != 2 || method.isBridge()) continue;
+			Class<?> parameterType = method.getParameterTypes()[1];
+			if (adapterParentType.isAssignableFrom(parameterType)) adapterParentType = parameterType;
+		}
+		return adapterParentType;
+	}
+	
+	/**
+	 * Returns the parent object for the type adapter, or null if the adapter does not accept the parent object
+	 */
+	@SuppressWarnings("unchecked")
+	public P adapterParent(Object parentObject) {
+		return this.adapterParentType != null && this.adapterParentType.isInstance(parentObject) ? (P) parentObject : null;
+	}
+	
 	public void assign(Object xmlClassObject, V value, String key) throws XMLMarshalingException {
 		try {
 			switch (this.fieldType) {
 			case SINGLE_VALUE:
-				this.field.set(xmlClassObject, value);
+				this.accessor.set(xmlClassObject, value);
 				break;
 			case VALUE_COLLECTION:
 				@SuppressWarnings("unchecked")
-				Collection<V> collection = (Collection<V>) this.field.get(xmlClassObject);
+				Collection<V> collection = (Collection<V>) this.accessor.get(xmlClassObject);
 				if (collection == null) {
-					try {
-						@SuppressWarnings("unchecked")
-						Constructor<Collection<V>> collectionConstructor = (Constructor<Collection<V>>) this.field.getType().getConstructor();
-						collection = collectionConstructor.newInstance();
-					} catch (NoSuchMethodException e) {
-						throw new XMLMarshalingException("the collection class does not have an default constructor, and no instance is provided: " + this.field, e);
-					} catch (InstantiationException | SecurityException | InvocationTargetException e) {
-						throw new XMLMarshalingException("the collection class could not be constructed: " + this.field, e);
-					}
-					this.field.set(xmlClassObject, collection);
+					@SuppressWarnings("unchecked")
+					Collection<V> newCollection = (Collection<V>) this.containerFactory.create();
+					collection = newCollection;
+					this.accessor.set(xmlClassObject, collection);
 				}
 				collection.add(value);
 				break;
 			case REMAINING_MAP:
 				@SuppressWarnings("unchecked")
-				Map<String, V> map = (Map<String, V>) this.field.get(xmlClassObject);
+				Map<String, V> map = (Map<String, V>) this.accessor.get(xmlClassObject);
 				if (map == null) {
-					try {
-						@SuppressWarnings("unchecked")
-						Constructor<Map<String, V>> mapConstructor = (Constructor<Map<String, V>>) this.field.getType().getConstructor();
-						map = mapConstructor.newInstance();
-					} catch (NoSuchMethodException e) {
-						throw new XMLMarshalingException("the map class does not have an default constructor, and now instance if provided: " + this.field, e);
-					} catch (InstantiationException | SecurityException | InvocationTargetException e) {
-						throw new XMLMarshalingException("the map class could not be constructed: " + this.field, e);
-					}
-					this.field.set(xmlClassObject, map);
+					@SuppressWarnings("unchecked")
+					Map<String, V> newMap = (Map<String, V>) this.containerFactory.create();
+					map = newMap;
+					this.accessor.set(xmlClassObject, map);
 				}
 				map.put(key, value);
 				break;
 			}
-		} catch (IllegalArgumentException e) {
+		} catch (IllegalArgumentException | ClassCastException e) {
 			throw new IllegalArgumentException("the supplied type does not match the fields type", e);
-		} catch (IllegalAccessException e) {
-			throw new IllegalStateException("the field is not accessible", e);
 		}
 	}
 	
@@ -181,22 +341,64 @@ public record XMLClassField<V, P>(
 		try {
 			switch (this.fieldType) {
 			case SINGLE_VALUE:
-				return (V[]) new Object[] { this.field.get(xmlClassObject) };
+				return (V[]) new Object[] { this.accessor.get(xmlClassObject) };
 			case VALUE_COLLECTION:
-				Collection<V> collection = (Collection<V>) this.field.get(xmlClassObject);
+				Collection<V> collection = (Collection<V>) this.accessor.get(xmlClassObject);
 				if (collection == null) return (V[]) new Object[0];
 				return (V[]) collection.toArray();
 			case REMAINING_MAP:
-				Map<String, V> map = (Map<String, V>) this.field.get(xmlClassObject);
+				Map<String, V> map = (Map<String, V>) this.accessor.get(xmlClassObject);
 				if (map == null) return (V[]) new Object[0];
 				return (V[]) new Object[] { map.get(key) };
 			default:
 				throw new IllegalStateException();	
 			}
-		} catch (IllegalArgumentException e) {
+		} catch (IllegalArgumentException | ClassCastException e) {
+			throw new IllegalArgumentException("the supplied type does not match the fields type", e);
+		}
+	}
+	
+	/**
+	 * Remembers the number of values in the collection or map of the object, as initial capacity of the containers created for the next objects
+	 */
+	public void recordSize(Object xmlClassObject) {
+		if (this.fieldType != FieldType.VALUE_COLLECTION && this.fieldType != FieldType.REMAINING_MAP)
+			throw new UnsupportedOperationException("field is not of type collection or map");
+		this.containerFactory.recordSize(this.accessor.get(xmlClassObject));
+	}
+	
+	/**
+	 * Creates the buffer used to collect the values of an primitive array field, with the length of the last array as initial capacity
+	 */
+	public PrimitiveArrayBuffer newArrayBuffer() throws XMLMarshalingException {
+		if (this.fieldType != FieldType.PRIMITIVE_ARRAY)
+			throw new UnsupportedOperationException("field is not of type primitive array");
+		return (PrimitiveArrayBuffer) this.containerFactory.create();
+	}
+	
+	/**
+	 * Assigns the primitive array to an primitive array field, replacing the previous array.
+	 */
+	public void assignArray(Object xmlClassObject, Object array) {
+		try {
+			if (this.fieldType != FieldType.PRIMITIVE_ARRAY)
+				throw new UnsupportedOperationException("field is not of type primitive array");
+			this.accessor.set(xmlClassObject, array);
+		} catch (IllegalArgumentException | ClassCastException e) {
+			throw new IllegalArgumentException("the supplied type does not match the fields type", e);
+		}
+	}
+	
+	/**
+	 * Returns the primitive array of an primitive array field, without boxing its values.
+	 */
+	public Object queryArray(Object xmlClassObject) {
+		try {
+			if (this.fieldType != FieldType.PRIMITIVE_ARRAY)
+				throw new UnsupportedOperationException("field is not of type primitive array");
+			return this.accessor.get(xmlClassObject);
+		} catch (IllegalArgumentException | ClassCastException e) {
 			throw new IllegalArgumentException("the supplied type does not match the fields type", e);
-		} catch (IllegalAccessException e) {
-			throw new IllegalStateException("the field is not accessible", e);
 		}
 	}
 	
@@ -205,12 +407,179 @@ public record XMLClassField<V, P>(
 			if (this.fieldType != FieldType.REMAINING_MAP)
 				throw new UnsupportedOperationException("field is not of type map");
 			@SuppressWarnings("unchecked")
-			Map<String, V> map = (Map<String, V>) this.field.get(xmlClassObject);
+			Map<String, V> map = (Map<String, V>) this.accessor.get(xmlClassObject);
 			return map.keySet();
-		} catch (IllegalArgumentException e) {
+		} catch (IllegalArgumentException | ClassCastException e) {
 			throw new IllegalArgumentException("the supplied type does not match the fields type", e);
-		} catch (IllegalAccessException e) {
-			throw new IllegalStateException("the field is not accessible", e);
+		}
+	}
+	
+	/**
+	 * Parses the text as java primitive and assigns it using the primitive setters of the field, without creating an string or boxed value.
+	 * @return false if this field does not hold an single java primitive, in which case the value has to be assigned using {@link #assign(Object, Object, String)}
+	 */
+	public boolean assignPrimitive(Object xmlClassObject, CharSequence text) {
+		if (this.fieldType != FieldType.SINGLE_VALUE) return false;
+		try {
+			if (this.type == int.class) {
+				this.accessor.setInt(xmlClassObject, PrimitiveParser.parseInt(text, 0, text.length()));
+			} else if (this.type == double.class) {
+				this.accessor.setDouble(xmlClassObject, PrimitiveParser.parseDouble(text, 0, text.length()));
+			} else if (this.type == long.class) {
+				this.accessor.setLong(xmlClassObject, PrimitiveParser.parseLong(text, 0, text.length()));
+			} else if (this.type == float.class) {
+				this.accessor.setFloat(xmlClassObject, PrimitiveParser.parseFloat(text, 0, text.length()));
+			} else if (this.type == boolean.class) {
+				this.accessor.setBoolean(xmlClassObject, PrimitiveParser.parseBoolean(text, 0, text.length()));
+			} else if (this.type == short.class) {
+				this.accessor.setShort(xmlClassObject, PrimitiveParser.parseShort(text, 0, text.length()));
+			} else if (PrimitiveArrayBuffer.isPrimitiveArray(this.type)) {
+				this.accessor.set(xmlClassObject, new PrimitiveArrayBuffer(this.type.getComponentType()).appendList(text).toArray());
+			} else {
+				return false;
+			}
+			return true;
+		} catch (IllegalArgumentException | ClassCastException e) {
+			if (e instanceof NumberFormatException) throw e;
+			throw new IllegalArgumentException("the supplied type does not match the fields type", e);
+		}
+	}
+	
+	/**
+	 * Returns true if this field holds an single java primitive value without type adapter, which can be written without boxing it.
+	 */
+	public boolean isJavaPrimitive() {
+		if (this.fieldType != FieldType.SINGLE_VALUE || this.adapter != null) return false;
+		return this.type == int.class || this.type == double.class || this.type == long.class ||
+				this.type == float.class || this.type == boolean.class || this.type == short.class;
+	}
+	
+	/**
+	 * Writes the value of an java primitive field using the primitive getters of the field, without creating an string or boxed value.
+	 * @param attribute The name of the attribute to write the value to, or null to write it as text data
+	 * @return false if this field does not hold an single java primitive (see {@link #isJavaPrimitive()}), in which case the value has to be written using {@link #query(Object, String)}
+	 */
+	public boolean writePrimitive(Object xmlClassObject, XMLOutputStream xmlStream, String attribute) throws IOException, XMLException {
+		if (!isJavaPrimitive()) return false;
+		try {
+			if (this.type == int.class || this.type == short.class) {
+				int value = this.accessor.getInt(xmlClassObject);
+				if (attribute == null) xmlStream.writeInt(value); else xmlStream.writeAttribute(attribute, value);
+			} else if (this.type == double.class) {
+				double value = this.accessor.getDouble(xmlClassObject);
+				if (attribute == null) xmlStream.writeDouble(value); else xmlStream.writeAttribute(attribute, value);
+			} else if (this.type == long.class) {
+				long value = this.accessor.getLong(xmlClassObject);
+				if (attribute == null) xmlStream.writeLong(value); else xmlStream.writeAttribute(attribute, value);
+			} else if (this.type == float.class) {
+				float value = this.accessor.getFloat(xmlClassObject);
+				if (attribute == null) xmlStream.writeFloat(value); else xmlStream.writeAttribute(attribute, value);
+			} else if (this.type == boolean.class) {
+				boolean value = this.accessor.getBoolean(xmlClassObject);
+				if (attribute == null) xmlStream.writeBoolean(value); else xmlStream.writeAttribute(attribute, value);
+			} else {
+				return false;
+			}
+			return true;
+		} catch (IllegalArgumentException | ClassCastException e) {
+			throw new IllegalArgumentException("the supplied type does not match the fields type", e);
+		}
+	}
+	
+	/**
+	 * Writes the value at the index of the primitive array as text data, without creating an string or boxed value.
+	 */
+	public static void writeArrayElement(XMLOutputStream xmlStream, Object array, int index) throws IOException, XMLException {
+		if (array instanceof int[] a) xmlStream.writeInt(a[index]);
+		else if (array instanceof double[] a) xmlStream.writeDouble(a[index]);
+		else if (array instanceof long[] a) xmlStream.writeLong(a[index]);
+		else if (array instanceof float[] a) xmlStream.writeFloat(a[index]);
+		else if (array instanceof short[] a) xmlStream.writeInt(a[index]);
+		else if (array instanceof boolean[] a) xmlStream.writeBoolean(a[index]);
+		else throw new IllegalArgumentException("not an supported primitive array: " + array.getClass());
+	}
+	
+	/**
+	 * Returns true if the text data of this field is streamed instead of being converted from or to an string.
+	 */
+	public boolean isStream() {
+		if (this.adapter != null) return this.adapter instanceof XMLStreamFieldAdapter;
+		return this.streamType != StreamType.NONE;
+	}
+	
+	/**
+	 * Streams the text data of the stream field value to the writer, binary data is encoded as base64 text.
+	 */
+	public static void transferTo(StreamType streamType, Object value, Writer writer) throws IOException {
+		switch (streamType) {
+		case READER:
+			((Reader) value).transferTo(writer);
+			break;
+		case INPUT_STREAM:
+			try (OutputStream stream = new Base64EncodingOutputStream(writer)) {
+				((InputStream) value).transferTo(stream);
+			}
+			break;
+		case BYTES:
+			try (OutputStream stream = new Base64EncodingOutputStream(writer)) {
+				stream.write((byte[]) value);
+			}
+			break;
+		case BYTE_BUFFER:
+			try (OutputStream stream = new Base64EncodingOutputStream(writer)) {
+				ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+				if (buffer.hasArray()) {
+					stream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+				} else {
+					byte[] bytes = new byte[Math.min(buffer.remaining(), 4096)];
+					while (buffer.hasRemaining()) {
+						int n = Math.min(buffer.remaining(), bytes.length);
+						buffer.get(bytes, 0, n);
+						stream.write(bytes, 0, n);
+					}
+				}
+			}
+			break;
+		default:
+			throw new IllegalArgumentException("stream type can not be marshaled: " + streamType);
+		}
+	}
+	
+	/**
+	 * Opens an writer to which the text data of the stream field is streamed when unmarshaling, base64 text is decoded to binary data.<br>
+	 * For sink stream types, the data is written to the supplied field instance, otherwise the value is returned by {@link #closeStreamWriter(StreamType, Writer)}.
+	 */
+	public static Writer openStreamWriter(StreamType streamType, Object sink) {
+		switch (streamType) {
+		case WRITER:
+			return (Writer) sink;
+		case OUTPUT_STREAM:
+			return new Base64DecodingWriter((OutputStream) sink);
+		case BYTES:
+		case BYTE_BUFFER:
+			return new Base64DecodingWriter(new ByteArrayOutputStream());
+		default:
+			throw new IllegalArgumentException("stream type can not be unmarshaled: " + streamType);
+		}
+	}
+	
+	/**
+	 * Completes the writer opened by {@link #openStreamWriter(StreamType, Object)} and returns the value for non-sink stream types.<br>
+	 * Sink instances are only flushed, not closed.
+	 */
+	public static Object closeStreamWriter(StreamType streamType, Writer writer) throws IOException {
+		if (!(writer instanceof Base64DecodingWriter decoder)) {
+			writer.flush();
+			return null;
+		}
+		decoder.close();
+		switch (streamType) {
+		case BYTES:
+			return ((ByteArrayOutputStream) decoder.getStream()).toByteArray();
+		case BYTE_BUFFER:
+			return ByteBuffer.wrap(((ByteArrayOutputStream) decoder.getStream()).toByteArray());
+		default:
+			return null;
 		}
 	}
 	
@@ -230,25 +599,17 @@ public record XMLClassField<V, P>(
 			return (T) Double.valueOf(valueStr);
 		} else if (primitive == Float.class || primitive == float.class) {
 			return (T) Float.valueOf(valueStr);
+		} else if (PrimitiveArrayBuffer.isPrimitiveArray(primitive)) {
+			if (valueStr == null) return null;
+			return (T) new PrimitiveArrayBuffer(primitive.getComponentType()).appendList(valueStr).toArray();
 		} else if (primitive.isEnum()) {
 			if (valueStr == null) return null;
-			for (T e : primitive.getEnumConstants()) {
-				try {
-					Field enumField = e.getClass().getDeclaredField(((Enum) e).name());
-					XMLEnum enumAnnotation = enumField.getAnnotation(XMLEnum.class);
-					if (enumAnnotation == null) {
-						if (((Enum) e).name().equalsIgnoreCase(valueStr)) return e;
-					} else if (enumAnnotation.value().equals(valueStr)) return e;
-				} catch (NoSuchFieldError | NoSuchFieldException | SecurityException e1) {
-					throw new RuntimeException("enum field access error", e1);
-				}
-			}
-			return null;
+			return (T) EnumTable.of((Class) primitive).constantOf(valueStr);
 		}
 		throw new IllegalArgumentException("supplied class is not an XML primitive");
 	}
 	
-	@SuppressWarnings("rawtypes")
+	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public static <T> String primitiveString(Class<T> primitive, T value) {
 		if (primitive == String.class) {
 			return (String) value;
@@ -264,16 +625,12 @@ public record XMLClassField<V, P>(
 			return Double.toString((Double) value);
 		} else if (primitive == Float.class || primitive == float.class) {
 			return Float.toString((Float) value);
+		} else if (PrimitiveArrayBuffer.isPrimitiveArray(primitive)) {
+			if (value == null) return null;
+			return PrimitiveArrayBuffer.listString(value);
 		} else if (primitive.isEnum()) {
 			if (value == null) return null;
-			try {
-				Field enumField = value.getClass().getDeclaredField(((Enum) value).name());
-				XMLEnum enumAnnotation = enumField.getAnnotation(XMLEnum.class) ;
-				if (enumAnnotation == null) return ((Enum) value).name();
-				return enumAnnotation.value();
-			} catch (NoSuchFieldError | NoSuchFieldException | SecurityException e) {
-				throw new RuntimeException("enum field access error", e);
-			}
+			return EnumTable.of((Class) primitive).stringOf((Enum) value);
 		}
 		throw new IllegalArgumentException("supplied class is not an XML primitive");
 	}
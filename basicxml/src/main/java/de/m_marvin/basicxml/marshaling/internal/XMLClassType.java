@@ -1,21 +1,37 @@
 package de.m_marvin.basicxml.marshaling.internal;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
-import java.util.Arrays;
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import de.m_marvin.basicxml.TagTemplate;
 import de.m_marvin.basicxml.marshaling.annotations.XMLField;
 import de.m_marvin.basicxml.marshaling.annotations.XMLOrder;
 import de.m_marvin.basicxml.marshaling.annotations.XMLType;
+import de.m_marvin.basicxml.marshaling.binding.XMLFieldDescriptor;
+import de.m_marvin.basicxml.marshaling.binding.XMLTypeBinding;
+import de.m_marvin.basicxml.marshaling.internal.NamespaceMap.Key;
 
 /**
  * Describes information about an class type required for XML marshaling
@@ -38,7 +54,19 @@ public record XMLClassType<T, P>(
 		/** order in which attributes are written to XML **/
 		List<String> attributeOrder,
 		/** order in which elements are written to XML **/
-		List<String> elementOrder
+		List<String> elementOrder,
+		/** templates for the tags of the elements this type is written as, by element namespace and name **/
+		Map<Key, TagTemplate> tagTemplates,
+		/** the fields in the order in which they are written to XML **/
+		WritePlan writePlan,
+		/** the attribute fields by the names they are read from XML **/
+		FieldDispatch attributeDispatch,
+		/** the element fields by the namespaces and names they are read from XML **/
+		FieldDispatch elementDispatch,
+		/** all fields in the order in which they are declared, the fields of the super types first **/
+		List<XMLClassField<?, ?>> fields,
+		/** the binding generated for this class, or null if there is none **/
+		XMLTypeBinding<T> binding
 		) {
 	
 	@FunctionalInterface
@@ -46,59 +74,273 @@ public record XMLClassType<T, P>(
 		public T makeType(P parentObject) throws LayerInstantiationException;
 	}
 	
+	/**
+	 * An attribute or element field with the namespace and name it is written as.<br>
+	 * For the fields of remaining maps the name is {@link XMLClassType#REMAINING_MAP_FIELD}, the keys of the map are written in its place.
+	 */
+	public static record WriteEntry(URI namespace, String name, XMLClassField<?, ?> field) {
+		
+		public boolean isRemainingMap() {
+			return this.name.equals(REMAINING_MAP_FIELD);
+		}
+		
+	}
+	
+	/**
+	 * The fields of an type in the order in which they are written to XML, which is the same for all objects of the type.<br>
+	 * Elements are grouped by their namespace, the keys of remaining maps which are also written by an other field are skipped.
+	 */
+	public static record WritePlan(
+			/** the attribute fields in the order in which they are written **/
+			List<WriteEntry> attributes,
+			/** the text field, or null if there is none **/
+			XMLClassField<?, ?> textField,
+			/** the element fields in the order in which they are written **/
+			List<WriteEntry> elements,
+			/** the names of the attributes written by attribute fields **/
+			Set<String> attributeNames,
+			/** the namespaces and names of the elements written by element fields **/
+			Set<Key> elementKeys
+			) {}
+	
+	private static record CacheKey(Class<?> parentType, boolean ignoreNamespaces) {}
+	
+	/** descriptions created by {@link #forClass(Class, Class, boolean)}, for each parent type and namespace setting of the class */
+	private static final ClassValue<Map<CacheKey, XMLClassType<?, ?>>> TYPES = new ClassValue<>() {
+		@Override
+		protected Map<CacheKey, XMLClassType<?, ?>> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+	
+	/**
+	 * Returns the description of the class, which is created only once for each class, parent type and namespace setting.<br>
+	 * The description is immutable and can be shared by all marshalers and unmarshalers and used by multiple threads concurrently.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T, P> XMLClassType<T, P> forClass(Class<T> type, Class<P> parentType, boolean ignoreNamespaces) {
+		Objects.requireNonNull(type, "type can not be null");
+		return (XMLClassType<T, P>) TYPES.get(type).computeIfAbsent(new CacheKey(parentType, ignoreNamespaces), key -> makeFromClass(type, parentType, ignoreNamespaces));
+	}
+	
 	public static <T, P> XMLClassType<T, P> makeFromClass(Class<T> type, Class<P> parentType, boolean ignoreNamespaces) {
 		Objects.requireNonNull(type, "type can not be null");
 		
-		if (!type.isAnnotationPresent(XMLType.class))
+		@SuppressWarnings("unchecked")
+		XMLTypeBinding<T> binding = (XMLTypeBinding<T>) findBinding(type);
+		if (binding == null && !type.isAnnotationPresent(XMLType.class))
 			throw new IllegalArgumentException("the supplied class is not annotated as an XML type object: " + type);
 		
 		boolean isStatic = type.getEnclosingClass() == null || Modifier.isStatic(type.getModifiers());
 		if (!isStatic && parentType == null)
 			throw new IllegalArgumentException("type is not a static class but parent type is null");
-		try {
-			Constructor<T> constructor = isStatic ? type.getDeclaredConstructor() : type.getDeclaredConstructor(parentType);
-			TypeFactory<T, P> factory = isStatic ? parentObject -> {
-				try {
-					return constructor.newInstance();
-				} catch (ExceptionInInitializerError | InvocationTargetException e) {
-					throw new LayerInstantiationException("unable to construct type object: " + type , e);
-				} catch (IllegalArgumentException | InstantiationException | IllegalAccessException e) {
-					throw new LayerInstantiationException("construction of object threw an error: " + type, e);
-				}
-			} : parentObject -> {
-				try {
-					return constructor.newInstance(parentObject);
-				} catch (ExceptionInInitializerError | InvocationTargetException e) {
-					throw new LayerInstantiationException("unable to construct type object: " + type + " parent: " + parentObject, e);
-				} catch (IllegalArgumentException | InstantiationException | IllegalAccessException e) {
-					throw new LayerInstantiationException("construction of object threw an error: " + type + " parent: " + parentObject, e);
-				}
-			};
-			
+		
+		TypeFactory<T, P> factory;
+		List<String> attributeOrder;
+		List<String> elementOrder;
+		if (binding != null) {
+			// the generated binding supplies the annotation metadata, the type is not examined reflectively
+			factory = makeFactory(type, binding, isStatic);
+			attributeOrder = List.copyOf(binding.attributeOrder());
+			elementOrder = List.copyOf(binding.elementOrder());
+		} else {
+			try {
+				Constructor<T> constructor = isStatic ? type.getDeclaredConstructor() : type.getDeclaredConstructor(parentType);
+				factory = makeFactory(type, constructor, isStatic);
+			} catch (NoSuchMethodException e) {
+				throw new LayerInstantiationException("the supplied type class has no default constructor", e);
+			}
 			XMLOrder xmlOrderAnnotation = type.getAnnotation(XMLOrder.class);
-			List<String> attributeOrder = xmlOrderAnnotation == null ? Collections.emptyList() : Arrays.asList(xmlOrderAnnotation.attributes());
-			List<String> elementOrder = xmlOrderAnnotation == null ? Collections.emptyList() : Arrays.asList(xmlOrderAnnotation.elements());
-			
-			XMLClassType<T, P> xmlClassType = new XMLClassType<T, P>(isStatic, parentType, factory, new HashSet<>(), new LinkedHashMap<>(), new NamespaceMap<>(ignoreNamespaces), attributeOrder, elementOrder);
-			findFieldsAndTypes(type, xmlClassType);
-			return xmlClassType;
-			
-		} catch (NoSuchMethodException e) {
-			throw new LayerInstantiationException("the supplied type class has no default constructor", e);
+			attributeOrder = xmlOrderAnnotation == null ? List.of() : List.of(xmlOrderAnnotation.attributes());
+			elementOrder = xmlOrderAnnotation == null ? List.of() : List.of(xmlOrderAnnotation.elements());
+		}
+		
+		XMLClassType<T, P> xmlClassType = new XMLClassType<T, P>(isStatic, parentType, factory, new LinkedHashSet<>(), new LinkedHashMap<>(), new NamespaceMap<>(ignoreNamespaces), attributeOrder, elementOrder, new ConcurrentHashMap<>(), null, null, null, new ArrayList<>(), binding);
+		if (binding != null) {
+			for (XMLFieldDescriptor descriptor : binding.fields())
+				addField(xmlClassType, descriptor.kind(), descriptor.name(), descriptor.namespace(), XMLClassField.forDescriptor(descriptor));
+		} else {
+			findFields(type, xmlClassType);
 		}
+		findSubTypes(type, xmlClassType.subTypes);
+		
+		// the collections are not modified after the fields are found, only the tag templates are added on demand
+		return new XMLClassType<T, P>(isStatic, parentType, factory,
+				Collections.unmodifiableSet(xmlClassType.subTypes), Collections.unmodifiableMap(xmlClassType.attributes), xmlClassType.elements.immutableCopy(),
+				attributeOrder, elementOrder, xmlClassType.tagTemplates, makeWritePlan(xmlClassType),
+				FieldDispatch.ofAttributes(xmlClassType.attributes), FieldDispatch.ofElements(xmlClassType.elements, ignoreNamespaces),
+				Collections.unmodifiableList(xmlClassType.fields), binding);
 	}
 
+	private static final ClassValue<Optional<XMLTypeBinding<?>>> BINDINGS = new ClassValue<>() {
+		@Override
+		protected Optional<XMLTypeBinding<?>> computeValue(Class<?> type) {
+			// abstract types are never constructed, their fields are described by the bindings of the concrete types
+			if (Modifier.isAbstract(type.getModifiers())) return Optional.empty();
+			try {
+				Class<?> bindingClass = Class.forName(XMLTypeBinding.bindingClassName(type.getName()), true, type.getClassLoader());
+				if (!XMLTypeBinding.class.isAssignableFrom(bindingClass)) return Optional.empty();
+				return Optional.of((XMLTypeBinding<?>) bindingClass.getConstructor().newInstance());
+			} catch (ClassNotFoundException e) {
+				return Optional.empty();
+			} catch (ReflectiveOperationException | LinkageError e) {
+				throw new LayerInstantiationException("failed to construct the generated binding of the type: " + type, e);
+			}
+		}
+	};
+	
+	/**
+	 * Returns the binding generated by the annotation processor for the type, or null if there is none
+	 */
+	public static XMLTypeBinding<?> findBinding(Class<?> type) {
+		return BINDINGS.get(type).orElse(null);
+	}
+	
+	/**
+	 * Creates an factory which constructs the type through its generated binding
+	 */
+	private static <T, P> TypeFactory<T, P> makeFactory(Class<T> type, XMLTypeBinding<T> binding, boolean isStatic) {
+		return parentObject -> {
+			try {
+				return binding.construct(parentObject);
+			} catch (Throwable e) {
+				throw constructionFailed(e, "unable to construct type object: " + type + (isStatic ? "" : " parent: " + parentObject));
+			}
+		};
+	}
+	
+	/**
+	 * Creates an factory which constructs the type through an generated lambda, or reflectively if no lambda can be generated for it
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T, P> TypeFactory<T, P> makeFactory(Class<T> type, Constructor<T> constructor, boolean isStatic) {
+		constructor.trySetAccessible();
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+			MethodHandle handle = lookup.unreflectConstructor(constructor);
+			if (isStatic) {
+				Supplier<Object> supplier = (Supplier<Object>) lambdaInstance(LambdaMetafactory.metafactory(lookup, "get",
+						MethodType.methodType(Supplier.class), MethodType.methodType(Object.class), handle, MethodType.methodType(type)));
+				return parentObject -> {
+					try {
+						return (T) supplier.get();
+					} catch (Throwable e) {
+						throw constructionFailed(e, "unable to construct type object: " + type);
+					}
+				};
+			} else {
+				Class<?> parentType = constructor.getParameterTypes()[0];
+				Function<Object, Object> function = (Function<Object, Object>) lambdaInstance(LambdaMetafactory.metafactory(lookup, "apply",
+						MethodType.methodType(Function.class), MethodType.methodType(Object.class, Object.class), handle, MethodType.methodType(type, parentType)));
+				return parentObject -> {
+					if (parentObject != null && !parentType.isInstance(parentObject))
+						throw new LayerInstantiationException("construction of object threw an error: " + type + " parent: " + parentObject, new IllegalArgumentException("parent object is not an instance of " + parentType));
+					try {
+						return (T) function.apply(parentObject);
+					} catch (Throwable e) {
+						throw constructionFailed(e, "unable to construct type object: " + type + " parent: " + parentObject);
+					}
+				};
+			}
+		} catch (IllegalAccessException | LambdaConversionException | SecurityException e) {
+			// the package of the type is not open for this module, construct it reflectively instead
+		}
+		return isStatic ? parentObject -> {
+			try {
+				return constructor.newInstance();
+			} catch (ExceptionInInitializerError | InvocationTargetException e) {
+				throw new LayerInstantiationException("unable to construct type object: " + type , e);
+			} catch (IllegalArgumentException | InstantiationException | IllegalAccessException e) {
+				throw new LayerInstantiationException("construction of object threw an error: " + type, e);
+			}
+		} : parentObject -> {
+			try {
+				return constructor.newInstance(parentObject);
+			} catch (ExceptionInInitializerError | InvocationTargetException e) {
+				throw new LayerInstantiationException("unable to construct type object: " + type + " parent: " + parentObject, e);
+			} catch (IllegalArgumentException | InstantiationException | IllegalAccessException e) {
+				throw new LayerInstantiationException("construction of object threw an error: " + type + " parent: " + parentObject, e);
+			}
+		};
+	}
+	
+	/**
+	 * Returns the lambda instance of an call site created by the lambda meta factory, which captures no arguments
+	 */
+	private static Object lambdaInstance(CallSite callSite) {
+		try {
+			return callSite.getTarget().invoke();
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException("unable to create lambda instance", e);
+		}
+	}
+	
+	/**
+	 * Wraps the exception thrown by an constructor, errors other than initialization errors are rethrown
+	 */
+	private static LayerInstantiationException constructionFailed(Throwable e, String message) {
+		if (e instanceof Error error && !(e instanceof ExceptionInInitializerError)) throw error;
+		return new LayerInstantiationException(message, e);
+	}
+	
 	public static final String TEXT_VALUE_FIELD = "!TEXT!";
 	public static final String REMAINING_MAP_FIELD = "!REMAINING!";
 	
-	private static void findFieldsAndTypes(Class<?> clazz, XMLClassType<?, ?> xmlClassType) {
+	/**
+	 * Returns the template for the tags of elements of this type with the namespace and name, which contains the names of all attribute fields
+	 */
+	public TagTemplate tagTemplate(URI namespace, String name) {
+		return this.tagTemplates.computeIfAbsent(new Key(namespace, name), key -> {
+			List<String> attributeNames = this.attributes.keySet().stream()
+					.filter(attributeName -> !attributeName.equals(TEXT_VALUE_FIELD) && !attributeName.equals(REMAINING_MAP_FIELD))
+					.toList();
+			return new TagTemplate(namespace, name, attributeNames);
+		});
+	}
+	
+	/**
+	 * Orders the fields of the type as they are written, the fields listed by the order annotation first, then all other fields in the order in which they are declared
+	 */
+	private static WritePlan makeWritePlan(XMLClassType<?, ?> xmlClassType) {
+		
+		Map<String, XMLClassField<?, ?>> attributeMap = new LinkedHashMap<>();
+		for (String attributeName : xmlClassType.attributeOrder) {
+			if (attributeName.equals(TEXT_VALUE_FIELD)) continue;
+			XMLClassField<?, ?> attributeField = xmlClassType.attributes.get(attributeName);
+			if (attributeField != null) attributeMap.put(attributeName, attributeField);
+		}
+		for (var attribute : xmlClassType.attributes.entrySet()) {
+			if (attribute.getKey().equals(TEXT_VALUE_FIELD)) continue;
+			attributeMap.putIfAbsent(attribute.getKey(), attribute.getValue());
+		}
+		
+		// the element map groups the elements by namespace
+		NamespaceMap<XMLClassField<?, ?>> elementMap = new NamespaceMap<>(false);
+		for (String elementName : xmlClassType.elementOrder)
+			for (NamespaceMap.Entry<XMLClassField<?, ?>> element : xmlClassType.elements.entrySet()) {
+				if (element.name().equals(elementName)) elementMap.put(element.namespace(), element.name(), element.value());
+			}
+		for (NamespaceMap.Entry<XMLClassField<?, ?>> element : xmlClassType.elements.entrySet()) {
+			if (elementMap.get(element.namespace(), element.name()) == null) elementMap.put(element.namespace(), element.name(), element.value());
+		}
+		
+		List<WriteEntry> attributes = attributeMap.entrySet().stream().map(attribute -> new WriteEntry(null, attribute.getKey(), attribute.getValue())).toList();
+		List<WriteEntry> elements = elementMap.entrySet().stream().map(element -> new WriteEntry(element.namespace(), element.name(), element.value())).toList();
+		Set<String> attributeNames = attributes.stream().filter(attribute -> !attribute.isRemainingMap()).map(WriteEntry::name).collect(Collectors.toUnmodifiableSet());
+		Set<Key> elementKeys = elements.stream().filter(element -> !element.isRemainingMap()).map(element -> new Key(element.namespace(), element.name())).collect(Collectors.toUnmodifiableSet());
+		return new WritePlan(attributes, xmlClassType.attributes.get(TEXT_VALUE_FIELD), elements, attributeNames, elementKeys);
+	}
+	
+	private static void findFields(Class<?> clazz, XMLClassType<?, ?> xmlClassType) {
 		Class<?> superclass = clazz.getSuperclass();
 		if (superclass.isAnnotationPresent(XMLType.class))
-			findFieldsAndTypes(superclass, xmlClassType);
+			findFields(superclass, xmlClassType);
 		
 		for (Class<?> in : clazz.getInterfaces())
 			if (in.isAnnotationPresent(XMLType.class))
-				findFieldsAndTypes(in, xmlClassType);
+				findFields(in, xmlClassType);
 		
 		for (Field field : clazz.getDeclaredFields()) {
 			XMLField xmlField = field.getAnnotation(XMLField.class);
@@ -106,31 +348,55 @@ public record XMLClassType<T, P>(
 			String name = xmlField.name().equals(XMLField.NULL_STR) ? field.getName() : xmlField.name();
 			String namespace = xmlField.namespace().equals(XMLField.NULL_STR) ? null : xmlField.namespace();
 			
-			XMLClassField<?, ?> xmlClassField = XMLClassField.makeFromField(field.getType(), field);
-			
-			switch (xmlField.value()) {
-			case ATTRIBUTE: 
-				xmlClassType.attributes.put(name, xmlClassField); 
-				break;
-			case ELEMENT: 
-			case ELEMENT_COLLECTION:
-				xmlClassType.elements.put(namespace, name, xmlClassField); 
-				break;
-			case REMAINING_ATTRIBUTE_MAP:
-				xmlClassType.attributes.put(REMAINING_MAP_FIELD, xmlClassField); 
-				break;
-			case REMAINING_ELEMENT_MAP:
-				xmlClassType.elements.put(namespace, REMAINING_MAP_FIELD, xmlClassField); 
-				break;
-			case TEXT: 
-				xmlClassType.attributes.put(TEXT_VALUE_FIELD, xmlClassField); 
-				break;
-			}
+			addField(xmlClassType, xmlField.value(), name, namespace, XMLClassField.forField(field));
 		}
 		
+	}
+	
+	private static void addField(XMLClassType<?, ?> xmlClassType, XMLField.FieldType kind, String name, String namespace, XMLClassField<?, ?> xmlClassField) {
+		xmlClassType.fields.add(xmlClassField);
+		switch (kind) {
+		case ATTRIBUTE: 
+			xmlClassType.attributes.put(name, xmlClassField); 
+			break;
+		case ELEMENT: 
+		case ELEMENT_COLLECTION:
+			xmlClassType.elements.put(namespace, name, xmlClassField); 
+			break;
+		case REMAINING_ATTRIBUTE_MAP:
+			xmlClassType.attributes.put(REMAINING_MAP_FIELD, xmlClassField); 
+			break;
+		case REMAINING_ELEMENT_MAP:
+			xmlClassType.elements.put(namespace, REMAINING_MAP_FIELD, xmlClassField); 
+			break;
+		case TEXT: 
+			xmlClassType.attributes.put(TEXT_VALUE_FIELD, xmlClassField); 
+			break;
+		}
+	}
+	
+	/**
+	 * Adds the XML types declared in the class and in its XML type super classes and interfaces to the set, in the order in which the fields are found.<br>
+	 * If the class has an generated binding, the types are supplied by the binding instead.
+	 */
+	public static void findSubTypes(Class<?> clazz, Set<Class<?>> subTypes) {
+		XMLTypeBinding<?> binding = findBinding(clazz);
+		if (binding != null) {
+			subTypes.addAll(binding.subTypes());
+			return;
+		}
+		
+		Class<?> superclass = clazz.getSuperclass();
+		if (superclass.isAnnotationPresent(XMLType.class))
+			findSubTypes(superclass, subTypes);
+		
+		for (Class<?> in : clazz.getInterfaces())
+			if (in.isAnnotationPresent(XMLType.class))
+				findSubTypes(in, subTypes);
+		
 		for (Class<?> type : clazz.getDeclaredClasses()) {
 			if (type.isAnnotationPresent(XMLType.class))
-				xmlClassType.subTypes.add(type);
+				subTypes.add(type);
 		}
 	}
 	
@@ -0,0 +1,126 @@
+package de.m_marvin.basicxml.marshaling.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.m_marvin.basicxml.marshaling.annotations.XMLType;
+
+/**
+ * The XML types known to an marshaler or unmarshaler, the root types and all XML types declared in them.<br>
+ * Types are looked up and resolved on their first use, an type declared in an registered type is registered with it as parent type, without examining the other types.
+ * All types declared in the root types are only searched if all types are requested, or an type can not be found through the class declaring it.
+ * The registry can be used by multiple threads concurrently.
+ */
+public class XMLTypeRegistry {
+
+	/** registration of an type, with the parent type used to construct it */
+	private static record Registration(boolean registered, Class<?> parentType) {}
+	private static final Registration NOT_REGISTERED = new Registration(false, null);
+
+	private final boolean ignoreNamespaces;
+	private final Set<Class<?>> rootTypes;
+	/** the registrations of the types looked up so far */
+	private final Map<Class<?>, Registration> registrations = new ConcurrentHashMap<>();
+	/** the descriptions of the registered types resolved so far */
+	private final Map<Class<?>, XMLClassType<?, ?>> types = new ConcurrentHashMap<>();
+	/** the parent types of all types declared in the root types, null until they are first needed */
+	private Map<Class<?>, Class<?>> allTypes = null;
+
+	public XMLTypeRegistry(boolean ignoreNamespaces, Class<?>... rootTypes) {
+		this.ignoreNamespaces = ignoreNamespaces;
+		this.rootTypes = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(rootTypes)));
+	}
+
+	/**
+	 * Returns true if the namespaces of the elements are ignored when looking up the fields
+	 */
+	public boolean ignoreNamespaces() {
+		return this.ignoreNamespaces;
+	}
+	
+	/**
+	 * Returns the root types the registry was created with
+	 */
+	public Set<Class<?>> rootTypes() {
+		return this.rootTypes;
+	}
+	
+	/**
+	 * Returns the description of the type, and resolves it if this is its first use
+	 * @return The description of the type, or null if the type is not registered
+	 * @throws IllegalArgumentException If the type is not a valid XML type
+	 * @throws LayerInstantiationException If the type or an type adapter can not be constructed
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> XMLClassType<T, ?> get(Class<T> type) {
+		XMLClassType<?, ?> xmlClassType = this.types.get(type);
+		if (xmlClassType != null) return (XMLClassType<T, ?>) xmlClassType;
+		Registration registration = registration(type);
+		if (!registration.registered()) return null;
+		return (XMLClassType<T, ?>) this.types.computeIfAbsent(type, t -> XMLClassType.forClass(t, registration.parentType(), this.ignoreNamespaces));
+	}
+
+	private Registration registration(Class<?> type) {
+		Registration registration = this.registrations.get(type);
+		if (registration != null) return registration;
+		// the types declared in an registered type are registered with it as parent type
+		Class<?> declaringType = type.getDeclaringClass();
+		if (declaringType != null && type.isAnnotationPresent(XMLType.class) && registration(declaringType).registered()) {
+			registration = new Registration(true, declaringType);
+		} else if (this.rootTypes.contains(type)) {
+			registration = new Registration(true, null);
+		} else {
+			// types declared in the super classes of an registered type
+			Map<Class<?>, Class<?>> allTypes = allTypes();
+			registration = allTypes.containsKey(type) ? new Registration(true, allTypes.get(type)) : NOT_REGISTERED;
+		}
+		this.registrations.putIfAbsent(type, registration);
+		return registration;
+	}
+
+	/**
+	 * Returns all types declared in the root types and in their XML super types, in the order in which they are found
+	 */
+	private synchronized Map<Class<?>, Class<?>> allTypes() {
+		if (this.allTypes == null) {
+			Map<Class<?>, Class<?>> allTypes = new LinkedHashMap<>();
+			for (Class<?> type : this.rootTypes)
+				findTypes(type, null, allTypes);
+			this.allTypes = Collections.unmodifiableMap(allTypes);
+		}
+		return this.allTypes;
+	}
+
+	private static void findTypes(Class<?> type, Class<?> parent, Map<Class<?>, Class<?>> allTypes) {
+		// the type might declare itself as sub type through its super class
+		if (allTypes.containsKey(type) && allTypes.get(type) == parent) return;
+		allTypes.put(type, parent);
+		Set<Class<?>> subTypes = new LinkedHashSet<>();
+		XMLClassType.findSubTypes(type, subTypes);
+		for (Class<?> subType : subTypes)
+			findTypes(subType, type, allTypes);
+	}
+
+	/**
+	 * Returns all registered types, which requires all types declared in the root types to be searched
+	 */
+	public Set<Class<?>> registeredTypes() {
+		return allTypes().keySet();
+	}
+
+	/**
+	 * Resolves the descriptions of all registered types which are not resolved yet
+	 * @throws IllegalArgumentException If an type is not a valid XML type
+	 * @throws LayerInstantiationException If an type or type adapter can not be constructed
+	 */
+	public void resolveAll() {
+		for (Class<?> type : registeredTypes())
+			get(type);
+	}
+
+}
@@ -0,0 +1,100 @@
+package test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+
+import de.m_marvin.basicxml.marshaling.annotations.XMLField;
+import de.m_marvin.basicxml.marshaling.annotations.XMLField.FieldType;
+import de.m_marvin.basicxml.marshaling.annotations.XMLType;
+import de.m_marvin.basicxml.marshaling.binding.FieldAccessor;
+import de.m_marvin.basicxml.marshaling.internal.MethodHandleFieldAccessor;
+import de.m_marvin.basicxml.marshaling.internal.XMLClassType;
+import de.m_marvin.basicxml.marshaling.internal.XMLClassType.TypeFactory;
+
+/**
+ * Compares reflective field access and construction with the method handle based field accessors and the generated factories used by the marshaler.<br>
+ * Measures per-field get and set of an int and an object field, and the construction of an object.
+ */
+public class AccessorBenchmark {
+
+	private static final int OPERATIONS = 20_000_000;
+	private static final int ROUNDS = 5;
+
+	@XMLType
+	public static class Bean {
+		@XMLField(FieldType.ATTRIBUTE)
+		private int id;
+		@XMLField(FieldType.ELEMENT)
+		private String name;
+	}
+
+	/** consumes the results, so that the measured operations are not removed */
+	private static long sink = 0;
+
+	public static void main(String... args) throws Exception {
+
+		Field idField = Bean.class.getDeclaredField("id");
+		Field nameField = Bean.class.getDeclaredField("name");
+		idField.setAccessible(true);
+		nameField.setAccessible(true);
+		FieldAccessor idAccessor = new MethodHandleFieldAccessor(idField);
+		FieldAccessor nameAccessor = new MethodHandleFieldAccessor(nameField);
+		Constructor<Bean> constructor = Bean.class.getDeclaredConstructor();
+		TypeFactory<Bean, ?> factory = XMLClassType.makeFromClass(Bean.class, null, false).factory();
+
+		Bean bean = new Bean();
+		String[] names = { "a", "b", "c", "d" };
+		// keeps the constructed objects reachable, so that their allocation is not removed
+		Bean[] constructed = new Bean[1024];
+
+		for (int round = 0; round < ROUNDS; round++) {
+			System.out.println("round " + round + ":");
+
+			long start = System.nanoTime();
+			for (int i = 0; i < OPERATIONS; i++) {
+				idField.setInt(bean, i);
+				sink += idField.getInt(bean);
+			}
+			report("reflective int set/get", start);
+			start = System.nanoTime();
+			for (int i = 0; i < OPERATIONS; i++) {
+				idAccessor.setInt(bean, i);
+				sink += idAccessor.getInt(bean);
+			}
+			report("method handle int set/get", start);
+
+			start = System.nanoTime();
+			for (int i = 0; i < OPERATIONS; i++) {
+				nameField.set(bean, names[i & 3]);
+				sink += nameField.get(bean).hashCode();
+			}
+			report("reflective object set/get", start);
+			start = System.nanoTime();
+			for (int i = 0; i < OPERATIONS; i++) {
+				nameAccessor.set(bean, names[i & 3]);
+				sink += nameAccessor.get(bean).hashCode();
+			}
+			report("method handle object set/get", start);
+
+			start = System.nanoTime();
+			for (int i = 0; i < OPERATIONS; i++) {
+				constructed[i & 1023] = constructor.newInstance();
+			}
+			report("reflective construction", start);
+			start = System.nanoTime();
+			for (int i = 0; i < OPERATIONS; i++) {
+				constructed[i & 1023] = factory.makeType(null);
+			}
+			report("generated lambda construction", start);
+		}
+
+		System.out.println("(" + sink + ")");
+
+	}
+
+	private static void report(String name, long start) {
+		long time = System.nanoTime() - start;
+		System.out.println(String.format("  %-32s %.2f ns/op", name, (double) time / OPERATIONS));
+	}
+
+}
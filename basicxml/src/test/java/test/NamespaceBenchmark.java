@@ -0,0 +1,68 @@
+package test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Arrays;
+
+import de.m_marvin.basicxml.XMLOutputStream;
+import de.m_marvin.basicxml.XMLStream.DescType;
+import de.m_marvin.basicxml.XMLStream.ElementDescriptor;
+
+/**
+ * Measures output size and write speed of an document in which most elements use an namespace not declared on the root element.<br>
+ * Also checks that the namespace prefixes are assigned deterministically, by comparing the output of two runs.<br>
+ * Compares declaring the namespaces where they are used against declaring them all in advance on the root element.
+ */
+public class NamespaceBenchmark {
+
+	private static final int ELEMENTS = 100_000;
+	private static final int ROUNDS = 10;
+	private static final URI[] NAMESPACES = {
+			URI.create("http://example.com/benchmark/a"),
+			URI.create("http://example.com/benchmark/b"),
+			URI.create("http://example.com/benchmark/c"),
+			URI.create("http://example.com/benchmark/d")
+	};
+
+	public static void main(String... args) throws Exception {
+
+		for (boolean hoisted : new boolean[] { false, true }) {
+
+			System.out.println(hoisted ? "declared on root element:" : "declared where used:");
+			ByteArrayOutputStream first = new ByteArrayOutputStream();
+			write(first, hoisted);
+			ByteArrayOutputStream second = new ByteArrayOutputStream();
+			write(second, hoisted);
+			System.out.println("reproducible output: " + Arrays.equals(first.toByteArray(), second.toByteArray()));
+			System.out.printf("output size: %d bytes, %.1f bytes per element%n", first.size(), first.size() / (double) ELEMENTS);
+
+			for (int round = 0; round < ROUNDS; round++) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream(first.size());
+				long start = System.nanoTime();
+				write(out, hoisted);
+				long time = System.nanoTime() - start;
+				System.out.printf("round %d: %.1f MB/s, %.1f elements/ms%n", round, out.size() / (time / 1e3), ELEMENTS / (time / 1e6));
+			}
+
+		}
+
+	}
+
+	private static void write(OutputStream out, boolean hoisted) throws Exception {
+		XMLOutputStream xmlOut = new XMLOutputStream(out);
+		if (hoisted)
+			for (URI namespace : NAMESPACES)
+				xmlOut.declareNamespace(namespace);
+		xmlOut.writeNext(new ElementDescriptor(DescType.OPEN, NAMESPACES[0], "root", null));
+		for (int i = 0; i < ELEMENTS; i++) {
+			URI namespace = NAMESPACES[1 + i % (NAMESPACES.length - 1)];
+			xmlOut.writeNext(new ElementDescriptor(DescType.OPEN, namespace, "item", null));
+			xmlOut.writeNext(new ElementDescriptor(DescType.SELF_CLOSING, NAMESPACES[(i + 2) % NAMESPACES.length], "value", null));
+			xmlOut.writeNext(new ElementDescriptor(DescType.CLOSE, namespace, "item", null));
+		}
+		xmlOut.writeNext(new ElementDescriptor(DescType.CLOSE, NAMESPACES[0], "root", null));
+		xmlOut.close();
+	}
+
+}
@@ -0,0 +1,110 @@
+package test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import de.m_marvin.basicxml.Attributes;
+import de.m_marvin.basicxml.XMLOutputStream;
+import de.m_marvin.basicxml.XMLStream.DescType;
+import de.m_marvin.basicxml.XMLStream.ElementDescriptor;
+
+/**
+ * Measures the throughput of the XML output stream for an document with many small elements.<br>
+ * The baseline writes the same document the way the stream formatted it before using an output buffer:
+ * an string per tag and attribute written to an unbuffered stream writer, and one write call per indentation tab.
+ */
+public class OutputBenchmark {
+
+	private static final int ELEMENTS = 200_000;
+	private static final int ROUNDS = 10;
+	private static final URI NAMESPACE = URI.create("http://example.com/benchmark");
+
+	private static class CountingOutputStream extends OutputStream {
+		long count = 0;
+		@Override public void write(int b) { count++; }
+		@Override public void write(byte[] b, int off, int len) { count += len; }
+	}
+
+	public static void main(String... args) throws Exception {
+
+		for (int round = 0; round < ROUNDS; round++) {
+
+			CountingOutputStream baselineOut = new CountingOutputStream();
+			long start = System.nanoTime();
+			writeBaseline(baselineOut);
+			long baselineTime = System.nanoTime() - start;
+
+			CountingOutputStream streamOut = new CountingOutputStream();
+			start = System.nanoTime();
+			writeStream(streamOut);
+			long streamTime = System.nanoTime() - start;
+
+			System.out.printf("round %d: baseline %.1f MB/s, stream %.1f MB/s%n", round,
+					baselineOut.count / (baselineTime / 1e3), streamOut.count / (streamTime / 1e3));
+
+		}
+
+	}
+
+	private static void writeStream(OutputStream out) throws Exception {
+		XMLOutputStream xmlOut = new XMLOutputStream(out);
+		Attributes attributes = new Attributes();
+		xmlOut.writeNext(new ElementDescriptor(DescType.OPEN, NAMESPACE, "root", null));
+		for (int i = 0; i < ELEMENTS; i++) {
+			attributes.clear();
+			attributes.add("id", Integer.toString(i));
+			attributes.add("name", "item");
+			xmlOut.writeNext(new ElementDescriptor(DescType.OPEN, NAMESPACE, "item", attributes));
+			xmlOut.writeAllText("value " + i, false);
+			xmlOut.writeNext(new ElementDescriptor(DescType.CLOSE, NAMESPACE, "item", null));
+		}
+		xmlOut.writeNext(new ElementDescriptor(DescType.CLOSE, NAMESPACE, "root", null));
+		xmlOut.close();
+	}
+
+	private static void writeBaseline(OutputStream out) throws IOException {
+		Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		writer.write("<?" + baselineElement(DescType.OPEN, "xml", Map.of("version", "1.0", "encoding", "UTF-8")) + "?>");
+		writer.write('\n');
+		writer.write("<" + baselineElement(DescType.OPEN, "root", Map.of("xmlns", NAMESPACE.toString())) + ">");
+		for (int i = 0; i < ELEMENTS; i++) {
+			Attributes attributes = new Attributes();
+			attributes.add("id", Integer.toString(i));
+			attributes.add("name", "item");
+			writer.write('\n');
+			writer.write('\t');
+			writer.write("<" + baselineElement(DescType.OPEN, "item", attributes) + ">");
+			writer.write(baselineEscape("value " + i));
+			writer.write("<" + baselineElement(DescType.CLOSE, "item", null) + ">");
+		}
+		writer.write('\n');
+		writer.write("<" + baselineElement(DescType.CLOSE, "root", null) + ">");
+		writer.close();
+	}
+
+	private static String baselineElement(DescType type, String name, Map<String, String> attributes) {
+		StringBuffer elementStr = new StringBuffer();
+		if (type == DescType.CLOSE)
+			elementStr.append('/');
+		elementStr.append(name);
+		if (attributes != null)
+			for (var a : attributes.entrySet())
+				elementStr.append(String.format(" %s=\"%s\"", a.getKey(), baselineEscape(a.getValue())));
+		return elementStr.toString();
+	}
+
+	private static String baselineEscape(String text) {
+		text = text.replace("&", "&amp;");
+		text = text.replace("<", "&lt;");
+		text = text.replace(">", "&gt;");
+		text = text.replace("'", "&apos;");
+		text = text.replace("\"", "&quot;");
+		return text;
+	}
+
+}
@@ -0,0 +1,108 @@
+package test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import de.m_marvin.basicxml.XMLOutputStream;
+import de.m_marvin.basicxml.marshaling.XMLMarshaler;
+import de.m_marvin.basicxml.marshaling.annotations.XMLField;
+import de.m_marvin.basicxml.marshaling.annotations.XMLField.FieldType;
+import de.m_marvin.basicxml.marshaling.annotations.XMLRootType;
+import de.m_marvin.basicxml.marshaling.annotations.XMLType;
+
+/**
+ * Measures the throughput of marshaling an root object with an large collection of records, sequentially and in parallel with increasing numbers of threads.<br>
+ * Also checks that the parallel output is identical for all thread counts.
+ */
+public class ParallelBenchmark {
+
+	private static final int RECORDS = 200_000;
+	private static final int ROUNDS = 5;
+	private static final int THRESHOLD = 1000;
+
+	@XMLType
+	@XMLRootType(value = "records", namespace = "http://example.com/benchmark")
+	public static class Records {
+		@XMLField(value = FieldType.ELEMENT_COLLECTION, type = DataRecord.class, namespace = "http://example.com/benchmark")
+		public ArrayList<DataRecord> record;
+	}
+
+	@XMLType
+	public static class DataRecord {
+		@XMLField(FieldType.ATTRIBUTE)
+		public int id;
+		@XMLField(FieldType.ATTRIBUTE)
+		public double value;
+		@XMLField(value = FieldType.ELEMENT, namespace = "http://example.com/benchmark")
+		public String name;
+		@XMLField(value = FieldType.ELEMENT, namespace = "http://example.com/benchmark/detail")
+		public String description;
+	}
+
+	private static class CountingOutputStream extends OutputStream {
+		long count = 0;
+		@Override public void write(int b) { count++; }
+		@Override public void write(byte[] b, int off, int len) { count += len; }
+	}
+
+	public static void main(String... args) throws Exception {
+
+		Records records = new Records();
+		records.record = new ArrayList<>(RECORDS);
+		for (int i = 0; i < RECORDS; i++) {
+			DataRecord record = new DataRecord();
+			record.id = i;
+			record.value = i * 0.25;
+			record.name = "record " + i;
+			record.description = "description of record <" + i + ">";
+			records.record.add(record);
+		}
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.println("available processors: " + cores);
+		List<Integer> threadCounts = new ArrayList<>();
+		for (int threads = 1; threads < cores; threads *= 2) threadCounts.add(threads);
+		threadCounts.add(cores);
+
+		// the output has to be the same for any number of threads
+		byte[] reference = null;
+		for (int threads : threadCounts) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			marshal(out, records, pool);
+			pool.shutdown();
+			if (reference == null) reference = out.toByteArray();
+			else if (!Arrays.equals(reference, out.toByteArray())) System.out.println("output differs with " + threads + " threads");
+		}
+
+		for (int round = 0; round < ROUNDS; round++) {
+			CountingOutputStream sequentialOut = new CountingOutputStream();
+			long start = System.nanoTime();
+			marshal(sequentialOut, records, null);
+			long time = System.nanoTime() - start;
+			StringBuilder line = new StringBuilder(String.format("round %d: sequential %.1f records/ms", round, RECORDS / (time / 1e6)));
+			for (int threads : threadCounts) {
+				ForkJoinPool pool = new ForkJoinPool(threads);
+				CountingOutputStream parallelOut = new CountingOutputStream();
+				start = System.nanoTime();
+				marshal(parallelOut, records, pool);
+				time = System.nanoTime() - start;
+				pool.shutdown();
+				line.append(String.format(", %d threads %.1f records/ms", threads, RECORDS / (time / 1e6)));
+			}
+			System.out.println(line);
+		}
+
+	}
+
+	private static void marshal(OutputStream out, Records records, ForkJoinPool pool) throws Exception {
+		XMLMarshaler marshaler = new XMLMarshaler(false, Records.class, DataRecord.class);
+		if (pool != null) marshaler.setParallelMarshaling(THRESHOLD, pool);
+		marshaler.marshal(new XMLOutputStream(out), records);
+	}
+
+}
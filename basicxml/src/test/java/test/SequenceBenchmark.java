@@ -0,0 +1,124 @@
+package test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+
+import de.m_marvin.basicxml.XMLInputStream;
+import de.m_marvin.basicxml.XMLOutputStream;
+import de.m_marvin.basicxml.marshaling.XMLMarshaler;
+import de.m_marvin.basicxml.marshaling.XMLSequenceReader;
+import de.m_marvin.basicxml.marshaling.XMLSequenceWriter;
+import de.m_marvin.basicxml.marshaling.XMLUnmarshaler;
+import de.m_marvin.basicxml.marshaling.annotations.XMLField;
+import de.m_marvin.basicxml.marshaling.annotations.XMLField.FieldType;
+import de.m_marvin.basicxml.marshaling.annotations.XMLRootType;
+import de.m_marvin.basicxml.marshaling.annotations.XMLType;
+
+/**
+ * Compares unmarshaling an document with an large number of records as whole against reading the records one at a time.<br>
+ * Reports the time and the peak heap usage sampled while reading, the records are written to an temporary file one at a time as well.
+ */
+public class SequenceBenchmark {
+
+	private static final int RECORDS = 500_000;
+	private static final int ROUNDS = 3;
+	private static final int SAMPLE_INTERVAL = 50_000;
+	private static final URI NAMESPACE = URI.create("http://example.com/benchmark");
+
+	@XMLType
+	@XMLRootType(value = "records", namespace = "http://example.com/benchmark")
+	public static class Records {
+		@XMLField(value = FieldType.ELEMENT_COLLECTION, type = DataRecord.class, namespace = "http://example.com/benchmark")
+		public ArrayList<DataRecord> record;
+	}
+
+	@XMLType
+	public static class DataRecord {
+		@XMLField(FieldType.ATTRIBUTE)
+		public int id;
+		@XMLField(FieldType.ATTRIBUTE)
+		public double value;
+		@XMLField(value = FieldType.ELEMENT, namespace = "http://example.com/benchmark")
+		public String name;
+		@XMLField(value = FieldType.ELEMENT, namespace = "http://example.com/benchmark/detail")
+		public String description;
+	}
+
+	/** the highest heap usage sampled during the current run */
+	private static long peakHeap;
+
+	public static void main(String... args) throws Exception {
+
+		File file = File.createTempFile("sequence", ".xml");
+		file.deleteOnExit();
+
+		XMLMarshaler marshaler = new XMLMarshaler(false, Records.class, DataRecord.class);
+		try (XMLSequenceWriter writer = marshaler.openSequence(new XMLOutputStream(new BufferedOutputStream(new FileOutputStream(file))), Records.class)) {
+			DataRecord record = new DataRecord();
+			for (int i = 0; i < RECORDS; i++) {
+				record.id = i;
+				record.value = i * 0.25;
+				record.name = "record " + i;
+				record.description = "description of record <" + i + ">";
+				writer.write(NAMESPACE, "record", record);
+			}
+		}
+		System.out.println(String.format("document size: %.1f MB", file.length() / 1e6));
+
+		XMLUnmarshaler unmarshaler = new XMLUnmarshaler(false, Records.class, DataRecord.class);
+
+		for (int round = 0; round < ROUNDS; round++) {
+
+			// unmarshal the whole document, all records are held until the root object is returned
+			resetPeak();
+			long start = System.nanoTime();
+			Records records = unmarshaler.unmarshall(new XMLInputStream(new BufferedInputStream(new FileInputStream(file))), Records.class);
+			long wholeTime = System.nanoTime() - start;
+			sampleHeap();
+			long wholeSum = 0;
+			for (DataRecord record : records.record) wholeSum += record.id;
+			long wholePeak = peakHeap;
+			records = null;
+
+			// unmarshal one record at a time, each record can be collected after it was processed
+			resetPeak();
+			start = System.nanoTime();
+			long eachSum = 0;
+			int count = 0;
+			try (XMLSequenceReader<DataRecord> reader = unmarshaler.unmarshallEach(new XMLInputStream(new BufferedInputStream(new FileInputStream(file))), NAMESPACE, "record", DataRecord.class)) {
+				DataRecord record;
+				while ((record = reader.read()) != null) {
+					eachSum += record.id;
+					if (++count % SAMPLE_INTERVAL == 0) sampleHeap();
+				}
+			}
+			long eachTime = System.nanoTime() - start;
+			long eachPeak = peakHeap;
+
+			if (wholeSum != eachSum) System.out.println("results differ: " + wholeSum + " != " + eachSum);
+			System.out.println(String.format("round %d: whole %.1f records/ms %.1f MB peak, each %.1f records/ms %.1f MB peak",
+					round, RECORDS / (wholeTime / 1e6), wholePeak / 1e6, RECORDS / (eachTime / 1e6), eachPeak / 1e6));
+		}
+
+	}
+
+	private static void resetPeak() {
+		System.gc();
+		peakHeap = 0;
+	}
+
+	/**
+	 * Samples the heap usage after an garbage collection, so that only the reachable objects are counted
+	 */
+	private static void sampleHeap() {
+		System.gc();
+		Runtime runtime = Runtime.getRuntime();
+		peakHeap = Math.max(peakHeap, runtime.totalMemory() - runtime.freeMemory());
+	}
+
+}
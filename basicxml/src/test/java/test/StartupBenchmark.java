@@ -0,0 +1,128 @@
+package test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import de.m_marvin.basicxml.XMLInputStream;
+import de.m_marvin.basicxml.XMLOutputStream;
+import de.m_marvin.basicxml.marshaling.XMLMarshaler;
+import de.m_marvin.basicxml.marshaling.XMLUnmarshaler;
+
+/**
+ * Measures the startup time of an marshaler and unmarshaler for an schema with many nested types, of which an document only uses one.<br>
+ * Compares lazy type resolution with resolving all types in advance by warmUp().
+ * Since the type descriptions are cached for the whole JVM, every measurement runs in an new JVM.
+ */
+public class StartupBenchmark {
+
+	private static final int TYPES = 400;
+	private static final int RUNS = 5;
+
+	private static final byte[] DOCUMENT = "<schema><type0 id=\"1\" name=\"first\"><value>2.5</value><note>text</note></type0></schema>".getBytes(StandardCharsets.UTF_8);
+
+	public static void main(String... args) throws Exception {
+
+		if (args.length == 3 && args[0].equals("child")) {
+			measure(args[1].equals("eager"), new File(args[2]));
+			return;
+		}
+
+		Path dir = Files.createTempDirectory("startup-benchmark");
+		Path source = dir.resolve("bench/Schema.java");
+		Files.createDirectories(source.getParent());
+		Files.writeString(source, generateSchema());
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler.run(null, null, null, "-proc:none", "-cp", System.getProperty("java.class.path"), "-d", dir.toString(), source.toString()) != 0)
+			throw new IllegalStateException("failed to compile the schema");
+
+		System.out.println("schema with " + TYPES + " nested types, " + RUNS + " runs per mode in new JVMs");
+		List<long[]> lazy = new ArrayList<>();
+		List<long[]> eager = new ArrayList<>();
+		for (int run = 0; run < RUNS; run++) {
+			lazy.add(runChild("lazy", dir));
+			eager.add(runChild("eager", dir));
+		}
+		report("lazy", lazy);
+		report("eager (warmUp)", eager);
+
+	}
+
+	private static String generateSchema() {
+		StringBuilder source = new StringBuilder();
+		source.append("package bench;\n");
+		source.append("import java.util.ArrayList;\n");
+		source.append("import de.m_marvin.basicxml.marshaling.annotations.*;\n");
+		source.append("import de.m_marvin.basicxml.marshaling.annotations.XMLField.FieldType;\n");
+		source.append("@XMLType @XMLRootType(\"schema\")\n");
+		source.append("public class Schema {\n");
+		source.append("	@XMLField(FieldType.ELEMENT) public Type0 type0;\n");
+		for (int i = 0; i < TYPES; i++) {
+			source.append("	@XMLType public static class Type").append(i).append(" {\n");
+			source.append("		@XMLField(FieldType.ATTRIBUTE) public int id;\n");
+			source.append("		@XMLField(FieldType.ATTRIBUTE) public String name;\n");
+			source.append("		@XMLField(FieldType.ELEMENT) public double value;\n");
+			source.append("		@XMLField(FieldType.ELEMENT) public String note;\n");
+			source.append("		@XMLField(value = FieldType.ELEMENT_COLLECTION, type = String.class) public ArrayList<String> item;\n");
+			source.append("	}\n");
+		}
+		source.append("}\n");
+		return source.toString();
+	}
+
+	private static long[] runChild(String mode, Path dir) throws Exception {
+		String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+		Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), StartupBenchmark.class.getName(), "child", mode, dir.toString())
+				.redirectErrorStream(true).start();
+		String line;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+			line = reader.readLine();
+		}
+		if (process.waitFor() != 0 || line == null)
+			throw new IllegalStateException("measurement failed: " + line);
+		return Arrays.stream(line.split(" ")).mapToLong(Long::parseLong).toArray();
+	}
+
+	/**
+	 * Runs in the child JVM, prints the time until the marshalers are ready and until the first document is unmarshaled and marshaled again
+	 */
+	private static void measure(boolean eager, File dir) throws Exception {
+		try (URLClassLoader loader = new URLClassLoader(new URL[] { dir.toURI().toURL() }, StartupBenchmark.class.getClassLoader())) {
+			Class<?> schema = loader.loadClass("bench.Schema");
+
+			long start = System.nanoTime();
+			XMLUnmarshaler unmarshaler = new XMLUnmarshaler(false, schema);
+			XMLMarshaler marshaler = new XMLMarshaler(false, schema);
+			if (eager) {
+				unmarshaler.warmUp();
+				marshaler.warmUp();
+			}
+			long ready = System.nanoTime();
+			Object object = unmarshaler.unmarshall(new XMLInputStream(new ByteArrayInputStream(DOCUMENT)), schema);
+			marshaler.marshal(new XMLOutputStream(OutputStream.nullOutputStream()), object);
+			long first = System.nanoTime();
+
+			System.out.println((ready - start) + " " + (first - start));
+		}
+	}
+
+	private static void report(String mode, List<long[]> times) {
+		long[] ready = times.stream().mapToLong(t -> t[0]).sorted().toArray();
+		long[] first = times.stream().mapToLong(t -> t[1]).sorted().toArray();
+		System.out.println(String.format("%-16s ready after %.2f ms, first document after %.2f ms (medians)", mode, ready[ready.length / 2] / 1e6, first[first.length / 2] / 1e6));
+	}
+
+}
@@ -1,11 +1,13 @@
 package test;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 
 import de.m_marvin.basicxml.XMLInputStream;
 import de.m_marvin.basicxml.XMLOutputStream;
@@ -55,6 +57,18 @@ public class Test {
 		
 		marshaler.marshal(xmlOut, object);
 		
+		// character references of surrogate pairs are split when the char buffer has only one free slot
+		for (int bufferSize = 1; bufferSize <= 2; bufferSize++) {
+			XMLInputStream pairIn = new XMLInputStream(new ByteArrayInputStream("<r>a&#x1F600;b</r>".getBytes(StandardCharsets.UTF_8)));
+			pairIn.readNext();
+			StringBuilder pairText = new StringBuilder();
+			char[] pairBuffer = new char[bufferSize];
+			int r;
+			while ((r = pairIn.readText(pairBuffer, 0, pairBuffer.length)) > 0)
+				pairText.append(pairBuffer, 0, r);
+			System.out.println("surrogate pair, buffer " + bufferSize + ": " + pairText.toString().equals("a\uD83D\uDE00b"));
+		}
+		
 //		System.out.println("Version: " + xmlIn.getVersion());
 //		System.out.println("Encoding: " + xmlIn.getEncoding());
 //		